@@ -0,0 +1,88 @@
+package br.com.fiap.velha;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Verificacao da alocacao do calculo das jogadas do @ref VelhaEngine: joga
+ * partidas completas do robot contra ele mesmo, em todos os niveis e
+ * estrategias do 3x3, e mede os bytes alocados pela thread com
+ * ThreadMXBean.getThreadAllocatedBytes. Depois do aquecimento, o calculo
+ * nao deve alocar nada: se alguma estrategia alocar, termina com codigo 1.
+ * Uso:
+ *   java -cp classes br.com.fiap.velha.VelhaBenchAlocacao [partidas]
+ */
+public class VelhaBenchAlocacao {
+
+	/** Rodadas de aquecimento (ate' o JIT estabilizar o codigo compilado). */
+	private static final int AQUECIMENTO = 3;
+
+	/** Estrategias do 3x3 verificadas. */
+	private static final VelhaTipoEstrategia ESTRATEGIAS[] = {
+		VelhaTipoEstrategia.REGRAS, VelhaTipoEstrategia.TABELA,
+		VelhaTipoEstrategia.NEGAMAX
+	};
+
+	/**
+	 * Metodo principal da verificacao.
+	 * @param args Quantidade de partidas medidas por estrategia (padrao
+	 *   20000)
+	 */
+	public static void main(String[] args) {
+		int partidas = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+		com.sun.management.ThreadMXBean mxBean =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!mxBean.isThreadAllocatedMemorySupported()) {
+			System.out.println("ThreadAllocatedBytes nao suportado nesta JVM");
+			System.exit(2);
+		}
+		mxBean.setThreadAllocatedMemoryEnabled(true);
+		long thread = Thread.currentThread().getId();
+
+		/* custo da propria medida, descontado das demais */
+		long inicio = mxBean.getThreadAllocatedBytes(thread);
+		long custo  = mxBean.getThreadAllocatedBytes(thread) - inicio;
+
+		boolean falhou = false;
+		for (VelhaTipoEstrategia estrategia : ESTRATEGIAS) {
+			VelhaEngine engine = (VelhaEngine) estrategia.criarEngine(3);
+
+			/* aquecimento: carrega as classes, tabelas e o JIT */
+			for (int i = 0; i < AQUECIMENTO; i++) jogar(engine, partidas);
+
+			inicio = mxBean.getThreadAllocatedBytes(thread);
+			long jogadas = jogar(engine, partidas);
+			long bytes = mxBean.getThreadAllocatedBytes(thread) - inicio - custo;
+
+			double porJogada = (double) bytes / jogadas;
+			System.out.printf("estrategia=%-8s jogadas=%9d bytes=%9d bytes/jogada=%.3f%n",
+					estrategia, jogadas, bytes, porJogada);
+			if (bytes > 0) falhou = true;
+		}
+		if (falhou) {
+			System.out.println("FALHA: o calculo das jogadas alocou memoria");
+			System.exit(1);
+		}
+		System.out.println("OK: nenhuma alocacao por jogada");
+	}
+
+	/**
+	 * Joga partidas completas do robot contra ele mesmo, variando o nivel.
+	 * @param engine Logica do Jogo da Velha 3x3
+	 * @param partidas Quantidade de partidas
+	 * @return Quantidade de jogadas calculadas.
+	 */
+	private static long jogar(VelhaEngine engine, int partidas) {
+		long jogadas = 0;
+		for (int i = 0; i < partidas; i++) {
+			engine.limparTabuleiro();
+			engine.setNivel(i % 11);
+			char jogador = VelhaEngine.JOGADOR_X;
+			while (!engine.isGameOver()) {
+				engine.setPosicao(engine.getJogada(jogador), jogador);
+				jogador = VelhaEngine.getOponente(jogador);
+				jogadas++;
+			}
+		}
+		return jogadas;
+	}
+}
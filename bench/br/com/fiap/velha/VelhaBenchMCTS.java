@@ -0,0 +1,61 @@
+package br.com.fiap.velha;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmark da escalabilidade da @ref VelhaMCTS: mede os playouts por
+ * segundo com 1, 2, 4... tarefas de busca (ate' o dobro dos processadores),
+ * cada medida com um pool proprio do mesmo tamanho, e o ganho em relacao a
+ * uma tarefa. Uso:
+ *   java -cp classes br.com.fiap.velha.VelhaBenchMCTS [tempo_ms] [tamanho]
+ */
+public class VelhaBenchMCTS {
+
+	/** Quantidade de buscas medidas por paralelismo (a primeira e' aquecimento). */
+	private static final int RODADAS = 4;
+
+	/**
+	 * Metodo principal do benchmark.
+	 * @param args Tempo de cada busca em ms (padrao 1000) e tamanho do
+	 *   tabuleiro (padrao 7)
+	 */
+	public static void main(String[] args) {
+		long tempo  = (args.length > 0) ? Long.parseLong(args[0]) : 1000L;
+		int tamanho = (args.length > 1) ? Integer.parseInt(args[1]) : 7;
+		int sequencia = VelhaEngineMNK.getSequenciaPadrao(tamanho);
+		int processadores = Runtime.getRuntime().availableProcessors();
+
+		/* posicao de meio de jogo: algumas marcas no centro */
+		char tabuleiro[] = new char[tamanho * tamanho];
+		Arrays.fill(tabuleiro, VelhaEngine.JOGADOR_VAZIO);
+		int centro = (tamanho / 2) * tamanho + tamanho / 2;
+		tabuleiro[centro]     = VelhaEngine.JOGADOR_X;
+		tabuleiro[centro + 1] = VelhaEngine.JOGADOR_O;
+
+		System.out.println("processadores=" + processadores + " tamanho=" +
+				tamanho + " sequencia=" + sequencia + " tempo=" + tempo + "ms");
+		double base = 0;
+		for (int paralelismo = 1; paralelismo <= 2 * processadores;
+			 paralelismo *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(paralelismo);
+			try {
+				VelhaMCTS mcts = new VelhaMCTS(tempo, 0, paralelismo, pool);
+				double soma = 0;
+				for (int i = 0; i < RODADAS; i++) {
+					/* nivel 10, sem aleatoriedade na defesa */
+					mcts.getJogada(tabuleiro, tamanho, sequencia,
+							VelhaEngine.JOGADOR_X, 10, new Random(i));
+					if (i > 0) soma += mcts.getPlayoutsPorSegundo();
+				}
+				double media = soma / (RODADAS - 1);
+				if (paralelismo == 1) base = media;
+				System.out.printf("paralelismo=%2d playouts/s=%12.0f ganho=%.2fx%n",
+						paralelismo, media, media / base);
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+}
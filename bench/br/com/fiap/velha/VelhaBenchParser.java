@@ -0,0 +1,100 @@
+package br.com.fiap.velha;
+
+import java.util.Random;
+
+/**
+ * Benchmark da leitura das mensagens do @ref VelhaParser: mede as mensagens
+ * por segundo dos modos DOM e StAX em cada nivel de validacao, e o ganho
+ * do StAX sobre o DOM. As mensagens sao partidas aleatorias (tabuleiros
+ * com 0 a 8 marcas) geradas pelo proprio parser. Os schemas (velha.xsd e
+ * velha-mnk.xsd) precisam estar no classpath para o nivel completo. Uso:
+ *   java -cp classes br.com.fiap.velha.VelhaBenchParser [tempo_ms] [tamanho]
+ */
+public class VelhaBenchParser {
+
+	/** Quantidade de mensagens diferentes lidas em rodizio. */
+	private static final int MENSAGENS = 256;
+	/** Quantidade de medidas por modo (a primeira e' aquecimento). */
+	private static final int RODADAS = 4;
+
+	/**
+	 * Metodo principal do benchmark.
+	 * @param args Tempo de cada medida em ms (padrao 1000) e tamanho do
+	 *   tabuleiro (padrao 3)
+	 */
+	public static void main(String[] args) {
+		long tempo  = (args.length > 0) ? Long.parseLong(args[0]) : 1000L;
+		int tamanho = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+		String xml[] = gerarMensagens(tamanho);
+
+		System.out.println("tamanho=" + tamanho + " mensagens=" + MENSAGENS +
+				" tempo=" + tempo + "ms");
+		for (VelhaParser.Validacao validacao : VelhaParser.Validacao.values()) {
+			double dom  = medir(new VelhaParser(VelhaParser.Modo.DOM,  validacao), xml, tempo);
+			double stax = medir(new VelhaParser(VelhaParser.Modo.STAX, validacao), xml, tempo);
+			System.out.printf("validacao=%-10s DOM=%10.0f msg/s STAX=%10.0f msg/s ganho=%.2fx%n",
+					validacao, dom, stax, stax / dom);
+		}
+	}
+
+	/**
+	 * Mede as mensagens lidas por segundo por um parser.
+	 * @param parser Parser (modo e nivel de validacao)
+	 * @param xml Mensagens, lidas em rodizio
+	 * @param tempo Tempo de cada medida, em ms
+	 * @return Media das medidas (sem o aquecimento), em mensagens/s.
+	 * @throws IllegalStateException se alguma mensagem for rejeitada
+	 */
+	private static double medir(VelhaParser parser, String[] xml, long tempo) {
+		double soma = 0;
+		for (int rodada = 0; rodada < RODADAS; rodada++) {
+			long fim = System.nanoTime() + tempo * 1000000L;
+			long lidas = 0;
+			long inicio = System.nanoTime();
+			do {
+				for (int i = 0; i < xml.length; i++) {
+					if (parser.getVelhaBean(xml[i]) == null) {
+						throw new IllegalStateException("Mensagem rejeitada (" +
+								parser.getModo() + "): " + xml[i]);
+					}
+				}
+				lidas += xml.length;
+			} while (System.nanoTime() < fim);
+			double segundos = (System.nanoTime() - inicio) / 1e9;
+			if (rodada > 0) soma += lidas / segundos;
+		}
+		return soma / (RODADAS - 1);
+	}
+
+	/**
+	 * Gera mensagens de partidas aleatorias (semente fixa).
+	 * @param tamanho Tamanho do lado do tabuleiro
+	 * @return Mensagens em XML.
+	 */
+	private static String[] gerarMensagens(int tamanho) {
+		Random random = new Random(42);
+		VelhaParser parser = new VelhaParser();
+		int posicoes = tamanho * tamanho;
+		String xml[] = new String[MENSAGENS];
+		for (int i = 0; i < MENSAGENS; i++) {
+			VelhaBean velhaBean = new VelhaBean(posicoes);
+			char jogador = VelhaEngine.JOGADOR_X;
+			int marcas = random.nextInt(Math.min(posicoes, 9));
+			int jogada = -1;
+			for (int m = 0; m < marcas; m++) {
+				int pos;
+				do {
+					pos = random.nextInt(posicoes);
+				} while (velhaBean.getPosicao(pos) != VelhaEngine.JOGADOR_VAZIO);
+				velhaBean.setPosicao(pos, jogador);
+				jogador = VelhaEngine.getOponente(jogador);
+				jogada = pos;
+			}
+			velhaBean.setId(jogador);
+			velhaBean.setStatus((i % 2 == 0) ? VelhaStatus.JOGUE : VelhaStatus.AGUARDE);
+			velhaBean.setJogada(jogada);
+			xml[i] = parser.getVelhaXML(velhaBean);
+		}
+		return xml;
+	}
+}
@@ -8,30 +8,47 @@ public class VelhaBean{
 	/** Id do jogador. */
 	private char id;
 	/** Status do jogo. */
-	private String status;
-	/** Posicao da jogada (0..8) ou -1 para nenhuma. */
+	private VelhaStatus status;
+	/** Posicao da jogada (0..8 no tabuleiro 3x3) ou -1 para nenhuma. */
 	private int jogada;
-	/** Estado do tabuleiro (char[0]..char[8]). */
-	private char[] tabuleiro = new char[9];
+	/** Estado do tabuleiro (char[0]..char[8] no tabuleiro 3x3). */
+	private char[] tabuleiro;
 	
-	/** Construtor default. */
+	/** Construtor default (tabuleiro 3x3). */
 	public VelhaBean() {
+		this(9);
+	}
+	
+	/**
+	 * Construtor.
+	 * @param posicoes Quantidade de posicoes do tabuleiro (tamanho * tamanho)
+	 */
+	public VelhaBean(int posicoes) {
+		tabuleiro = new char[posicoes];
 		limpar();
 	}
 	
 	/** Limpa todos atributos. */
 	public void limpar() {
 		id = VelhaEngine.JOGADOR_VAZIO;
-		status = VelhaEngine.STATUS_AGUARDE;
+		status = VelhaStatus.AGUARDE;
 		jogada = -1;
 		for (int pos = 0; pos < tabuleiro.length; pos++) {
 			tabuleiro[pos] = VelhaEngine.JOGADOR_VAZIO;
 		}
 	}
 
+	/**
+	 * Retorna o tamanho do lado do tabuleiro.
+	 * @return Quantidade de linhas (e de colunas) do tabuleiro.
+	 */
+	public int getTamanho() {
+		return (int) Math.round(Math.sqrt(tabuleiro.length));
+	}
+
 	/**
 	 * Retorna uma posicao no tabuleiro.
-	 * @param pos Posicao (de 0 a 8)
+	 * @param pos Posicao (de 0 a 8 no tabuleiro 3x3)
 	 * @return Jogador marcado na posicao ou 0 se nao houver. 
 	 */
 	public char getPosicao(int pos) {
@@ -40,7 +57,7 @@ public class VelhaBean{
 
 	/**
 	 * Altera uma posicao no tabuleiro.
-	 * @param pos Posicao (de 0 a 8)
+	 * @param pos Posicao (de 0 a 8 no tabuleiro 3x3)
 	 * @param jogador Jogador a ser marcado na posicao ('X'|'O') ou
 	 *   0 para vazio
 	 */
@@ -49,12 +66,16 @@ public class VelhaBean{
 	}
 
 	/**
-	 * Copia um vetor para o tabuleiro.
+	 * Copia um vetor para o tabuleiro. Se o vetor tiver outro tamanho, o
+	 *   tabuleiro e' redimensionado.
 	 * @param from Vetor origem, com a representacao de um tabuleiro
-	 *   (9 posicoes).
+	 *   (9 posicoes no tabuleiro 3x3).
 	 */
 	public void copiarTabuleiro(char[] from) {
-		if (from != null && from.length == tabuleiro.length) {
+		if (from != null) {
+			if (from.length != tabuleiro.length) {
+				tabuleiro = new char[from.length];
+			}
 			for (int pos = 0; pos < tabuleiro.length; pos++) {
 				tabuleiro[pos] = from[pos];
 			}
@@ -89,7 +110,7 @@ public class VelhaBean{
 	 * Retorna o Status do jogo.
 	 * @return Status do jogo.
 	 */
-	public String getStatus() {
+	public VelhaStatus getStatus() {
 		return status;
 	}
 
@@ -97,7 +118,7 @@ public class VelhaBean{
 	 * Altera o Status do jogo.
 	 * @param status Status do jogo.
 	 */
-	public void setStatus(String status) {
+	public void setStatus(VelhaStatus status) {
 		this.status = status;
 	}
 
@@ -0,0 +1,261 @@
+package br.com.fiap.velha;
+
+/**
+ * Classe utilitaria com as operacoes do tabuleiro em formato "bitboard".
+ * O tabuleiro inteiro cabe num unico int, com duas mascaras de 9 bits:
+ * os bits 0..8 marcam as posicoes do @ref VelhaEngine#JOGADOR_X e os bits
+ * 9..17 as posicoes do @ref VelhaEngine#JOGADOR_O. O bit de cada posicao
+ * segue a numeracao do tabuleiro:
+ * [0][1][2]
+ * [3][4][5]
+ * [6][7][8]
+ */
+public final class VelhaBitboard {
+
+	/** Tabuleiro vazio. */
+	public static final int VAZIO = 0;
+	/** Mascara com as 9 posicoes do tabuleiro. */
+	public static final int CHEIO = 0x1FF;
+	/** Deslocamento da mascara do Jogador O dentro do int. */
+	public static final int SHIFT_O = 9;
+
+	/** Mascara da posicao central. */
+	public static final int CENTRO = mascara(4);
+	/** Mascara das posicoes dos cantos. */
+	public static final int CANTOS = mascara(0, 2, 6, 8);
+	/** Mascara das posicoes das bordas. */
+	public static final int BORDAS = mascara(1, 3, 5, 7);
+
+	/** Posicoes possiveis de formar um trio em linha. */
+	private static final int TRIOS[][] = {
+			{0,1,2},{3,4,5},{6,7,8},{0,3,6},{1,4,7},{2,5,8},{0,4,8},{2,4,6}
+	};
+
+	/** Mascaras dos trios, na mesma ordem de @ref TRIOS. */
+	private static final int LINHAS[] = new int[TRIOS.length];
+
+	/** Mascaras dos trios que passam por cada posicao do tabuleiro. */
+	private static final int LINHAS_POSICAO[][] = new int[9][];
+	/** Indices dos trios que passam por cada posicao do tabuleiro. */
+	private static final int INDICES_POSICAO[][] = new int[9][];
+
+	static {
+		for (int l = 0; l < TRIOS.length; l++) {
+			LINHAS[l] = mascara(TRIOS[l][0], TRIOS[l][1], TRIOS[l][2]);
+		}
+		for (int pos = 0; pos < 9; pos++) {
+			int total = 0;
+			for (int l = 0; l < LINHAS.length; l++) {
+				if ((LINHAS[l] & (1 << pos)) != 0) total++;
+			}
+			LINHAS_POSICAO[pos]  = new int[total];
+			INDICES_POSICAO[pos] = new int[total];
+			for (int l = 0, i = 0; l < LINHAS.length; l++) {
+				if ((LINHAS[l] & (1 << pos)) != 0) {
+					LINHAS_POSICAO[pos][i]  = LINHAS[l];
+					INDICES_POSICAO[pos][i] = l;
+					i++;
+				}
+			}
+		}
+	}
+
+	/* classe utilitaria, nao deve ser instanciada */
+	private VelhaBitboard() { }
+
+	/**
+	 * Monta uma mascara a partir de um conjunto de posicoes.
+	 * @param posicoes Posicoes do tabuleiro (0 a 8)
+	 * @return Mascara com os bits das posicoes marcados.
+	 */
+	public static int mascara(int... posicoes) {
+		int mascara = 0;
+		for (int pos : posicoes) {
+			mascara |= 1 << pos;
+		}
+		return mascara;
+	}
+
+	/**
+	 * Retorna a mascara das posicoes marcadas por um jogador.
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @param jogador Jogador (@ref VelhaEngine#JOGADOR_X ou
+	 *   @ref VelhaEngine#JOGADOR_O)
+	 * @return Mascara de 9 bits, ou 0 se o jogador nao e' valido.
+	 */
+	public static int getMascara(int tabuleiro, char jogador) {
+		switch (jogador) {
+			case VelhaEngine.JOGADOR_X: return tabuleiro & CHEIO;
+			case VelhaEngine.JOGADOR_O: return (tabuleiro >>> SHIFT_O) & CHEIO;
+			default                   : return 0;
+		}
+	}
+
+	/**
+	 * Monta um tabuleiro a partir das mascaras dos dois jogadores.
+	 * @param mascaraX Mascara de 9 bits do Jogador X
+	 * @param mascaraO Mascara de 9 bits do Jogador O
+	 * @return Tabuleiro em formato bitboard.
+	 */
+	public static int getTabuleiro(int mascaraX, int mascaraO) {
+		return (mascaraX & CHEIO) | ((mascaraO & CHEIO) << SHIFT_O);
+	}
+
+	/**
+	 * Retorna a mascara das posicoes ocupadas por qualquer jogador.
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @return Mascara de 9 bits.
+	 */
+	public static int getOcupadas(int tabuleiro) {
+		return (tabuleiro | (tabuleiro >>> SHIFT_O)) & CHEIO;
+	}
+
+	/**
+	 * Retorna a mascara das posicoes vazias.
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @return Mascara de 9 bits.
+	 */
+	public static int getVazias(int tabuleiro) {
+		return ~getOcupadas(tabuleiro) & CHEIO;
+	}
+
+	/**
+	 * Retorna uma posicao no tabuleiro.
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @param pos Posicao (de 0 a 8)
+	 * @return Jogador marcado na posicao ou @ref VelhaEngine#JOGADOR_VAZIO
+	 *   se nao houver.
+	 */
+	public static char getPosicao(int tabuleiro, int pos) {
+		if ((tabuleiro & (1 << pos)) != 0) return VelhaEngine.JOGADOR_X;
+		if ((tabuleiro & (1 << (pos + SHIFT_O))) != 0) return VelhaEngine.JOGADOR_O;
+		return VelhaEngine.JOGADOR_VAZIO;
+	}
+
+	/**
+	 * Altera uma posicao no tabuleiro.
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @param pos Posicao (de 0 a 8)
+	 * @param jogador Jogador a ser marcado na posicao
+	 *   (@ref VelhaEngine#JOGADOR_X, @ref VelhaEngine#JOGADOR_O ou
+	 *   @ref VelhaEngine#JOGADOR_VAZIO)
+	 * @return Novo tabuleiro em formato bitboard.
+	 */
+	public static int setPosicao(int tabuleiro, int pos, char jogador) {
+		tabuleiro &= ~((1 << pos) | (1 << (pos + SHIFT_O)));
+		switch (jogador) {
+			case VelhaEngine.JOGADOR_X: return tabuleiro | (1 << pos);
+			case VelhaEngine.JOGADOR_O: return tabuleiro | (1 << (pos + SHIFT_O));
+			default                   : return tabuleiro;
+		}
+	}
+
+	/**
+	 * Verifica se o tabuleiro esta' cheio.
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @return True se todas as posicoes estao ocupadas, false se nao.
+	 */
+	public static boolean isCheio(int tabuleiro) {
+		return getOcupadas(tabuleiro) == CHEIO;
+	}
+
+	/**
+	 * Retorna o indice do trio completo numa mascara de jogador.
+	 * @param mascara Mascara de 9 bits de um jogador
+	 * @return Indice do trio (0 a 7), ou -1 se nao ha' trio completo.
+	 */
+	public static int getLinhaGanhadora(int mascara) {
+		for (int l = 0; l < LINHAS.length; l++) {
+			if ((mascara & LINHAS[l]) == LINHAS[l]) return l;
+		}
+		return -1;
+	}
+
+	/**
+	 * Retorna o indice do trio completo numa mascara de jogador, verificando
+	 * somente os trios que passam por uma posicao (a da ultima jogada).
+	 * @param mascara Mascara de 9 bits de um jogador
+	 * @param pos Posicao da ultima jogada (de 0 a 8)
+	 * @return Indice do trio (0 a 7), ou -1 se nao ha' trio completo.
+	 */
+	public static int getLinhaGanhadora(int mascara, int pos) {
+		int indices[] = INDICES_POSICAO[pos];
+		for (int i = 0; i < indices.length; i++) {
+			int linha = LINHAS[indices[i]];
+			if ((mascara & linha) == linha) return indices[i];
+		}
+		return -1;
+	}
+
+	/**
+	 * Verifica se uma mascara de jogador contem um trio completo.
+	 * @param mascara Mascara de 9 bits de um jogador
+	 * @return True se ha' trio completo, false se nao.
+	 */
+	public static boolean isGanhador(int mascara) {
+		return getLinhaGanhadora(mascara) >= 0;
+	}
+
+	/**
+	 * Retorna as posicoes de um trio.
+	 * @param linha Indice do trio (0 a 7)
+	 * @return Vetor com as tres posicoes do trio (compartilhado, somente
+	 *   para leitura).
+	 */
+	public static int[] getTrio(int linha) {
+		return TRIOS[linha];
+	}
+
+	/**
+	 * Retorna as posicoes vazias que completam um trio para o jogador
+	 * (ameacas de vitoria).
+	 * @param meus Mascara de 9 bits do jogador
+	 * @param oponente Mascara de 9 bits do oponente
+	 * @return Mascara das posicoes que dao a vitoria ao jogador.
+	 */
+	public static int getAmeacas(int meus, int oponente) {
+		int ameacas = 0;
+		for (int l = 0; l < LINHAS.length; l++) {
+			int linha = LINHAS[l];
+			if ((oponente & linha) == 0 && Integer.bitCount(meus & linha) == 2) {
+				ameacas |= linha & ~meus;
+			}
+		}
+		return ameacas;
+	}
+
+	/**
+	 * Retorna os trios que passam por uma posicao do tabuleiro.
+	 * @param pos Posicao (de 0 a 8)
+	 * @return Mascaras dos trios que contem a posicao.
+	 */
+	static int[] getLinhasPosicao(int pos) {
+		return LINHAS_POSICAO[pos];
+	}
+
+	/**
+	 * Converte um vetor de 9 posicoes para o formato bitboard.
+	 * @param from Vetor com a representacao de um tabuleiro (9 posicoes)
+	 * @return Tabuleiro em formato bitboard.
+	 */
+	public static int fromChars(char[] from) {
+		int tabuleiro = VAZIO;
+		for (int pos = 0; pos < 9; pos++) {
+			tabuleiro = setPosicao(tabuleiro, pos, from[pos]);
+		}
+		return tabuleiro;
+	}
+
+	/**
+	 * Converte um tabuleiro em formato bitboard para um vetor de 9 posicoes.
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @return Vetor com a representacao do tabuleiro.
+	 */
+	public static char[] toChars(int tabuleiro) {
+		char[] to = new char[9];
+		for (int pos = 0; pos < 9; pos++) {
+			to[pos] = getPosicao(tabuleiro, pos);
+		}
+		return to;
+	}
+}
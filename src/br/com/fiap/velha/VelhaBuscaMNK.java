@@ -0,0 +1,342 @@
+package br.com.fiap.velha;
+
+import java.util.Random;
+
+/**
+ * Classe que implementa uma estrategia de jogo por busca para tabuleiros
+ * NxN com k em linha: negamax com poda alfa-beta, limitado em profundidade
+ * e em quantidade de nos visitados (orcamento), com aprofundamento
+ * iterativo. So' sao examinadas as posicoes vizinhas 'as marcas ja' feitas,
+ * e em cada no somente as mais promissoras (largura), o que mantem a busca
+ * viavel mesmo no tabuleiro 15x15.
+ * As posicoes sao avaliadas pelas "janelas" de k posicoes em linha: uma
+ * janela com marcas de um so' jogador vale mais quanto mais marcas tiver.
+ */
+public class VelhaBuscaMNK implements VelhaEstrategiaMNK {
+
+	/** Profundidade maxima padrao da busca, em jogadas. */
+	public static final int PROFUNDIDADE_PADRAO = 4;
+	/** Orcamento padrao da busca, em nos visitados. */
+	public static final int ORCAMENTO_PADRAO    = 20000;
+	/** Largura padrao da busca: jogadas examinadas em cada no. */
+	public static final int LARGURA_PADRAO      = 10;
+
+	/** Valor de uma vitoria (maior que qualquer avaliacao heuristica). */
+	private static final int VITORIA = 100000000;
+
+	/** Direcoes de uma linha: {delta de linha, delta de coluna}. */
+	private static final int DIRECOES[][] = {{0,1},{1,0},{1,1},{1,-1}};
+
+	/** Valor de uma janela, pela quantidade de marcas de um so' jogador. */
+	private static final int PESOS[] = {0, 1, 10, 100, 1000, 10000, 100000};
+
+	/** Profundidade maxima da busca. */
+	private final int profundidade;
+	/** Orcamento da busca, em nos. */
+	private final int orcamento;
+	/** Jogadas examinadas em cada no. */
+	private final int largura;
+
+	/** Construtor default. */
+	public VelhaBuscaMNK() {
+		this(PROFUNDIDADE_PADRAO, ORCAMENTO_PADRAO, LARGURA_PADRAO);
+	}
+
+	/**
+	 * Construtor.
+	 * @param profundidade Profundidade maxima da busca, em jogadas
+	 * @param orcamento Orcamento da busca, em nos visitados
+	 * @param largura Jogadas examinadas em cada no
+	 */
+	public VelhaBuscaMNK(int profundidade, int orcamento, int largura) {
+		this.profundidade = Math.max(1, profundidade);
+		this.orcamento    = Math.max(1, orcamento);
+		this.largura      = Math.max(1, largura);
+	}
+
+	/* implementado de VelhaEstrategiaMNK */
+	@Override
+	public int getJogada(char[] tabuleiro, int tamanho, int sequencia,
+						 char jogador, int nivel, Random random) {
+
+		Busca busca = new Busca(tabuleiro, tamanho, sequencia);
+		char oponente = VelhaEngine.getOponente(jogador);
+
+		int candidatos[] = busca.gerarCandidatos(jogador, tabuleiro.length);
+		if (candidatos.length == 0) return -1;
+
+		/* vitoria imediata */
+		int jogada = busca.getJogadaVitoria(candidatos, jogador);
+		if (jogada >= 0) return jogada;
+
+		/* defesa, conforme o nivel */
+		if (random.nextInt(10) >= (10 - nivel)) {
+			jogada = busca.getJogadaVitoria(candidatos, oponente);
+			if (jogada >= 0) return jogada;
+		} else {
+			/* jogada qualquer perto das marcas */
+			return candidatos[random.nextInt(candidatos.length)];
+		}
+
+		/* aprofundamento iterativo, ate' esgotar profundidade ou orcamento */
+		int melhor = candidatos[0];
+		for (int d = 1; d <= profundidade; d++) {
+			int resultado = busca.buscarRaiz(d, jogador);
+			if (busca.esgotado && d > 1) break;
+			melhor = resultado;
+		}
+		return melhor;
+	}
+
+	/**
+	 * Estado de uma busca (um por chamada, para que a estrategia possa ser
+	 * usada por varias threads).
+	 */
+	private class Busca {
+
+		/** Tabuleiro de trabalho. */
+		private final char[] tabuleiro;
+		/** Tamanho do lado do tabuleiro. */
+		private final int tamanho;
+		/** Quantidade de marcas em linha para ganhar. */
+		private final int sequencia;
+
+		/** Quantidade de posicoes marcadas. */
+		private int jogadas = 0;
+		/** Nos visitados. */
+		private int nos = 0;
+		/** Indica se o orcamento acabou durante a iteracao corrente. */
+		private boolean esgotado = false;
+
+		/**
+		 * Construtor.
+		 * @param tabuleiro Tabuleiro de trabalho
+		 * @param tamanho Tamanho do lado do tabuleiro
+		 * @param sequencia Quantidade de marcas em linha para ganhar
+		 */
+		Busca(char[] tabuleiro, int tamanho, int sequencia) {
+			this.tabuleiro = tabuleiro;
+			this.tamanho   = tamanho;
+			this.sequencia = sequencia;
+			for (char c : tabuleiro) {
+				if (c != VelhaEngine.JOGADOR_VAZIO) jogadas++;
+			}
+		}
+
+		/**
+		 * Busca a melhor jogada com uma profundidade.
+		 * @param profundidade Profundidade, em jogadas
+		 * @param jogador Jogador da vez
+		 * @return Melhor jogada encontrada.
+		 */
+		int buscarRaiz(int profundidade, char jogador) {
+			esgotado = false;
+			int candidatos[] = gerarCandidatos(jogador, largura);
+			int melhor = candidatos[0];
+			int alfa = -VITORIA * 2;
+			for (int i = 0; i < candidatos.length; i++) {
+				int pos = candidatos[i];
+				tabuleiro[pos] = jogador;
+				jogadas++;
+				int valor = -negamax(profundidade - 1,
+						VelhaEngine.getOponente(jogador),
+						-VITORIA * 2, -alfa, pos);
+				tabuleiro[pos] = VelhaEngine.JOGADOR_VAZIO;
+				jogadas--;
+				if (valor > alfa) {
+					alfa = valor;
+					melhor = pos;
+				}
+			}
+			return melhor;
+		}
+
+		/**
+		 * Avalia uma posicao para o jogador da vez.
+		 * @param profundidade Profundidade restante
+		 * @param jogador Jogador da vez
+		 * @param alfa Limite inferior da janela de busca
+		 * @param beta Limite superior da janela de busca
+		 * @param ultima Posicao da ultima jogada (do oponente)
+		 * @return Valor da posicao para o jogador da vez.
+		 */
+		private int negamax(int profundidade, char jogador, int alfa,
+							int beta, int ultima) {
+			nos++;
+			if (VelhaEngineMNK.isVitoria(tabuleiro, tamanho, sequencia, ultima)) {
+				/* o oponente ganhou: quanto mais cedo, pior */
+				return -(VITORIA + profundidade);
+			}
+			if (jogadas == tabuleiro.length) return 0;
+			if (nos >= orcamento) esgotado = true;
+			if (profundidade == 0 || esgotado) return avaliar(jogador);
+
+			int candidatos[] = gerarCandidatos(jogador, largura);
+			int melhorValor = -VITORIA * 2;
+			for (int i = 0; i < candidatos.length; i++) {
+				int pos = candidatos[i];
+				tabuleiro[pos] = jogador;
+				jogadas++;
+				int valor = -negamax(profundidade - 1,
+						VelhaEngine.getOponente(jogador), -beta, -alfa, pos);
+				tabuleiro[pos] = VelhaEngine.JOGADOR_VAZIO;
+				jogadas--;
+				if (valor > melhorValor) melhorValor = valor;
+				if (valor > alfa) alfa = valor;
+				if (alfa >= beta) break;
+			}
+			return melhorValor;
+		}
+
+		/**
+		 * Retorna uma jogada que fecha uma linha para o jogador.
+		 * @param candidatos Jogadas a verificar
+		 * @param jogador Jogador
+		 * @return Posicao da jogada, ou -1 se nao ha'.
+		 */
+		int getJogadaVitoria(int[] candidatos, char jogador) {
+			for (int i = 0; i < candidatos.length; i++) {
+				int pos = candidatos[i];
+				tabuleiro[pos] = jogador;
+				boolean vitoria =
+					VelhaEngineMNK.isVitoria(tabuleiro, tamanho, sequencia, pos);
+				tabuleiro[pos] = VelhaEngine.JOGADOR_VAZIO;
+				if (vitoria) return pos;
+			}
+			return -1;
+		}
+
+		/**
+		 * Gera as jogadas candidatas (posicoes vazias vizinhas a alguma
+		 *   marca, ou o centro se o tabuleiro esta' vazio), ordenadas da
+		 *   mais para a menos promissora.
+		 * @param jogador Jogador da vez
+		 * @param maximo Quantidade maxima de jogadas retornadas
+		 * @return Vetor com as jogadas.
+		 */
+		int[] gerarCandidatos(char jogador, int maximo) {
+			if (jogadas == 0) {
+				return new int[]{ (tamanho / 2) * tamanho + tamanho / 2 };
+			}
+
+			int posicoes[] = new int[maximo];
+			int valores[]  = new int[maximo];
+			int total = 0;
+
+			for (int pos = 0; pos < tabuleiro.length; pos++) {
+				if (tabuleiro[pos] != VelhaEngine.JOGADOR_VAZIO ||
+					!isVizinha(pos)) continue;
+
+				/* insere em ordem decrescente de valor */
+				int valor = pontuar(pos, jogador);
+				if (total == maximo && valor <= valores[total - 1]) continue;
+				int i = (total < maximo) ? total++ : total - 1;
+				while (i > 0 && valores[i - 1] < valor) {
+					posicoes[i] = posicoes[i - 1];
+					valores[i]  = valores[i - 1];
+					i--;
+				}
+				posicoes[i] = pos;
+				valores[i]  = valor;
+			}
+
+			if (total == maximo) return posicoes;
+			int retorno[] = new int[total];
+			System.arraycopy(posicoes, 0, retorno, 0, total);
+			return retorno;
+		}
+
+		/**
+		 * Verifica se uma posicao tem alguma marca ao redor.
+		 * @param pos Posicao
+		 * @return True se ha' marca vizinha, false se nao.
+		 */
+		private boolean isVizinha(int pos) {
+			int lin = pos / tamanho;
+			int col = pos % tamanho;
+			for (int l = Math.max(0, lin - 1); l <= Math.min(tamanho - 1, lin + 1); l++) {
+				for (int c = Math.max(0, col - 1); c <= Math.min(tamanho - 1, col + 1); c++) {
+					if (tabuleiro[l * tamanho + c] != VelhaEngine.JOGADOR_VAZIO) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Pontua uma jogada pelas janelas que passam pela posicao: ataque
+		 *   (janelas so' do jogador) e defesa (janelas so' do oponente).
+		 * @param pos Posicao vazia
+		 * @param jogador Jogador da vez
+		 * @return Pontuacao da jogada.
+		 */
+		private int pontuar(int pos, char jogador) {
+			char oponente = VelhaEngine.getOponente(jogador);
+			int lin = pos / tamanho;
+			int col = pos % tamanho;
+			int pontos = 0;
+			for (int d = 0; d < DIRECOES.length; d++) {
+				int dLin = DIRECOES[d][0];
+				int dCol = DIRECOES[d][1];
+				/* janelas que comecam ate' (sequencia - 1) posicoes antes */
+				for (int inicio = -(sequencia - 1); inicio <= 0; inicio++) {
+					int l0 = lin + dLin * inicio;
+					int c0 = col + dCol * inicio;
+					int l1 = l0 + dLin * (sequencia - 1);
+					int c1 = c0 + dCol * (sequencia - 1);
+					if (!isDentro(l0, c0) || !isDentro(l1, c1)) continue;
+					int meus = 0, deles = 0;
+					for (int i = 0; i < sequencia; i++) {
+						char c = tabuleiro[(l0 + dLin * i) * tamanho + (c0 + dCol * i)];
+						if (c == jogador) meus++;
+						else if (c == oponente) deles++;
+					}
+					if (deles == 0) pontos += PESOS[Math.min(meus + 1, PESOS.length - 1)];
+					if (meus == 0) pontos += PESOS[Math.min(deles, PESOS.length - 1)];
+				}
+			}
+			return pontos;
+		}
+
+		/**
+		 * Avalia o tabuleiro inteiro para um jogador, somando as janelas
+		 *   de cada jogador.
+		 * @param jogador Jogador da vez
+		 * @return Avaliacao (positiva se favoravel ao jogador).
+		 */
+		private int avaliar(char jogador) {
+			char oponente = VelhaEngine.getOponente(jogador);
+			int total = 0;
+			for (int d = 0; d < DIRECOES.length; d++) {
+				int dLin = DIRECOES[d][0];
+				int dCol = DIRECOES[d][1];
+				for (int pos = 0; pos < tabuleiro.length; pos++) {
+					int l0 = pos / tamanho;
+					int c0 = pos % tamanho;
+					if (!isDentro(l0 + dLin * (sequencia - 1),
+								  c0 + dCol * (sequencia - 1))) continue;
+					int meus = 0, deles = 0;
+					for (int i = 0; i < sequencia; i++) {
+						char c = tabuleiro[(l0 + dLin * i) * tamanho + (c0 + dCol * i)];
+						if (c == jogador) meus++;
+						else if (c == oponente) deles++;
+					}
+					if (deles == 0) total += PESOS[Math.min(meus, PESOS.length - 1)];
+					if (meus == 0) total -= PESOS[Math.min(deles, PESOS.length - 1)];
+				}
+			}
+			return total;
+		}
+
+		/**
+		 * Verifica se uma coordenada esta' dentro do tabuleiro.
+		 * @param lin Linha
+		 * @param col Coluna
+		 * @return True se esta' dentro, false se nao.
+		 */
+		private boolean isDentro(int lin, int col) {
+			return lin >= 0 && lin < tamanho && col >= 0 && col < tamanho;
+		}
+	}
+}
@@ -0,0 +1,266 @@
+package br.com.fiap.velha;
+
+import java.util.Arrays;
+
+/**
+ * Classe que implementa um cache limitado de mensagens ja' decodificadas,
+ * com a propria mensagem (os bytes) como chave. O robot recebe muitas
+ * mensagens identicas (o mesmo "aguarde" ou fim de partida para um
+ * tabuleiro, as mesmas aberturas em varias sessoes); num acerto, a
+ * mensagem nao e' decodificada nem validada de novo.
+ * As entradas sao imutaveis e copiadas para o bean de quem consulta. Quando
+ * o cache esta' cheio, a entrada a substituir e' escolhida pelo algoritmo
+ * CLOCK (segunda chance): um ponteiro circula pelas entradas, poupando uma
+ * vez as que foram usadas desde a ultima passagem.
+ * E' thread-safe: pode ser compartilhado por varias sessoes.
+ */
+public class VelhaCache {
+
+	/** Indica ausencia de entrada (fim de lista ou lista vazia). */
+	private static final int NENHUMA = -1;
+
+	/** Entradas, por slot. */
+	private final Entrada entradas[];
+	/** Bit de referencia (segunda chance) de cada slot. */
+	private final boolean referenciadas[];
+	/** Primeiro slot de cada balde do indice. */
+	private final int baldes[];
+	/** Proximo slot do mesmo balde, por slot. */
+	private final int proximos[];
+	/** Mascara de enderecamento dos baldes (quantidade - 1). */
+	private final int mascara;
+
+	/** Quantidade de slots ocupados. */
+	private int tamanho  = 0;
+	/** Ponteiro do CLOCK. */
+	private int ponteiro = 0;
+
+	/** Quantidade de mensagens encontradas no cache. */
+	private long acertos = 0;
+	/** Quantidade de mensagens nao encontradas no cache. */
+	private long falhas  = 0;
+
+	/**
+	 * Construtor.
+	 * @param capacidade Quantidade maxima de mensagens guardadas
+	 */
+	public VelhaCache(int capacidade) {
+		if (capacidade < 1) {
+			throw new IllegalArgumentException("capacidade < 1: " + capacidade);
+		}
+		int potencia = Integer.highestOneBit(Math.max(capacidade, 8) - 1) << 1;
+		entradas      = new Entrada[capacidade];
+		referenciadas = new boolean[capacidade];
+		proximos      = new int[capacidade];
+		baldes        = new int[potencia];
+		mascara       = potencia - 1;
+		Arrays.fill(baldes, NENHUMA);
+	}
+
+	/**
+	 * Consulta uma mensagem no cache.
+	 * @param dados Vetor com os bytes da mensagem
+	 * @param inicio Indice do primeiro byte da mensagem
+	 * @param fim Indice seguinte ao ultimo byte da mensagem
+	 * @param velhaBean Bean que recebe a mensagem decodificada; so' e'
+	 *   alterado se a mensagem estiver no cache
+	 * @return True se a mensagem estava no cache, false se nao.
+	 */
+	public boolean get(byte[] dados, int inicio, int fim, VelhaBean velhaBean) {
+		int hash = getHash(dados, inicio, fim);
+		Entrada entrada;
+		synchronized (this) {
+			int slot = procurar(hash, dados, inicio, fim);
+			if (slot == NENHUMA) {
+				falhas++;
+				return false;
+			}
+			referenciadas[slot] = true;
+			acertos++;
+			entrada = entradas[slot];
+		}
+		entrada.copiar(velhaBean);
+		return true;
+	}
+
+	/**
+	 * Guarda uma mensagem decodificada no cache, substituindo outra se o
+	 *   cache estiver cheio.
+	 * @param dados Vetor com os bytes da mensagem
+	 * @param inicio Indice do primeiro byte da mensagem
+	 * @param fim Indice seguinte ao ultimo byte da mensagem
+	 * @param velhaBean Mensagem decodificada (e' copiada)
+	 */
+	public void put(byte[] dados, int inicio, int fim, VelhaBean velhaBean) {
+		int hash = getHash(dados, inicio, fim);
+		Entrada entrada = new Entrada(hash,
+				Arrays.copyOfRange(dados, inicio, fim), velhaBean);
+		synchronized (this) {
+			if (procurar(hash, dados, inicio, fim) != NENHUMA) return;
+
+			/* escolhe o slot: livre ou a vitima do CLOCK */
+			int slot;
+			if (tamanho < entradas.length) {
+				slot = tamanho++;
+			} else {
+				while (referenciadas[ponteiro]) {
+					referenciadas[ponteiro] = false;
+					ponteiro = (ponteiro + 1) % entradas.length;
+				}
+				slot = ponteiro;
+				ponteiro = (ponteiro + 1) % entradas.length;
+				remover(slot);
+			}
+
+			/* coloca a entrada no slot e no indice */
+			int balde = hash & mascara;
+			entradas[slot]      = entrada;
+			referenciadas[slot] = false;
+			proximos[slot]      = baldes[balde];
+			baldes[balde]       = slot;
+		}
+	}
+
+	/** Esvazia o cache (os contadores sao mantidos). */
+	public synchronized void limpar() {
+		Arrays.fill(entradas, null);
+		Arrays.fill(referenciadas, false);
+		Arrays.fill(baldes, NENHUMA);
+		tamanho  = 0;
+		ponteiro = 0;
+	}
+
+	/**
+	 * Retorna a quantidade de mensagens guardadas.
+	 * @return Quantidade de mensagens.
+	 */
+	public synchronized int getTamanho() {
+		return tamanho;
+	}
+
+	/**
+	 * Retorna a quantidade de mensagens encontradas no cache.
+	 * @return Quantidade de acertos.
+	 */
+	public synchronized long getAcertos() {
+		return acertos;
+	}
+
+	/**
+	 * Retorna a quantidade de mensagens nao encontradas no cache.
+	 * @return Quantidade de falhas.
+	 */
+	public synchronized long getFalhas() {
+		return falhas;
+	}
+
+	/**
+	 * Procura uma mensagem no indice.
+	 * @param hash Hash da mensagem
+	 * @param dados Vetor com os bytes da mensagem
+	 * @param inicio Indice do primeiro byte da mensagem
+	 * @param fim Indice seguinte ao ultimo byte da mensagem
+	 * @return Slot da mensagem, ou NENHUMA se nao estiver no cache.
+	 */
+	private int procurar(int hash, byte[] dados, int inicio, int fim) {
+		for (int slot = baldes[hash & mascara]; slot != NENHUMA;
+			 slot = proximos[slot]) {
+			if (entradas[slot].isMensagem(hash, dados, inicio, fim)) return slot;
+		}
+		return NENHUMA;
+	}
+
+	/**
+	 * Retira um slot ocupado do indice.
+	 * @param slot Slot
+	 */
+	private void remover(int slot) {
+		int balde = entradas[slot].hash & mascara;
+		if (baldes[balde] == slot) {
+			baldes[balde] = proximos[slot];
+			return;
+		}
+		for (int s = baldes[balde]; s != NENHUMA; s = proximos[s]) {
+			if (proximos[s] == slot) {
+				proximos[s] = proximos[slot];
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Calcula o hash (FNV-1a) de uma mensagem.
+	 * @param dados Vetor com os bytes da mensagem
+	 * @param inicio Indice do primeiro byte da mensagem
+	 * @param fim Indice seguinte ao ultimo byte da mensagem
+	 * @return Hash da mensagem.
+	 */
+	private static int getHash(byte[] dados, int inicio, int fim) {
+		int hash = 0x811C9DC5;
+		for (int i = inicio; i < fim; i++) {
+			hash = (hash ^ (dados[i] & 0xFF)) * 0x01000193;
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	/** Entrada (imutavel) do cache: a mensagem e o resultado decodificado. */
+	private static class Entrada {
+
+		/** Hash da mensagem. */
+		final int hash;
+		/** Bytes da mensagem. */
+		final byte[] mensagem;
+		/** Id do jogador. */
+		final char id;
+		/** Status do jogo. */
+		final VelhaStatus status;
+		/** Posicao da jogada. */
+		final int jogada;
+		/** Estado do tabuleiro. */
+		final char[] tabuleiro;
+
+		/**
+		 * Construtor.
+		 * @param hash Hash da mensagem
+		 * @param mensagem Bytes da mensagem (copia)
+		 * @param velhaBean Mensagem decodificada (e' copiada)
+		 */
+		Entrada(int hash, byte[] mensagem, VelhaBean velhaBean) {
+			this.hash      = hash;
+			this.mensagem  = mensagem;
+			this.id        = velhaBean.getId();
+			this.status    = velhaBean.getStatus();
+			this.jogada    = velhaBean.getJogada();
+			this.tabuleiro = velhaBean.getTabuleiro().clone();
+		}
+
+		/**
+		 * Verifica se a entrada e' de uma mensagem.
+		 * @param hash Hash da mensagem
+		 * @param dados Vetor com os bytes da mensagem
+		 * @param inicio Indice do primeiro byte da mensagem
+		 * @param fim Indice seguinte ao ultimo byte da mensagem
+		 * @return True se os bytes sao iguais, false se nao.
+		 */
+		boolean isMensagem(int hash, byte[] dados, int inicio, int fim) {
+			if (this.hash != hash || mensagem.length != fim - inicio) {
+				return false;
+			}
+			for (int i = 0; i < mensagem.length; i++) {
+				if (mensagem[i] != dados[inicio + i]) return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Copia o resultado para um bean.
+		 * @param velhaBean Bean de destino
+		 */
+		void copiar(VelhaBean velhaBean) {
+			velhaBean.setId(id);
+			velhaBean.setStatus(status);
+			velhaBean.setJogada(jogada);
+			velhaBean.copiarTabuleiro(tabuleiro);
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package br.com.fiap.velha;
+
+import java.nio.charset.Charset;
+
+/**
+ * Classe que implementa um codificador das mensagens JogoDaVelha por
+ * "template": os fragmentos fixos (tags) ja' estao codificados em UTF-8 e
+ * so' os valores variaveis sao escritos, num buffer reutilizavel, sem DOM
+ * nem Transformer.
+ * A saida e' identica 'a do @ref VelhaParser (forma canonica, a mesma
+ * aceita pelo @ref VelhaDecodificador). Os valores do bean sao conferidos
+ * antes de escrever, de forma que o XML gerado e' sempre valido para o
+ * schema, sem necessidade de validacao.
+ * Nao e' thread-safe: use uma instancia por thread (ou por sessao).
+ */
+public class VelhaCodificador {
+
+	/** Charset das mensagens. */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** Tamanho inicial do buffer, em bytes (suficiente para o 3x3). */
+	private static final int TAMANHO_INICIAL = 256;
+
+	/* fragmentos fixos da mensagem, ja' codificados */
+	private static final byte[] INICIO    = bytes(
+		"<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>" +
+		"<JogoDaVelha><id>");
+	private static final byte[] ID_FIM        = bytes("</id><status>");
+	private static final byte[] STATUS_FIM    = bytes("</status>");
+	private static final byte[] JOGADA_VAZIA  = bytes("<jogada/>");
+	private static final byte[] JOGADA_INICIO = bytes("<jogada>");
+	private static final byte[] JOGADA_FIM    = bytes("</jogada>");
+	private static final byte[] TABULEIRO     = bytes("<tabuleiro>");
+	private static final byte[] FIM           = bytes("</tabuleiro></JogoDaVelha>");
+
+	/* tags das posicoes do tabuleiro 3x3: <pN/>, <pN> e </pN> */
+	private static final byte[][] POS_VAZIA  = new byte[9][];
+	private static final byte[][] POS_INICIO = new byte[9][];
+	private static final byte[][] POS_FIM    = new byte[9][];
+
+	static {
+		for (int pos = 0; pos < 9; pos++) {
+			POS_VAZIA[pos]  = bytes("<p" + pos + "/>");
+			POS_INICIO[pos] = bytes("<p" + pos + ">");
+			POS_FIM[pos]    = bytes("</p" + pos + ">");
+		}
+	}
+
+	/** Buffer reutilizavel. */
+	private byte[] buffer = new byte[TAMANHO_INICIAL];
+
+	/**
+	 * Codifica um bean no buffer interno.
+	 * @param velhaBean Objeto da classe @ref VelhaBean
+	 * @return Quantidade de bytes escritos no inicio do buffer (ver
+	 *   @ref getBuffer), ou -1 se o bean tem algum valor invalido.
+	 */
+	public int codificar(VelhaBean velhaBean) {
+		int tamanho = getTamanhoMaximo(velhaBean.getTabuleiro().length);
+		if (buffer.length < tamanho) buffer = new byte[tamanho];
+		return codificar(velhaBean, buffer, 0);
+	}
+
+	/**
+	 * Retorna o buffer interno, com a ultima mensagem codificada.
+	 * @return Vetor de bytes (reutilizado a cada chamada de
+	 *   @ref codificar(VelhaBean)).
+	 */
+	public byte[] getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * Codifica um bean e retorna a mensagem como String.
+	 * @param velhaBean Objeto da classe @ref VelhaBean
+	 * @return String com o XML, ou null se o bean tem algum valor invalido.
+	 */
+	public String codificarString(VelhaBean velhaBean) {
+		int tamanho = codificar(velhaBean);
+		return (tamanho < 0) ? null : new String(buffer, 0, tamanho, UTF8);
+	}
+
+	/**
+	 * Retorna o tamanho maximo de uma mensagem, para dimensionar um buffer.
+	 * @param posicoes Quantidade de posicoes do tabuleiro
+	 * @return Tamanho maximo, em bytes.
+	 */
+	public static int getTamanhoMaximo(int posicoes) {
+		/* tags fixas + status mais longo + jogada + "<pNNNN>X</pNNNN>" */
+		return INICIO.length + ID_FIM.length + STATUS_FIM.length + 8 +
+			   JOGADA_INICIO.length + JOGADA_FIM.length + 10 +
+			   TABULEIRO.length + FIM.length + posicoes * 26;
+	}
+
+	/**
+	 * Codifica um bean num vetor de bytes.
+	 * @param velhaBean Objeto da classe @ref VelhaBean
+	 * @param destino Vetor de destino, com pelo menos
+	 *   @ref getTamanhoMaximo bytes a partir de inicio
+	 * @param inicio Indice do primeiro byte a escrever
+	 * @return Indice seguinte ao ultimo byte escrito, ou -1 se o bean tem
+	 *   algum valor invalido.
+	 */
+	public static int codificar(VelhaBean velhaBean, byte[] destino,
+								int inicio) {
+		char tabuleiro[] = velhaBean.getTabuleiro();
+		int posicoes = tabuleiro.length;
+
+		/* confere os valores antes de escrever */
+		char id = velhaBean.getId();
+		if (id != VelhaEngine.JOGADOR_X && id != VelhaEngine.JOGADOR_O) {
+			return -1;
+		}
+		VelhaStatus status = velhaBean.getStatus();
+		if (status == null) return -1;
+		int jogada = velhaBean.getJogada();
+		if (jogada >= posicoes) return -1;
+		int tamanho = (int) Math.round(Math.sqrt(posicoes));
+		if (posicoes < 9 || tamanho * tamanho != posicoes) return -1;
+		for (int pos = 0; pos < posicoes; pos++) {
+			char jogador = tabuleiro[pos];
+			if (jogador != VelhaEngine.JOGADOR_X &&
+				jogador != VelhaEngine.JOGADOR_O &&
+				jogador != VelhaEngine.JOGADOR_VAZIO) return -1;
+		}
+
+		/* escreve o template com os valores */
+		int i = escrever(destino, inicio, INICIO);
+		destino[i++] = (byte) id;
+		i = escrever(destino, i, ID_FIM);
+		i = status.escrever(destino, i);
+		i = escrever(destino, i, STATUS_FIM);
+		if (jogada < 0) {
+			i = escrever(destino, i, JOGADA_VAZIA);
+		} else {
+			i = escrever(destino, i, JOGADA_INICIO);
+			i = escreverNumero(destino, i, jogada);
+			i = escrever(destino, i, JOGADA_FIM);
+		}
+		i = escrever(destino, i, TABULEIRO);
+		for (int pos = 0; pos < posicoes; pos++) {
+			char jogador = tabuleiro[pos];
+			if (pos < 9) {
+				if (jogador == VelhaEngine.JOGADOR_VAZIO) {
+					i = escrever(destino, i, POS_VAZIA[pos]);
+				} else {
+					i = escrever(destino, i, POS_INICIO[pos]);
+					destino[i++] = (byte) jogador;
+					i = escrever(destino, i, POS_FIM[pos]);
+				}
+			} else {
+				/* posicoes alem do 3x3: tags montadas na hora */
+				destino[i++] = '<';
+				destino[i++] = 'p';
+				i = escreverNumero(destino, i, pos);
+				if (jogador == VelhaEngine.JOGADOR_VAZIO) {
+					destino[i++] = '/';
+					destino[i++] = '>';
+				} else {
+					destino[i++] = '>';
+					destino[i++] = (byte) jogador;
+					destino[i++] = '<';
+					destino[i++] = '/';
+					destino[i++] = 'p';
+					i = escreverNumero(destino, i, pos);
+					destino[i++] = '>';
+				}
+			}
+		}
+		return escrever(destino, i, FIM);
+	}
+
+	/**
+	 * Escreve um fragmento fixo.
+	 * @param destino Vetor de destino
+	 * @param i Indice do primeiro byte a escrever
+	 * @param fragmento Fragmento
+	 * @return Indice seguinte ao ultimo byte escrito.
+	 */
+	private static int escrever(byte[] destino, int i, byte[] fragmento) {
+		System.arraycopy(fragmento, 0, destino, i, fragmento.length);
+		return i + fragmento.length;
+	}
+
+	/**
+	 * Escreve um numero nao negativo em decimal.
+	 * @param destino Vetor de destino
+	 * @param i Indice do primeiro byte a escrever
+	 * @param numero Numero
+	 * @return Indice seguinte ao ultimo byte escrito.
+	 */
+	private static int escreverNumero(byte[] destino, int i, int numero) {
+		int digitos = 1;
+		for (int n = numero; n >= 10; n /= 10) digitos++;
+		for (int d = digitos - 1; d >= 0; d--) {
+			destino[i + d] = (byte) ('0' + numero % 10);
+			numero /= 10;
+		}
+		return i + digitos;
+	}
+
+	/**
+	 * Codifica um fragmento fixo em UTF-8.
+	 * @param texto Fragmento
+	 * @return Bytes do fragmento.
+	 */
+	private static byte[] bytes(String texto) {
+		return texto.getBytes(UTF8);
+	}
+}
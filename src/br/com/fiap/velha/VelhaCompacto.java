@@ -0,0 +1,227 @@
+package br.com.fiap.velha;
+
+/**
+ * Classe utilitaria com a representacao compacta de uma mensagem
+ * JogoDaVelha do tabuleiro 3x3: todo o estado do @ref VelhaBean cabe num
+ * unico long, que pode ser guardado em vetores e filas de primitivos ou
+ * passado entre threads sem alocar objetos:
+ * - bits 0..17: tabuleiro em formato @ref VelhaBitboard;
+ * - bits 18..21: jogada + 1 (0 = nenhuma);
+ * - bits 22..24: codigo do status (ver @ref VelhaStatus#getCodigo);
+ * - bit 25: id do jogador (0 = X, 1 = O);
+ * - bits 26..63: reservados (0).
+ * Os 26 bits usados sao os mesmos do codec binario das mensagens.
+ */
+public final class VelhaCompacto {
+
+	/** Valor que nao representa nenhuma mensagem (nem pode ser compactado). */
+	public static final long NENHUM = -1L;
+
+	/* posicao e mascara de cada campo */
+	private static final int SHIFT_JOGADA = 18;
+	private static final int SHIFT_STATUS = 22;
+	private static final int SHIFT_ID     = 25;
+	private static final long MASCARA_TABULEIRO = (1L << 18) - 1;
+	private static final long MASCARA_JOGADA    = 0xFL;
+	private static final long MASCARA_STATUS    = 0x7L;
+	private static final long RESERVADO         = ~((1L << 26) - 1);
+
+	/* classe utilitaria, nao deve ser instanciada */
+	private VelhaCompacto() { }
+
+	/**
+	 * Compacta os campos de uma mensagem.
+	 * @param id Id do jogador ('X'|'O')
+	 * @param status Status do jogo
+	 * @param jogada Posicao da jogada (0 a 8) ou -1 para nenhuma
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @return Mensagem compactada, ou @ref NENHUM se algum campo e' invalido.
+	 */
+	public static long compactar(char id, VelhaStatus status, int jogada,
+								 int tabuleiro) {
+		long bitId;
+		switch (id) {
+			case VelhaEngine.JOGADOR_X: bitId = 0; break;
+			case VelhaEngine.JOGADOR_O: bitId = 1; break;
+			default                   : return NENHUM;
+		}
+		if (status == null || jogada < -1 || jogada >= 9 ||
+			(tabuleiro & ~MASCARA_TABULEIRO) != 0 ||
+			(VelhaBitboard.getMascara(tabuleiro, VelhaEngine.JOGADOR_X) &
+			 VelhaBitboard.getMascara(tabuleiro, VelhaEngine.JOGADOR_O)) != 0) {
+			return NENHUM;
+		}
+		return (bitId << SHIFT_ID) |
+			   ((long) status.getCodigo() << SHIFT_STATUS) |
+			   ((long) (jogada + 1) << SHIFT_JOGADA) |
+			   tabuleiro;
+	}
+
+	/**
+	 * Verifica se um long representa uma mensagem valida.
+	 * @param compacto Mensagem compactada
+	 * @return True se os bits reservados estao zerados e os campos sao
+	 *   validos, false se nao.
+	 */
+	public static boolean isValido(long compacto) {
+		if ((compacto & RESERVADO) != 0) return false;
+		int tabuleiro = getTabuleiro(compacto);
+		return VelhaStatus.getStatus(getCodigoStatus(compacto)) != null &&
+			   getJogada(compacto) < 9 &&
+			   (VelhaBitboard.getMascara(tabuleiro, VelhaEngine.JOGADOR_X) &
+				VelhaBitboard.getMascara(tabuleiro, VelhaEngine.JOGADOR_O)) == 0;
+	}
+
+	/**
+	 * Retorna o Id do jogador.
+	 * @param compacto Mensagem compactada
+	 * @return Id do jogador.
+	 */
+	public static char getId(long compacto) {
+		return ((compacto >>> SHIFT_ID) & 1) == 0
+				? VelhaEngine.JOGADOR_X : VelhaEngine.JOGADOR_O;
+	}
+
+	/**
+	 * Retorna o Status do jogo.
+	 * @param compacto Mensagem compactada
+	 * @return Status do jogo, ou null se o codigo e' invalido.
+	 */
+	public static VelhaStatus getStatus(long compacto) {
+		return VelhaStatus.getStatus(getCodigoStatus(compacto));
+	}
+
+	/**
+	 * Retorna a posicao da jogada.
+	 * @param compacto Mensagem compactada
+	 * @return Posicao da jogada, ou -1 se nao houver.
+	 */
+	public static int getJogada(long compacto) {
+		return (int) ((compacto >>> SHIFT_JOGADA) & MASCARA_JOGADA) - 1;
+	}
+
+	/**
+	 * Retorna o tabuleiro.
+	 * @param compacto Mensagem compactada
+	 * @return Tabuleiro em formato bitboard.
+	 */
+	public static int getTabuleiro(long compacto) {
+		return (int) (compacto & MASCARA_TABULEIRO);
+	}
+
+	/**
+	 * Retorna uma posicao no tabuleiro.
+	 * @param compacto Mensagem compactada
+	 * @param pos Posicao (de 0 a 8)
+	 * @return Jogador marcado na posicao ou JOGADOR_VAZIO se nao houver.
+	 */
+	public static char getPosicao(long compacto, int pos) {
+		return VelhaBitboard.getPosicao(getTabuleiro(compacto), pos);
+	}
+
+	/**
+	 * Altera o Status do jogo.
+	 * @param compacto Mensagem compactada
+	 * @param status Status do jogo
+	 * @return Mensagem compactada com o novo status.
+	 */
+	public static long setStatus(long compacto, VelhaStatus status) {
+		return (compacto & ~(MASCARA_STATUS << SHIFT_STATUS)) |
+			   ((long) status.getCodigo() << SHIFT_STATUS);
+	}
+
+	/**
+	 * Altera a posicao da jogada.
+	 * @param compacto Mensagem compactada
+	 * @param jogada Posicao da jogada (0 a 8) ou -1 para nenhuma
+	 * @return Mensagem compactada com a nova jogada.
+	 * @throws IllegalArgumentException se a jogada esta' fora do tabuleiro
+	 */
+	public static long setJogada(long compacto, int jogada) {
+		if (jogada < -1 || jogada >= 9) {
+			throw new IllegalArgumentException("Jogada invalida: " + jogada);
+		}
+		return (compacto & ~(MASCARA_JOGADA << SHIFT_JOGADA)) |
+			   ((long) (jogada + 1) << SHIFT_JOGADA);
+	}
+
+	/**
+	 * Altera o tabuleiro.
+	 * @param compacto Mensagem compactada
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @return Mensagem compactada com o novo tabuleiro.
+	 * @throws IllegalArgumentException se o tabuleiro tem bits fora das 18
+	 *   posicoes ou uma posicao marcada pelos dois jogadores
+	 */
+	public static long setTabuleiro(long compacto, int tabuleiro) {
+		if ((tabuleiro & ~MASCARA_TABULEIRO) != 0 ||
+			(VelhaBitboard.getMascara(tabuleiro, VelhaEngine.JOGADOR_X) &
+			 VelhaBitboard.getMascara(tabuleiro, VelhaEngine.JOGADOR_O)) != 0) {
+			throw new IllegalArgumentException(
+					"Tabuleiro invalido: " + Integer.toHexString(tabuleiro));
+		}
+		return (compacto & ~MASCARA_TABULEIRO) | tabuleiro;
+	}
+
+	/**
+	 * Compacta um @ref VelhaBean.
+	 * @param velhaBean Objeto da classe @ref VelhaBean
+	 * @return Mensagem compactada, ou @ref NENHUM se o tabuleiro nao e' 3x3
+	 *   ou algum valor e' invalido.
+	 */
+	public static long fromBean(VelhaBean velhaBean) {
+		char tabuleiro[] = velhaBean.getTabuleiro();
+		if (tabuleiro.length != 9) return NENHUM;
+		int bitboard = VelhaBitboard.VAZIO;
+		for (int pos = 0; pos < 9; pos++) {
+			char jogador = tabuleiro[pos];
+			if (jogador != VelhaEngine.JOGADOR_X &&
+				jogador != VelhaEngine.JOGADOR_O &&
+				jogador != VelhaEngine.JOGADOR_VAZIO) return NENHUM;
+			bitboard = VelhaBitboard.setPosicao(bitboard, pos, jogador);
+		}
+		return compactar(velhaBean.getId(), velhaBean.getStatus(),
+						 Math.max(-1, velhaBean.getJogada()), bitboard);
+	}
+
+	/**
+	 * Copia uma mensagem compactada para um @ref VelhaBean (reutilizavel).
+	 *   Se o tabuleiro do bean nao for 3x3, e' redimensionado.
+	 * @param compacto Mensagem compactada (valida)
+	 * @param velhaBean Bean que recebe a mensagem
+	 */
+	public static void toBean(long compacto, VelhaBean velhaBean) {
+		int tabuleiro = getTabuleiro(compacto);
+		velhaBean.setId(getId(compacto));
+		velhaBean.setStatus(getStatus(compacto));
+		velhaBean.setJogada(getJogada(compacto));
+		if (velhaBean.getTabuleiro().length != 9) {
+			velhaBean.copiarTabuleiro(VelhaBitboard.toChars(tabuleiro));
+		} else {
+			for (int pos = 0; pos < 9; pos++) {
+				velhaBean.setPosicao(pos,
+						VelhaBitboard.getPosicao(tabuleiro, pos));
+			}
+		}
+	}
+
+	/**
+	 * Cria um @ref VelhaBean a partir de uma mensagem compactada.
+	 * @param compacto Mensagem compactada (valida)
+	 * @return Objeto da classe @ref VelhaBean.
+	 */
+	public static VelhaBean toBean(long compacto) {
+		VelhaBean velhaBean = new VelhaBean();
+		toBean(compacto, velhaBean);
+		return velhaBean;
+	}
+
+	/**
+	 * Retorna o codigo do status.
+	 * @param compacto Mensagem compactada
+	 * @return Codigo do status.
+	 */
+	private static int getCodigoStatus(long compacto) {
+		return (int) ((compacto >>> SHIFT_STATUS) & MASCARA_STATUS);
+	}
+}
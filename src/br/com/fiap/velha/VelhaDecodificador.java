@@ -0,0 +1,237 @@
+package br.com.fiap.velha;
+
+import java.nio.charset.Charset;
+
+/**
+ * Classe que implementa um decodificador especializado das mensagens
+ * JogoDaVelha do tabuleiro 3x3. Os bytes UTF-8 sao percorridos uma unica
+ * vez e copiados direto para um @ref VelhaBean reutilizavel, sem criar
+ * String, DOM ou outros objetos.
+ * So' a forma canonica da mensagem (a que o servidor e o
+ * @ref VelhaParser escrevem: sem espacos entre os elementos, sem
+ * comentarios e sem atributos) e' aceita pelo caminho rapido; qualquer
+ * outra forma e' repassada ao @ref VelhaParser, que faz a validacao
+ * completa. As regras do velha.xsd (IdType, StatusJogoType, jogada [0-8]?
+ * e JogadorType) sao verificadas nos dois caminhos.
+ * Opcionalmente, um @ref VelhaCache na frente dos dois caminhos devolve as
+ * mensagens repetidas sem decodifica-las de novo.
+ * Nao e' thread-safe: use uma instancia por thread (ou por sessao).
+ */
+public class VelhaDecodificador {
+
+	/** Charset das mensagens. */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/* fragmentos fixos da mensagem, ja' codificados */
+	private static final byte[][] XML_DECL      = {
+		bytes("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"),
+		bytes("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+	};
+	private static final byte[] INICIO          = bytes("<JogoDaVelha><id>");
+	private static final byte[] ID_FIM          = bytes("</id><status>");
+	private static final byte[] STATUS_FIM      = bytes("</status>");
+	private static final byte[] JOGADA_VAZIA    = bytes("<jogada/>");
+	private static final byte[] JOGADA_INICIO   = bytes("<jogada>");
+	private static final byte[] JOGADA_FIM      = bytes("</jogada>");
+	private static final byte[] TABULEIRO       = bytes("<tabuleiro>");
+	private static final byte[] FIM             = bytes("</tabuleiro></JogoDaVelha>");
+
+	/** Parser usado quando a mensagem nao esta' na forma canonica. */
+	private final VelhaParser velhaParser;
+	/** Cache das mensagens decodificadas (opcional). */
+	private VelhaCache velhaCache = null;
+
+	/** Construtor default. */
+	public VelhaDecodificador() {
+		this(new VelhaParser());
+	}
+
+	/**
+	 * Construtor.
+	 * @param parser Parser usado quando a mensagem nao esta' na forma
+	 *   canonica
+	 */
+	public VelhaDecodificador(VelhaParser parser) {
+		this.velhaParser = parser;
+	}
+
+	/**
+	 * Retorna o cache das mensagens decodificadas.
+	 * @return Cache, ou null se nao houver.
+	 */
+	public VelhaCache getCache() {
+		return velhaCache;
+	}
+
+	/**
+	 * Altera o cache das mensagens decodificadas.
+	 * @param cache Cache (pode ser compartilhado), ou null para nenhum
+	 */
+	public void setCache(VelhaCache cache) {
+		this.velhaCache = cache;
+	}
+
+	/**
+	 * Decodifica uma mensagem para um @ref VelhaBean. Se a mensagem nao
+	 *   estiver na forma canonica, usa o @ref VelhaParser.
+	 * @param dados Vetor com os bytes UTF-8 da mensagem
+	 * @param inicio Indice do primeiro byte da mensagem
+	 * @param fim Indice seguinte ao ultimo byte da mensagem
+	 * @param velhaBean Bean que recebe a mensagem (reutilizavel); so' e'
+	 *   alterado se a mensagem for valida
+	 * @return True se a mensagem foi decodificada, false se e' invalida.
+	 */
+	public boolean decodificar(byte[] dados, int inicio, int fim,
+							   VelhaBean velhaBean) {
+		VelhaCache cache = velhaCache;
+		if (cache != null && cache.get(dados, inicio, fim, velhaBean)) {
+			return true;
+		}
+
+		if (!decodificarCanonica(dados, inicio, fim, velhaBean)) {
+			/* forma nao canonica: validacao completa */
+			VelhaBean tempBean = velhaParser.getVelhaBean(
+					new String(dados, inicio, fim - inicio, UTF8));
+			if (tempBean == null) return false;
+			velhaBean.setId(tempBean.getId());
+			velhaBean.setStatus(tempBean.getStatus());
+			velhaBean.setJogada(tempBean.getJogada());
+			velhaBean.copiarTabuleiro(tempBean.getTabuleiro());
+		}
+		if (cache != null) cache.put(dados, inicio, fim, velhaBean);
+		return true;
+	}
+
+	/**
+	 * Decodifica uma mensagem na forma canonica, sem alocar objetos.
+	 * @param dados Vetor com os bytes UTF-8 da mensagem
+	 * @param inicio Indice do primeiro byte da mensagem
+	 * @param fim Indice seguinte ao ultimo byte da mensagem
+	 * @param velhaBean Bean que recebe a mensagem; so' e' alterado se a
+	 *   mensagem for decodificada
+	 * @return True se a mensagem foi decodificada, false se nao esta' na
+	 *   forma canonica ou e' invalida.
+	 */
+	public boolean decodificarCanonica(byte[] dados, int inicio, int fim,
+									   VelhaBean velhaBean) {
+		int i = inicio;
+
+		/* declaracao XML opcional, numa das formas usuais */
+		for (int d = 0; d < XML_DECL.length; d++) {
+			if (comparar(dados, i, fim, XML_DECL[d])) {
+				i += XML_DECL[d].length;
+				break;
+			}
+		}
+
+		/* id: X|O */
+		if (!comparar(dados, i, fim, INICIO)) return false;
+		i += INICIO.length;
+		if (i >= fim) return false;
+		char id = (char) dados[i++];
+		if (id != VelhaEngine.JOGADOR_X && id != VelhaEngine.JOGADOR_O) {
+			return false;
+		}
+		if (!comparar(dados, i, fim, ID_FIM)) return false;
+		i += ID_FIM.length;
+
+		/* status: enumeracao StatusJogoType, ate' o '<' de </status> */
+		int fimStatus = i;
+		while (fimStatus < fim && dados[fimStatus] != '<') fimStatus++;
+		VelhaStatus status = VelhaStatus.getStatus(dados, i, fimStatus);
+		if (status == null) return false;
+		i = fimStatus;
+		if (!comparar(dados, i, fim, STATUS_FIM)) return false;
+		i += STATUS_FIM.length;
+
+		/* jogada: [0-8]? */
+		int jogada = -1;
+		if (comparar(dados, i, fim, JOGADA_VAZIA)) {
+			i += JOGADA_VAZIA.length;
+		} else {
+			if (!comparar(dados, i, fim, JOGADA_INICIO)) return false;
+			i += JOGADA_INICIO.length;
+			if (i < fim && dados[i] >= '0' && dados[i] <= '8') {
+				jogada = dados[i++] - '0';
+			}
+			if (!comparar(dados, i, fim, JOGADA_FIM)) return false;
+			i += JOGADA_FIM.length;
+		}
+
+		/* tabuleiro: p0..p8, JogadorType */
+		if (!comparar(dados, i, fim, TABULEIRO)) return false;
+		i += TABULEIRO.length;
+		int tabuleiro = VelhaBitboard.VAZIO;
+		for (int pos = 0; pos < 9; pos++) {
+			/* <pN> ou <pN/> */
+			if (i + 4 > fim || dados[i] != '<' || dados[i + 1] != 'p' ||
+				dados[i + 2] != '0' + pos) return false;
+			if (dados[i + 3] == '/') {
+				if (i + 5 > fim || dados[i + 4] != '>') return false;
+				i += 5;
+				continue;
+			}
+			if (dados[i + 3] != '>') return false;
+			i += 4;
+
+			/* valor opcional e </pN> */
+			if (i < fim && dados[i] != '<') {
+				char jogador = (char) dados[i++];
+				if (jogador != VelhaEngine.JOGADOR_X &&
+					jogador != VelhaEngine.JOGADOR_O &&
+					jogador != VelhaEngine.JOGADOR_VAZIO) return false;
+				tabuleiro = VelhaBitboard.setPosicao(tabuleiro, pos, jogador);
+			}
+			if (i + 5 > fim || dados[i] != '<' || dados[i + 1] != '/' ||
+				dados[i + 2] != 'p' || dados[i + 3] != '0' + pos ||
+				dados[i + 4] != '>') return false;
+			i += 5;
+		}
+		if (!comparar(dados, i, fim, FIM)) return false;
+		i += FIM.length;
+
+		/* so' fim de linha depois da mensagem */
+		while (i < fim && (dados[i] == '\r' || dados[i] == '\n')) i++;
+		if (i != fim) return false;
+
+		/* mensagem valida: copia para o bean */
+		velhaBean.setId(id);
+		velhaBean.setStatus(status);
+		velhaBean.setJogada(jogada);
+		if (velhaBean.getTabuleiro().length != 9) {
+			velhaBean.copiarTabuleiro(VelhaBitboard.toChars(tabuleiro));
+		} else {
+			for (int pos = 0; pos < 9; pos++) {
+				velhaBean.setPosicao(pos,
+						VelhaBitboard.getPosicao(tabuleiro, pos));
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compara um trecho da mensagem com um fragmento fixo.
+	 * @param dados Vetor com os bytes da mensagem
+	 * @param i Indice inicial do trecho
+	 * @param fim Indice seguinte ao ultimo byte da mensagem
+	 * @param fragmento Fragmento esperado
+	 * @return True se o trecho e' igual ao fragmento, false se nao.
+	 */
+	private static boolean comparar(byte[] dados, int i, int fim,
+									byte[] fragmento) {
+		if (i + fragmento.length > fim) return false;
+		for (int j = 0; j < fragmento.length; j++) {
+			if (dados[i + j] != fragmento[j]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Codifica um fragmento fixo em UTF-8.
+	 * @param texto Fragmento
+	 * @return Bytes do fragmento.
+	 */
+	private static byte[] bytes(String texto) {
+		return texto.getBytes(UTF8);
+	}
+}
@@ -0,0 +1,306 @@
+package br.com.fiap.velha;
+
+import java.util.Random;
+
+/**
+ * Classe que implementa a logica do Jogo da Velha generalizado (jogo m,n,k):
+ * tabuleiro de tamanho NxN em que ganha quem fizer k marcas em linha
+ * (horizontal, vertical ou diagonal). Por exemplo, 4x4 com 4 em linha ou
+ * 15x15 com 5 em linha ("Gomoku").
+ * A vitoria e' detectada de forma incremental, olhando so' as linhas que
+ * passam pela ultima jogada.
+ */
+public class VelhaEngineMNK implements VelhaTabuleiro {
+
+	/** Direcoes de uma linha: {delta de linha, delta de coluna}. */
+	private static final int DIRECOES[][] = {{0,1},{1,0},{1,1},{1,-1}};
+
+	/** Tamanho do lado do tabuleiro. */
+	private final int tamanho;
+	/** Quantidade de marcas em linha para ganhar. */
+	private final int sequencia;
+
+	/** Tabuleiro, linha a linha (tamanho * tamanho posicoes). */
+	private final char[] tabuleiro;
+
+	/** Quantidade de posicoes marcadas no tabuleiro. */
+	private int jogadas = 0;
+	/** Jogador que ganhou, ou @ref VelhaEngine#JOGADOR_VAZIO. */
+	private char ganhador = VelhaEngine.JOGADOR_VAZIO;
+	/** Posicoes da linha ganhadora, ou null. */
+	private int[] linhaGanhadora = null;
+
+	/** Nivel de inteligencia do robot (0 a 10). */
+	private int nivel = 10;
+
+	/** Gerador de numeros aleatorios usado nos sorteios das jogadas. */
+	private Random random = new Random();
+
+	/** Estrategia de jogo usada para escolher as jogadas. */
+	private volatile VelhaEstrategiaMNK estrategia = new VelhaBuscaMNK();
+
+	/**
+	 * Construtor.
+	 * @param tamanho Tamanho do lado do tabuleiro (3 ou mais)
+	 * @param sequencia Quantidade de marcas em linha para ganhar
+	 *   (de 3 ate' o tamanho)
+	 */
+	public VelhaEngineMNK(int tamanho, int sequencia) {
+		if (tamanho < 3 || sequencia < 3 || sequencia > tamanho) {
+			throw new IllegalArgumentException(
+					"Tabuleiro invalido: " + tamanho + "x" + tamanho +
+					", " + sequencia + " em linha");
+		}
+		this.tamanho   = tamanho;
+		this.sequencia = sequencia;
+		this.tabuleiro = new char[tamanho * tamanho];
+		limparTabuleiro();
+	}
+
+	/**
+	 * Retorna a quantidade padrao de marcas em linha para um tamanho de
+	 *   tabuleiro: o proprio tamanho ate' 5x5, e 5 em linha nos maiores.
+	 * @param tamanho Tamanho do lado do tabuleiro
+	 * @return Quantidade de marcas em linha para ganhar.
+	 */
+	public static int getSequenciaPadrao(int tamanho) {
+		return Math.min(tamanho, 5);
+	}
+
+	/**
+	 * Verifica se a marca numa posicao completa uma linha com a quantidade
+	 *   de marcas necessaria para ganhar.
+	 * @param tabuleiro Vetor com o tabuleiro
+	 * @param tamanho Tamanho do lado do tabuleiro
+	 * @param sequencia Quantidade de marcas em linha para ganhar
+	 * @param pos Posicao da ultima jogada
+	 * @return True se a jogada fechou uma linha, false se nao.
+	 */
+	public static boolean isVitoria(char[] tabuleiro, int tamanho,
+									int sequencia, int pos) {
+		for (int d = 0; d < DIRECOES.length; d++) {
+			if (contarLinha(tabuleiro, tamanho, pos, d) >= sequencia) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/* implementado de VelhaTabuleiro */
+	@Override
+	public int getTamanho() {
+		return tamanho;
+	}
+
+	/**
+	 * Retorna a quantidade de marcas em linha para ganhar.
+	 * @return Quantidade de marcas em linha.
+	 */
+	public int getSequencia() {
+		return sequencia;
+	}
+
+	/* implementado de VelhaTabuleiro */
+	@Override
+	public int getNivel() {
+		return nivel;
+	}
+
+	/* implementado de VelhaTabuleiro */
+	@Override
+	public void setNivel(int nivel) {
+		if (nivel >= 0 && nivel <= 10) {
+			this.nivel = nivel;
+		}
+	}
+
+	/**
+	 * Altera o gerador de numeros aleatorios usado nos sorteios das jogadas.
+	 * @param random Gerador de numeros aleatorios
+	 */
+	public void setRandom(Random random) {
+		if (random != null) {
+			this.random = random;
+		}
+	}
+
+	/**
+	 * Retorna a estrategia de jogo usada para escolher as jogadas.
+	 * @return Estrategia de jogo.
+	 */
+	public VelhaEstrategiaMNK getEstrategia() {
+		return estrategia;
+	}
+
+	/**
+	 * Altera a estrategia de jogo usada para escolher as jogadas.
+	 * @param estrategia Estrategia de jogo
+	 */
+	public void setEstrategia(VelhaEstrategiaMNK estrategia) {
+		if (estrategia != null) {
+			this.estrategia = estrategia;
+		}
+	}
+
+	/* implementado de VelhaTabuleiro */
+	@Override
+	public char getPosicao(int pos) {
+		return tabuleiro[pos];
+	}
+
+	/* implementado de VelhaTabuleiro */
+	@Override
+	public void setPosicao(int pos, char jogador) {
+		if (jogador != VelhaEngine.JOGADOR_O && jogador != VelhaEngine.JOGADOR_X) {
+			return;
+		}
+		char anterior = tabuleiro[pos];
+		tabuleiro[pos] = jogador;
+
+		if (anterior != VelhaEngine.JOGADOR_VAZIO) {
+			/* posicao sobrescrita: recalcula tudo */
+			recalcularStatus();
+		} else {
+			/* so' as linhas que passam pela ultima jogada podem fechar */
+			jogadas++;
+			if (ganhador == VelhaEngine.JOGADOR_VAZIO) {
+				verificarVitoria(pos);
+			}
+		}
+	}
+
+	/* implementado de VelhaTabuleiro */
+	@Override
+	public char[] getTabuleiro() {
+		return tabuleiro.clone();
+	}
+
+	/* implementado de VelhaTabuleiro */
+	@Override
+	public void copiarTabuleiro(char[] from) {
+		if (from != null && from.length == tabuleiro.length) {
+			System.arraycopy(from, 0, tabuleiro, 0, tabuleiro.length);
+			recalcularStatus();
+		}
+	}
+
+	/* implementado de VelhaTabuleiro */
+	@Override
+	public void limparTabuleiro() {
+		for (int pos = 0; pos < tabuleiro.length; pos++) {
+			tabuleiro[pos] = VelhaEngine.JOGADOR_VAZIO;
+		}
+		jogadas        = 0;
+		ganhador       = VelhaEngine.JOGADOR_VAZIO;
+		linhaGanhadora = null;
+	}
+
+	/* implementado de VelhaTabuleiro */
+	@Override
+	public boolean isGameOver() {
+		return (jogadas == tabuleiro.length ||
+				ganhador != VelhaEngine.JOGADOR_VAZIO);
+	}
+
+	/**
+	 * Verifica se houve empate.
+	 * @return True se houve empate, false se nao.
+	 */
+	public boolean isEmpate() {
+		return (jogadas == tabuleiro.length &&
+				ganhador == VelhaEngine.JOGADOR_VAZIO);
+	}
+
+	/* implementado de VelhaTabuleiro */
+	@Override
+	public char getGanhador() {
+		return ganhador;
+	}
+
+	/* implementado de VelhaTabuleiro */
+	@Override
+	public int[] getLinhaGanhadora() {
+		return linhaGanhadora;
+	}
+
+	/* implementado de VelhaTabuleiro */
+	@Override
+	public int getJogada(char jogador) {
+		if (isGameOver()) return -1;
+		return estrategia.getJogada(getTabuleiro(), tamanho, sequencia,
+				jogador, nivel, random);
+	}
+
+	/**
+	 * Conta as marcas consecutivas do jogador da posicao, numa direcao
+	 *   (nos dois sentidos), incluindo a propria posicao.
+	 * @param tabuleiro Vetor com o tabuleiro
+	 * @param tamanho Tamanho do lado do tabuleiro
+	 * @param pos Posicao de referencia
+	 * @param direcao Indice da direcao em @ref DIRECOES
+	 * @return Quantidade de marcas em linha.
+	 */
+	private static int contarLinha(char[] tabuleiro, int tamanho, int pos,
+								   int direcao) {
+		char jogador = tabuleiro[pos];
+		if (jogador == VelhaEngine.JOGADOR_VAZIO) return 0;
+
+		int total = 1;
+		for (int sentido = -1; sentido <= 1; sentido += 2) {
+			int lin = pos / tamanho + DIRECOES[direcao][0] * sentido;
+			int col = pos % tamanho + DIRECOES[direcao][1] * sentido;
+			while (lin >= 0 && lin < tamanho && col >= 0 && col < tamanho &&
+				   tabuleiro[lin * tamanho + col] == jogador) {
+				total++;
+				lin += DIRECOES[direcao][0] * sentido;
+				col += DIRECOES[direcao][1] * sentido;
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Verifica se a jogada numa posicao fechou uma linha, guardando o
+	 *   ganhador e as posicoes da linha.
+	 * @param pos Posicao da ultima jogada
+	 */
+	private void verificarVitoria(int pos) {
+		for (int d = 0; d < DIRECOES.length; d++) {
+			if (contarLinha(tabuleiro, tamanho, pos, d) < sequencia) continue;
+
+			/* volta ate' o inicio da linha e guarda as posicoes */
+			int dLin = DIRECOES[d][0];
+			int dCol = DIRECOES[d][1];
+			int lin = pos / tamanho;
+			int col = pos % tamanho;
+			while (lin - dLin >= 0 && lin - dLin < tamanho &&
+				   col - dCol >= 0 && col - dCol < tamanho &&
+				   tabuleiro[(lin - dLin) * tamanho + (col - dCol)] == tabuleiro[pos]) {
+				lin -= dLin;
+				col -= dCol;
+			}
+			int linha[] = new int[sequencia];
+			for (int i = 0; i < sequencia; i++) {
+				linha[i] = (lin + dLin * i) * tamanho + (col + dCol * i);
+			}
+			ganhador       = tabuleiro[pos];
+			linhaGanhadora = linha;
+			return;
+		}
+	}
+
+	/**
+	 * Recalcula a quantidade de jogadas e o ganhador a partir do tabuleiro
+	 * inteiro. Usado quando o tabuleiro e' trocado de uma vez.
+	 */
+	private void recalcularStatus() {
+		jogadas        = 0;
+		ganhador       = VelhaEngine.JOGADOR_VAZIO;
+		linhaGanhadora = null;
+		for (int pos = 0; pos < tabuleiro.length; pos++) {
+			if (tabuleiro[pos] == VelhaEngine.JOGADOR_VAZIO) continue;
+			jogadas++;
+			if (ganhador == VelhaEngine.JOGADOR_VAZIO) verificarVitoria(pos);
+		}
+	}
+}
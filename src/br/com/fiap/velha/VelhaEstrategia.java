@@ -0,0 +1,26 @@
+package br.com.fiap.velha;
+
+import java.util.Random;
+
+/**
+ * Interface que define uma estrategia de jogo (a "AI" do robot), usada pela
+ * @ref VelhaEngine para escolher as jogadas.
+ * As implementacoes nao devem guardar estado de partida: tudo que e'
+ * necessario para escolher a jogada vem por parametro, de forma que uma
+ * unica instancia possa ser usada por varias partidas e threads.
+ */
+public interface VelhaEstrategia {
+
+	/**
+	 * Retorna a proxima jogada para um jogador.
+	 * @param tabuleiro Tabuleiro em formato bitboard (ver @ref VelhaBitboard)
+	 * @param jogador Jogador a ser verificada a proxima jogada
+	 *  (@ref VelhaEngine#JOGADOR_X ou @ref VelhaEngine#JOGADOR_O)
+	 * @param nivel Nivel de inteligencia do robot (0 a 10)
+	 * @param random Gerador de numeros aleatorios usado nos sorteios
+	 * @return Posicao no tabuleiro onde deve ser a proxima jogada, ou -1 se
+	 *  nao ha' mais posicoes disponiveis no tabuleiro.
+	 */
+	public int getJogada(int tabuleiro, char jogador, int nivel, Random random);
+
+}
@@ -0,0 +1,30 @@
+package br.com.fiap.velha;
+
+import java.util.Random;
+
+/**
+ * Interface que define uma estrategia de jogo para tabuleiros NxN com
+ * k em linha, usada pela @ref VelhaEngineMNK para escolher as jogadas.
+ * Assim como em @ref VelhaEstrategia, as implementacoes nao devem guardar
+ * estado de partida.
+ */
+public interface VelhaEstrategiaMNK {
+
+	/**
+	 * Retorna a proxima jogada para um jogador.
+	 * @param tabuleiro Vetor com o tabuleiro (tamanho * tamanho posicoes);
+	 *   a estrategia pode usa-lo como area de trabalho, desde que o devolva
+	 *   no estado original
+	 * @param tamanho Tamanho do lado do tabuleiro
+	 * @param sequencia Quantidade de marcas em linha para ganhar
+	 * @param jogador Jogador a ser verificada a proxima jogada
+	 *  (@ref VelhaEngine#JOGADOR_X ou @ref VelhaEngine#JOGADOR_O)
+	 * @param nivel Nivel de inteligencia do robot (0 a 10)
+	 * @param random Gerador de numeros aleatorios usado nos sorteios
+	 * @return Posicao no tabuleiro onde deve ser a proxima jogada, ou -1 se
+	 *  nao ha' mais posicoes disponiveis no tabuleiro.
+	 */
+	public int getJogada(char[] tabuleiro, int tamanho, int sequencia,
+						 char jogador, int nivel, Random random);
+
+}
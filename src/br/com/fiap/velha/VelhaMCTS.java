@@ -0,0 +1,544 @@
+package br.com.fiap.velha;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Classe que implementa uma estrategia de jogo por Monte Carlo Tree Search
+ * (MCTS) para tabuleiros NxN com k em linha, indicada para os tabuleiros
+ * grandes, onde a busca exaustiva nao e' viavel.
+ * A busca e' paralela na arvore ("tree parallel"): varias tarefas de um
+ * ForkJoinPool percorrem a mesma arvore ao mesmo tempo. Por padrao, todas
+ * as instancias usam um unico pool compartilhado, do tamanho da quantidade
+ * de processadores (ver @ref getPoolCompartilhado): com uma logica por
+ * sessao, as buscas dividem os mesmos processadores em vez de criar um pool
+ * cada uma. As estatisticas dos nos sao contadores atomicos, sem travas;
+ * cada visita e' contada ja' na descida (perda virtual), o que espalha as
+ * tarefas por ramos diferentes.
+ * O orcamento de cada jogada e' dado em tempo e/ou em quantidade de
+ * simulacoes (playouts), e a vazao da ultima busca fica disponivel em
+ * @ref getPlayoutsPorSegundo. A busca tambem termina, no proximo playout,
+ * se a thread que chamou @ref getJogada for interrompida (o pondering
+ * descartado nao disputa os processadores com a busca da jogada real).
+ */
+public class VelhaMCTS implements VelhaEstrategiaMNK {
+
+	/** Tempo padrao de busca por jogada, em ms. */
+	public static final long TEMPO_PADRAO    = 1000L;
+	/** Quantidade padrao de playouts por jogada (0 = sem limite). */
+	public static final long PLAYOUTS_PADRAO = 0L;
+
+	/** Constante de exploracao da formula UCT. */
+	private static final double EXPLORACAO = 1.4;
+
+	/** Visitas de uma folha antes de ser expandida. */
+	private static final int LIMIAR_EXPANSAO = 2;
+
+	/** Pontos de uma vitoria (um empate vale metade). */
+	private static final int PONTOS_VITORIA = 2;
+	/** Pontos de um empate. */
+	private static final int PONTOS_EMPATE  = 1;
+
+	/** Tempo maximo de busca por jogada, em ms (0 = sem limite). */
+	private final long tempo;
+	/** Quantidade maxima de playouts por jogada (0 = sem limite). */
+	private final long playouts;
+	/** Quantidade de tarefas de busca simultaneas. */
+	private final int paralelismo;
+	/** Pool de threads das tarefas de busca (compartilhado ou injetado). */
+	private final ForkJoinPool pool;
+
+	/** Playouts da ultima busca. */
+	private volatile long ultimosPlayouts = 0;
+	/** Vazao da ultima busca, em playouts por segundo. */
+	private volatile double playoutsPorSegundo = 0;
+
+	/** Construtor default: tempo padrao, usando todos os processadores. */
+	public VelhaMCTS() {
+		this(TEMPO_PADRAO, PLAYOUTS_PADRAO,
+			 Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Construtor, usando o pool compartilhado.
+	 * @param tempo Tempo maximo de busca por jogada, em ms (0 = sem limite)
+	 * @param playouts Quantidade maxima de playouts por jogada
+	 *   (0 = sem limite)
+	 * @param paralelismo Quantidade de tarefas de busca simultaneas
+	 */
+	public VelhaMCTS(long tempo, long playouts, int paralelismo) {
+		this(tempo, playouts, paralelismo, getPoolCompartilhado());
+	}
+
+	/**
+	 * Construtor.
+	 * @param tempo Tempo maximo de busca por jogada, em ms (0 = sem limite)
+	 * @param playouts Quantidade maxima de playouts por jogada
+	 *   (0 = sem limite)
+	 * @param paralelismo Quantidade de tarefas de busca simultaneas
+	 * @param pool Pool que executa as tarefas de busca (quem o cria e' quem
+	 *   o encerra)
+	 */
+	public VelhaMCTS(long tempo, long playouts, int paralelismo,
+					 ForkJoinPool pool) {
+		if (tempo <= 0 && playouts <= 0) {
+			throw new IllegalArgumentException(
+					"Orcamento invalido: informe tempo ou playouts");
+		}
+		this.tempo       = Math.max(0, tempo);
+		this.playouts    = Math.max(0, playouts);
+		this.paralelismo = Math.max(1, paralelismo);
+		this.pool        = pool;
+	}
+
+	/**
+	 * Retorna o pool compartilhado pelas instancias, criado no primeiro uso
+	 *   com uma thread por processador. As threads sao daemon e terminam
+	 *   quando ficam ociosas.
+	 * @return Pool compartilhado.
+	 */
+	public static ForkJoinPool getPoolCompartilhado() {
+		return PoolCompartilhado.POOL;
+	}
+
+	/**
+	 * Retorna a quantidade de playouts da ultima busca.
+	 * @return Quantidade de playouts.
+	 */
+	public long getPlayouts() {
+		return ultimosPlayouts;
+	}
+
+	/**
+	 * Retorna a vazao da ultima busca, para ajuste do orcamento em cada
+	 *   maquina.
+	 * @return Playouts por segundo.
+	 */
+	public double getPlayoutsPorSegundo() {
+		return playoutsPorSegundo;
+	}
+
+	/**
+	 * Retorna o pool que executa as tarefas de busca.
+	 * @return Pool de threads.
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * Retorna a quantidade de tarefas de busca simultaneas.
+	 * @return Paralelismo da busca.
+	 */
+	public int getParalelismo() {
+		return paralelismo;
+	}
+
+	/* implementado de VelhaEstrategiaMNK */
+	@Override
+	public int getJogada(char[] tabuleiro, int tamanho, int sequencia,
+						 char jogador, int nivel, Random random) {
+
+		char oponente = VelhaEngine.getOponente(jogador);
+		int candidatos[] = gerarCandidatos(tabuleiro, tamanho);
+		if (candidatos.length == 0) return -1;
+		if (candidatos.length == 1) return candidatos[0];
+
+		/* vitoria imediata */
+		int jogada = getJogadaVitoria(tabuleiro, tamanho, sequencia,
+				candidatos, jogador);
+		if (jogada >= 0) return jogada;
+
+		/* defesa, conforme o nivel */
+		if (random.nextInt(10) >= (10 - nivel)) {
+			jogada = getJogadaVitoria(tabuleiro, tamanho, sequencia,
+					candidatos, oponente);
+			if (jogada >= 0) return jogada;
+		} else {
+			/* jogada qualquer perto das marcas */
+			return candidatos[random.nextInt(candidatos.length)];
+		}
+
+		/* busca paralela na arvore, ate' esgotar o orcamento */
+		No raiz = new No(-1, oponente);
+		raiz.filhos = criarFilhos(candidatos, jogador);
+		raiz.estado.set(No.EXPANDIDO);
+
+		Busca busca = new Busca(raiz, tabuleiro, tamanho, sequencia);
+		long inicio = System.nanoTime();
+		pool.execute(busca);
+		try {
+			busca.get();
+		} catch (InterruptedException e) {
+			/* para as tarefas no proximo playout e espera terminarem */
+			busca.cancelada = true;
+			busca.quietlyJoin();
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+		long decorrido = Math.max(1, System.nanoTime() - inicio);
+
+		ultimosPlayouts    = busca.contador.get();
+		playoutsPorSegundo = ultimosPlayouts * 1e9 / decorrido;
+
+		/* escolhe a jogada mais visitada */
+		No melhor = raiz.filhos[0];
+		for (No filho : raiz.filhos) {
+			if (filho.visitas.get() > melhor.visitas.get()) melhor = filho;
+		}
+		return melhor.jogada;
+	}
+
+	/**
+	 * Gera as jogadas candidatas: posicoes vazias vizinhas a alguma marca,
+	 *   ou o centro se o tabuleiro esta' vazio.
+	 * @param tabuleiro Vetor com o tabuleiro
+	 * @param tamanho Tamanho do lado do tabuleiro
+	 * @return Vetor com as jogadas.
+	 */
+	private static int[] gerarCandidatos(char[] tabuleiro, int tamanho) {
+		int posicoes[] = new int[tabuleiro.length];
+		int total = 0;
+		boolean vazio = true;
+		for (int pos = 0; pos < tabuleiro.length; pos++) {
+			if (tabuleiro[pos] != VelhaEngine.JOGADOR_VAZIO) {
+				vazio = false;
+			} else if (isVizinha(tabuleiro, tamanho, pos)) {
+				posicoes[total++] = pos;
+			}
+		}
+		if (vazio) {
+			return new int[]{ (tamanho / 2) * tamanho + tamanho / 2 };
+		}
+		int retorno[] = new int[total];
+		System.arraycopy(posicoes, 0, retorno, 0, total);
+		return retorno;
+	}
+
+	/**
+	 * Verifica se uma posicao tem alguma marca ao redor.
+	 * @param tabuleiro Vetor com o tabuleiro
+	 * @param tamanho Tamanho do lado do tabuleiro
+	 * @param pos Posicao
+	 * @return True se ha' marca vizinha, false se nao.
+	 */
+	private static boolean isVizinha(char[] tabuleiro, int tamanho, int pos) {
+		int lin = pos / tamanho;
+		int col = pos % tamanho;
+		for (int l = Math.max(0, lin - 1); l <= Math.min(tamanho - 1, lin + 1); l++) {
+			for (int c = Math.max(0, col - 1); c <= Math.min(tamanho - 1, col + 1); c++) {
+				if (tabuleiro[l * tamanho + c] != VelhaEngine.JOGADOR_VAZIO) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Retorna uma jogada que fecha uma linha para o jogador.
+	 * @param tabuleiro Vetor com o tabuleiro
+	 * @param tamanho Tamanho do lado do tabuleiro
+	 * @param sequencia Quantidade de marcas em linha para ganhar
+	 * @param candidatos Jogadas a verificar
+	 * @param jogador Jogador
+	 * @return Posicao da jogada, ou -1 se nao ha'.
+	 */
+	private static int getJogadaVitoria(char[] tabuleiro, int tamanho,
+			int sequencia, int[] candidatos, char jogador) {
+		for (int i = 0; i < candidatos.length; i++) {
+			int pos = candidatos[i];
+			tabuleiro[pos] = jogador;
+			boolean vitoria =
+				VelhaEngineMNK.isVitoria(tabuleiro, tamanho, sequencia, pos);
+			tabuleiro[pos] = VelhaEngine.JOGADOR_VAZIO;
+			if (vitoria) return pos;
+		}
+		return -1;
+	}
+
+	/**
+	 * Cria os nos filhos de um no.
+	 * @param jogadas Jogadas possiveis
+	 * @param jogador Jogador que faz as jogadas
+	 * @return Vetor com os nos filhos.
+	 */
+	private static No[] criarFilhos(int[] jogadas, char jogador) {
+		No filhos[] = new No[jogadas.length];
+		for (int i = 0; i < jogadas.length; i++) {
+			filhos[i] = new No(jogadas[i], jogador);
+		}
+		return filhos;
+	}
+
+	/**
+	 * No da arvore de busca. As estatisticas sao atualizadas sem travas por
+	 * todas as tarefas; os filhos sao criados uma unica vez, por quem ganhar
+	 * a troca de estado de FOLHA para EXPANDINDO.
+	 */
+	private static final class No {
+
+		/** No ainda sem filhos. */
+		static final int FOLHA     = 0;
+		/** Filhos sendo criados por uma tarefa. */
+		static final int EXPANDINDO = 1;
+		/** Filhos criados. */
+		static final int EXPANDIDO = 2;
+
+		/** Jogada que leva a este no. */
+		final int jogada;
+		/** Jogador que fez a jogada. */
+		final char jogador;
+
+		/** Visitas (contadas na descida: perda virtual). */
+		final AtomicInteger visitas = new AtomicInteger();
+		/** Pontos do jogador que fez a jogada (contados na subida). */
+		final AtomicLong pontos = new AtomicLong();
+		/** Estado da expansao. */
+		final AtomicInteger estado = new AtomicInteger(FOLHA);
+		/** Indica se a jogada terminou a partida. */
+		final AtomicBoolean terminal = new AtomicBoolean();
+
+		/** Filhos, publicados depois de criados. */
+		volatile No[] filhos = null;
+
+		/**
+		 * Construtor.
+		 * @param jogada Jogada que leva a este no
+		 * @param jogador Jogador que fez a jogada
+		 */
+		No(int jogada, char jogador) {
+			this.jogada  = jogada;
+			this.jogador = jogador;
+		}
+
+		/**
+		 * Escolhe o filho pela formula UCT. Filhos nunca visitados tem
+		 *   preferencia.
+		 * @return Filho escolhido.
+		 */
+		No selecionar() {
+			No[] filhos = this.filhos;
+			double logPai = Math.log(Math.max(1, visitas.get()));
+			No melhor = null;
+			double melhorValor = Double.NEGATIVE_INFINITY;
+			for (No filho : filhos) {
+				int v = filho.visitas.get();
+				if (v == 0) return filho;
+				double valor = (filho.pontos.get() / (double) PONTOS_VITORIA) / v
+						+ EXPLORACAO * Math.sqrt(logPai / v);
+				if (valor > melhorValor) {
+					melhorValor = valor;
+					melhor = filho;
+				}
+			}
+			return melhor;
+		}
+	}
+
+	/**
+	 * Busca de uma jogada: dispara as tarefas de busca e espera todas
+	 * terminarem.
+	 */
+	@SuppressWarnings("serial")
+	private final class Busca extends RecursiveAction {
+
+		/** Raiz da arvore. */
+		final No raiz;
+		/** Tabuleiro da raiz (somente leitura). */
+		final char[] tabuleiro;
+		/** Tamanho do lado do tabuleiro. */
+		final int tamanho;
+		/** Quantidade de marcas em linha para ganhar. */
+		final int sequencia;
+		/** Instante limite da busca (System.nanoTime), ou 0. */
+		final long limite;
+		/** Indica se a busca foi cancelada (a thread que espera foi
+		 * interrompida). */
+		volatile boolean cancelada = false;
+		/** Playouts feitos por todas as tarefas. */
+		final AtomicLong contador = new AtomicLong();
+
+		/**
+		 * Construtor.
+		 * @param raiz Raiz da arvore
+		 * @param tabuleiro Tabuleiro da raiz
+		 * @param tamanho Tamanho do lado do tabuleiro
+		 * @param sequencia Quantidade de marcas em linha para ganhar
+		 */
+		Busca(No raiz, char[] tabuleiro, int tamanho, int sequencia) {
+			this.raiz      = raiz;
+			this.tabuleiro = tabuleiro.clone();
+			this.tamanho   = tamanho;
+			this.sequencia = sequencia;
+			this.limite    = (tempo > 0) ? System.nanoTime() + tempo * 1000000L : 0;
+		}
+
+		/* implementado de RecursiveAction */
+		@Override
+		protected void compute() {
+			List<Trabalhador> tarefas = new ArrayList<Trabalhador>(paralelismo);
+			for (int i = 0; i < paralelismo; i++) {
+				tarefas.add(new Trabalhador(this));
+			}
+			invokeAll(tarefas);
+		}
+
+		/**
+		 * Reserva um playout do orcamento.
+		 * @return True se ainda ha' orcamento, false se acabou ou se a busca
+		 *   foi interrompida.
+		 */
+		boolean reservar() {
+			if (cancelada) return false;
+			if (limite != 0 && System.nanoTime() - limite >= 0) return false;
+			long n = contador.incrementAndGet();
+			if (playouts > 0 && n > playouts) {
+				contador.decrementAndGet();
+				return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Tarefa de busca: repete selecao, expansao, simulacao e
+	 * retropropagacao ate' o orcamento acabar. Cada tarefa usa seu proprio
+	 * tabuleiro de trabalho.
+	 */
+	@SuppressWarnings("serial")
+	private static final class Trabalhador extends RecursiveAction {
+
+		/** Busca a que pertence. */
+		final Busca busca;
+		/** Tabuleiro de trabalho. */
+		final char[] tabuleiro;
+		/** Posicoes vazias, usadas no sorteio do playout. */
+		final int[] vazias;
+		/** Caminho da raiz ate' o no simulado. */
+		final No[] caminho;
+
+		/**
+		 * Construtor.
+		 * @param busca Busca a que pertence
+		 */
+		Trabalhador(Busca busca) {
+			this.busca     = busca;
+			this.tabuleiro = new char[busca.tabuleiro.length];
+			this.vazias    = new int[busca.tabuleiro.length];
+			this.caminho   = new No[busca.tabuleiro.length + 1];
+		}
+
+		/* implementado de RecursiveAction */
+		@Override
+		protected void compute() {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			while (busca.reservar()) {
+				iterar(random);
+			}
+		}
+
+		/**
+		 * Faz uma iteracao da busca.
+		 * @param random Gerador de numeros aleatorios da thread
+		 */
+		private void iterar(Random random) {
+			System.arraycopy(busca.tabuleiro, 0, tabuleiro, 0, tabuleiro.length);
+
+			/* selecao: desce pela arvore, contando a visita ja' na descida */
+			int profundidade = 0;
+			No no = busca.raiz;
+			no.visitas.incrementAndGet();
+			caminho[profundidade++] = no;
+			char ganhador = VelhaEngine.JOGADOR_VAZIO;
+			boolean fim = false;
+
+			while (true) {
+				if (no.estado.get() != No.EXPANDIDO) {
+					/* expansao: so' uma tarefa cria os filhos */
+					if (no.visitas.get() < LIMIAR_EXPANSAO ||
+						!no.estado.compareAndSet(No.FOLHA, No.EXPANDINDO)) break;
+					int jogadas[] = gerarCandidatos(tabuleiro, busca.tamanho);
+					no.filhos = criarFilhos(jogadas,
+							VelhaEngine.getOponente(no.jogador));
+					no.estado.set(No.EXPANDIDO);
+				}
+				if (no.filhos.length == 0) {
+					fim = true;
+					break;
+				}
+				no = no.selecionar();
+				no.visitas.incrementAndGet();
+				caminho[profundidade++] = no;
+				tabuleiro[no.jogada] = no.jogador;
+
+				if (no.terminal.get() || VelhaEngineMNK.isVitoria(
+						tabuleiro, busca.tamanho, busca.sequencia, no.jogada)) {
+					no.terminal.set(true);
+					ganhador = no.jogador;
+					fim = true;
+					break;
+				}
+			}
+
+			/* simulacao: jogadas aleatorias ate' o fim da partida */
+			if (!fim) {
+				ganhador = simular(VelhaEngine.getOponente(no.jogador), random);
+			}
+
+			/* retropropagacao */
+			for (int i = 1; i < profundidade; i++) {
+				No n = caminho[i];
+				if (ganhador == n.jogador) {
+					n.pontos.addAndGet(PONTOS_VITORIA);
+				} else if (ganhador == VelhaEngine.JOGADOR_VAZIO) {
+					n.pontos.addAndGet(PONTOS_EMPATE);
+				}
+				caminho[i] = null;
+			}
+		}
+
+		/**
+		 * Simula o resto da partida com jogadas aleatorias.
+		 * @param jogador Jogador da vez
+		 * @param random Gerador de numeros aleatorios da thread
+		 * @return Jogador que ganhou, ou @ref VelhaEngine#JOGADOR_VAZIO se
+		 *   houve empate.
+		 */
+		private char simular(char jogador, Random random) {
+			int total = 0;
+			for (int pos = 0; pos < tabuleiro.length; pos++) {
+				if (tabuleiro[pos] == VelhaEngine.JOGADOR_VAZIO) vazias[total++] = pos;
+			}
+			while (total > 0) {
+				int i = random.nextInt(total);
+				int pos = vazias[i];
+				vazias[i] = vazias[--total];
+				tabuleiro[pos] = jogador;
+				if (VelhaEngineMNK.isVitoria(
+						tabuleiro, busca.tamanho, busca.sequencia, pos)) {
+					return jogador;
+				}
+				jogador = VelhaEngine.getOponente(jogador);
+			}
+			return VelhaEngine.JOGADOR_VAZIO;
+		}
+	}
+
+	/** Pool compartilhado, criado so' no primeiro uso. */
+	private static final class PoolCompartilhado {
+
+		/** Pool com uma thread por processador. */
+		static final ForkJoinPool POOL =
+			new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	}
+}
@@ -0,0 +1,153 @@
+package br.com.fiap.velha;
+
+import java.util.Random;
+
+/**
+ * Classe que implementa uma estrategia de jogo por busca: negamax com poda
+ * alfa-beta, ordenacao de jogadas (centro, cantos e depois bordas) e tabela
+ * de transposicao com chaves canonicas (ver @ref VelhaSimetria).
+ * O jogo e' resolvido ate' o fim, entao a jogada escolhida e' sempre otima;
+ * entre jogadas de mesmo valor, prefere a vitoria mais rapida ou a derrota
+ * mais demorada. Cada thread usa sua propria tabela de transposicao, de
+ * forma que uma unica instancia pode ser compartilhada.
+ */
+public class VelhaNegamax implements VelhaEstrategia {
+
+	/** Ordem em que as jogadas sao examinadas. */
+	private static final int ORDEM_JOGADAS[] = {4, 0, 2, 6, 8, 1, 3, 5, 7};
+
+	/** Valor exato. */
+	private static final int EXATO    = 0;
+	/** Limite inferior (houve corte beta). */
+	private static final int INFERIOR = 1;
+	/** Limite superior (nenhuma jogada superou alfa). */
+	private static final int SUPERIOR = 2;
+
+	/** Valor maior que qualquer resultado possivel da busca. */
+	private static final int INFINITO = 100;
+
+	/** Tabela de transposicao de cada thread. */
+	private final ThreadLocal<VelhaTransposicao> transposicao =
+		new ThreadLocal<VelhaTransposicao>() {
+			@Override
+			protected VelhaTransposicao initialValue() {
+				return new VelhaTransposicao(8192);
+			}
+		};
+
+	/**
+	 * Retorna a proxima jogada para um jogador.
+	 * A vitoria imediata e' sempre aproveitada; fora isso, a jogada otima e'
+	 * escolhida com chance nivel/10, e uma jogada qualquer nos demais casos.
+	 * @see VelhaEstrategia#getJogada(int, char, int, Random)
+	 */
+	@Override
+	public int getJogada(int tabuleiro, char jogador, int nivel,
+						 Random random) {
+
+		int vazias = VelhaBitboard.getVazias(tabuleiro);
+		if (vazias == 0) return -1;
+
+		int meus     = VelhaBitboard.getMascara(tabuleiro, jogador);
+		int oponente = VelhaBitboard.getMascara(tabuleiro,
+				VelhaEngine.getOponente(jogador));
+
+		/* vitoria imediata */
+		int ameacas = VelhaBitboard.getAmeacas(meus, oponente) & vazias;
+		if (ameacas != 0) return Integer.numberOfTrailingZeros(ameacas);
+
+		/* jogada qualquer, conforme o nivel */
+		if (random.nextInt(10) < (10 - nivel)) {
+			return sortear(vazias, random);
+		}
+
+		/* jogada otima: avalia cada jogada e sorteia entre as melhores */
+		VelhaTransposicao tabela = transposicao.get();
+		int melhorValor = -INFINITO;
+		int melhores    = 0;
+		for (int i = 0; i < ORDEM_JOGADAS.length; i++) {
+			int bit = 1 << ORDEM_JOGADAS[i];
+			if ((vazias & bit) == 0) continue;
+			int valor = -negamax(tabela, oponente, meus | bit,
+					VelhaEngine.getOponente(jogador), -INFINITO, -melhorValor + 1);
+			if (valor > melhorValor) {
+				melhorValor = valor;
+				melhores = bit;
+			} else if (valor == melhorValor) {
+				melhores |= bit;
+			}
+		}
+		return sortear(melhores, random);
+	}
+
+	/**
+	 * Avalia uma posicao para o jogador da vez.
+	 * @param tabela Tabela de transposicao
+	 * @param meus Mascara do jogador da vez
+	 * @param oponente Mascara do oponente (que acabou de jogar)
+	 * @param jogador Jogador da vez
+	 * @param alfa Limite inferior da janela de busca
+	 * @param beta Limite superior da janela de busca
+	 * @return Valor da posicao: positivo se o jogador da vez ganha, negativo
+	 *   se perde (maior em modulo quanto mais rapido) e 0 se empata.
+	 */
+	private int negamax(VelhaTransposicao tabela, int meus, int oponente,
+						char jogador, int alfa, int beta) {
+
+		int vazias = ~(meus | oponente) & VelhaBitboard.CHEIO;
+
+		/* o oponente acabou de jogar: so' ele pode ter fechado um trio */
+		if (VelhaBitboard.isGanhador(oponente)) return -(Integer.bitCount(vazias) + 1);
+		if (vazias == 0) return 0;
+
+		/* consulta a tabela de transposicao */
+		int tabuleiro = (jogador == VelhaEngine.JOGADOR_X)
+			? VelhaBitboard.getTabuleiro(meus, oponente)
+			: VelhaBitboard.getTabuleiro(oponente, meus);
+		int chave = VelhaTransposicao.getChave(
+				VelhaSimetria.canonizar(tabuleiro), jogador);
+		int alfaOriginal = alfa;
+		if (tabela.contem(chave)) {
+			int entrada = tabela.get(chave, 0);
+			int valor = (entrada >> 2);
+			switch (entrada & 3) {
+				case EXATO   : return valor;
+				case INFERIOR: alfa = Math.max(alfa, valor); break;
+				case SUPERIOR: beta = Math.min(beta, valor); break;
+			}
+			if (alfa >= beta) return valor;
+		}
+
+		int melhorValor = -INFINITO;
+		for (int i = 0; i < ORDEM_JOGADAS.length; i++) {
+			int bit = 1 << ORDEM_JOGADAS[i];
+			if ((vazias & bit) == 0) continue;
+			int valor = -negamax(tabela, oponente, meus | bit,
+					VelhaEngine.getOponente(jogador), -beta, -alfa);
+			if (valor > melhorValor) melhorValor = valor;
+			if (valor > alfa) alfa = valor;
+			if (alfa >= beta) break;
+		}
+
+		/* guarda o resultado com o tipo de limite */
+		int tipo = EXATO;
+		if (melhorValor <= alfaOriginal) tipo = SUPERIOR;
+		else if (melhorValor >= beta) tipo = INFERIOR;
+		tabela.put(chave, (melhorValor << 2) | tipo);
+
+		return melhorValor;
+	}
+
+	/**
+	 * Sorteia uma posicao dentre as marcadas numa mascara.
+	 * @param mascara Mascara de posicoes (nao vazia)
+	 * @param random Gerador de numeros aleatorios
+	 * @return Posicao sorteada.
+	 */
+	private static int sortear(int mascara, Random random) {
+		for (int n = random.nextInt(Integer.bitCount(mascara)); n > 0; n--) {
+			mascara &= mascara - 1;
+		}
+		return Integer.numberOfTrailingZeros(mascara);
+	}
+}
@@ -2,16 +2,22 @@ package br.com.fiap.velha;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
-import java.io.StringWriter;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.Source;
 import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
@@ -20,10 +26,12 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.w3c.dom.Text;
 
 /**
  * Classe que implementa o parser de XML do Jogo da Velha.
+ * O quanto cada mensagem recebida e' validada depende do nivel de
+ * validacao (ver @ref Validacao); as mensagens rejeitadas sao contadas por
+ * motivo (ver @ref getRejeicoes).
  */
 public class VelhaParser {
 
@@ -32,6 +40,13 @@ public class VelhaParser {
 	
 	/* nome do arquivo schema que valida o XML */
 	private static final String SCHEMA_FILENAME = "/velha.xsd";
+	/* nome do arquivo schema que valida o XML de tabuleiros NxN */
+	private static final String SCHEMA_MNK_FILENAME = "/velha-mnk.xsd";
+	
+	/* quantidade de posicoes do tabuleiro 3x3 */
+	private static final int POSICOES_3X3 = 9;
+	/* valor de uma posicao do tabuleiro que nao e' X, O nem vazio */
+	private static final char JOGADOR_INVALIDO = '\0';
 	
 	/* contantes que representam as tags do arquivo XML */
 	private static final String NODE_JOGODAVELHA = "JogoDaVelha";
@@ -43,13 +58,231 @@ public class VelhaParser {
 			"p0", "p1", "p2", "p3", "p4", "p5", "p6", "p7", "p8"
 	};
 	
+	/* schemas compilados (thread-safe, compartilhados por todas as
+	 * instancias), ou null se nao puderam ser carregados */
+	private static final Schema SCHEMA     = carregarSchema(SCHEMA_FILENAME);
+	private static final Schema SCHEMA_MNK = carregarSchema(SCHEMA_MNK_FILENAME);
+
+	/* factory compartilhada; nao e' thread-safe, entao so' e' usada
+	 * (sincronizada) para criar os objetos de cada thread */
+	private static final DocumentBuilderFactory DOC_FACTORY =
+		DocumentBuilderFactory.newInstance();
+
+	/* objetos reutilizaveis de cada thread */
+	private static final ThreadLocal<Validator> VALIDATOR =
+		new ThreadLocal<Validator>() {
+			@Override
+			protected Validator initialValue() {
+				return (SCHEMA != null) ? SCHEMA.newValidator() : null;
+			}
+		};
+	private static final ThreadLocal<Validator> VALIDATOR_MNK =
+		new ThreadLocal<Validator>() {
+			@Override
+			protected Validator initialValue() {
+				return (SCHEMA_MNK != null) ? SCHEMA_MNK.newValidator() : null;
+			}
+		};
+	private static final ThreadLocal<DocumentBuilder> DOC_BUILDER =
+		new ThreadLocal<DocumentBuilder>() {
+			@Override
+			protected DocumentBuilder initialValue() {
+				try {
+					synchronized (DOC_FACTORY) {
+						return DOC_FACTORY.newDocumentBuilder();
+					}
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+	private static final ThreadLocal<VelhaCodificador> CODIFICADOR =
+		new ThreadLocal<VelhaCodificador>() {
+			@Override
+			protected VelhaCodificador initialValue() {
+				return new VelhaCodificador();
+			}
+		};
+
+	/* factory de leitores StAX, configurada uma vez e depois so' usada
+	 * para criar leitores (operacao thread-safe) */
+	private static final XMLInputFactory STAX_FACTORY = criarStaxFactory();
+
+	/** Modos de leitura do XML recebido. */
+	public enum Modo {
+		/** Monta a arvore DOM e a valida conforme o nivel de validacao. */
+		DOM,
+		/** Le em uma unica passada (StAX), validando a estrutura do schema
+		 *  durante a leitura, sem montar arvore (no nivel de validacao
+		 *  completo, o texto tambem passa pelo schema). */
+		STAX
+	}
+
+	/** Niveis de validacao do XML recebido. */
+	public enum Validacao {
+		/** Valida com o schema (XSD), alem da estrutura e dos valores. */
+		COMPLETA,
+		/** Confere a estrutura (elementos e ordem) e os valores, com as
+		 *  regras do schema, mas sem o XSD. */
+		ESTRUTURAL,
+		/** Servidor confiavel: so' rejeita o que nao cabe no bean (XML mal
+		 *  formado, id que nao e' X ou O, status desconhecido, jogada nao
+		 *  numerica ou fora do tabuleiro, ou tabuleiro que nao e'
+		 *  quadrado). */
+		NENHUMA
+	}
+
+	/** Motivos de rejeicao de uma mensagem recebida. */
+	public enum Rejeicao {
+		/** XML mal formado ou ilegivel. */
+		MAL_FORMADO,
+		/** Nao confere com o schema. */
+		SCHEMA,
+		/** Elementos faltando, a mais ou fora de ordem. */
+		ESTRUTURA,
+		/** Id do jogador invalido. */
+		ID,
+		/** Status do jogo invalido. */
+		STATUS,
+		/** Jogada invalida. */
+		JOGADA,
+		/** Tabuleiro invalido (tamanho ou conteudo das posicoes). */
+		TABULEIRO
+	}
+
+	/* mensagens rejeitadas, por motivo (todas as instancias) */
+	private static final AtomicLongArray REJEICOES =
+		new AtomicLongArray(Rejeicao.values().length);
+
+	/* nivel de validacao das novas instancias */
+	private static volatile Validacao validacaoPadrao = Validacao.COMPLETA;
+
+	/** Modo de leitura do XML recebido. */
+	private volatile Modo modo = Modo.DOM;
+	/** Nivel de validacao do XML recebido. */
+	private volatile Validacao validacao = validacaoPadrao;
+
+	/** Construtor default (modo DOM, nivel de validacao padrao). */
+	public VelhaParser() {
+		this(Modo.DOM);
+	}
+
 	/**
-	 * Retorna um objeto @ref VelhaBean a partir de uma string contendo XML.
+	 * Construtor (nivel de validacao padrao).
+	 * @param modo Modo de leitura do XML recebido
+	 */
+	public VelhaParser(Modo modo) {
+		setModo(modo);
+	}
+
+	/**
+	 * Construtor.
+	 * @param modo Modo de leitura do XML recebido
+	 * @param validacao Nivel de validacao do XML recebido
+	 */
+	public VelhaParser(Modo modo, Validacao validacao) {
+		setModo(modo);
+		setValidacao(validacao);
+	}
+
+	/**
+	 * Retorna o modo de leitura do XML recebido.
+	 * @return Modo de leitura.
+	 */
+	public Modo getModo() {
+		return modo;
+	}
+
+	/**
+	 * Altera o modo de leitura do XML recebido.
+	 * @param modo Modo de leitura
+	 */
+	public void setModo(Modo modo) {
+		if (modo != null) {
+			this.modo = modo;
+		}
+	}
+	
+	/**
+	 * Retorna o nivel de validacao do XML recebido.
+	 * @return Nivel de validacao.
+	 */
+	public Validacao getValidacao() {
+		return validacao;
+	}
+
+	/**
+	 * Altera o nivel de validacao do XML recebido.
+	 * @param validacao Nivel de validacao
+	 */
+	public void setValidacao(Validacao validacao) {
+		if (validacao != null) {
+			this.validacao = validacao;
+		}
+	}
+
+	/**
+	 * Retorna o nivel de validacao das novas instancias.
+	 * @return Nivel de validacao padrao.
+	 */
+	public static Validacao getValidacaoPadrao() {
+		return validacaoPadrao;
+	}
+
+	/**
+	 * Altera o nivel de validacao das novas instancias (as ja' criadas nao
+	 *   mudam). Permite, por exemplo, validar so' a estrutura em producao e
+	 *   validar com o schema em maquinas de teste.
+	 * @param validacao Nivel de validacao padrao
+	 */
+	public static void setValidacaoPadrao(Validacao validacao) {
+		if (validacao != null) {
+			validacaoPadrao = validacao;
+		}
+	}
+
+	/**
+	 * Retorna a quantidade de mensagens rejeitadas por um motivo (somando
+	 *   todas as instancias).
+	 * @param motivo Motivo da rejeicao
+	 * @return Quantidade de mensagens rejeitadas.
+	 */
+	public static long getRejeicoes(Rejeicao motivo) {
+		return REJEICOES.get(motivo.ordinal());
+	}
+
+	/**
+	 * Retorna a quantidade total de mensagens rejeitadas.
+	 * @return Quantidade de mensagens rejeitadas.
+	 */
+	public static long getRejeicoes() {
+		long total = 0;
+		for (int i = 0; i < REJEICOES.length(); i++) {
+			total += REJEICOES.get(i);
+		}
+		return total;
+	}
+
+	/**
+	 * Retorna um objeto @ref VelhaBean a partir de uma string contendo XML,
+	 *   conforme o modo de leitura configurado.
 	 * @param xmlContent String com o conteudo do XML
 	 * @return Objeto da classe @ref VelhaBean, ou null se houve erro.
 	 */
 	public VelhaBean getVelhaBean(String xmlContent) {
+		return (modo == Modo.STAX) ? getVelhaBeanStax(xmlContent)
+								   : getVelhaBeanDom(xmlContent);
+	}
+
+	/**
+	 * Retorna um objeto @ref VelhaBean a partir de uma string contendo XML,
+	 *   montando a arvore DOM.
+	 * @param xmlContent String com o conteudo do XML
+	 * @return Objeto da classe @ref VelhaBean, ou null se houve erro.
+	 */
+	private VelhaBean getVelhaBeanDom(String xmlContent) {
 
+		Validacao validacao = this.validacao;
 		Document doc = null;
 		
 		try {
@@ -57,69 +290,121 @@ public class VelhaParser {
 			InputStream iStream =
 				new ByteArrayInputStream(xmlContent.getBytes("UTF-8"));
 			
-	        /* instancia um DocumentBuilder e cria um documento */
-			DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-	        DocumentBuilder docBuilder = dbf.newDocumentBuilder();
+	        /* usa o DocumentBuilder da thread e cria um documento */
+	        DocumentBuilder docBuilder = DOC_BUILDER.get();
+	        docBuilder.reset();
 			doc = docBuilder.parse(iStream);
 
 		} catch (Exception e) {
-			if (DEBUG_ENABLED) e.printStackTrace(); 
-			return null;
-		}
-		
-		/* valida o XML na arvore DOM */
-		if (!validateXML(doc, SCHEMA_FILENAME)) {
-			return null;
+			return rejeitar(Rejeicao.MAL_FORMADO, e);
 		}
 		
-		VelhaBean velhaBean = new VelhaBean();
-		
-        /* percorre a arvore DOM e popula o bean */
+        /* localiza as posicoes do tabuleiro */
 		Element nodeJogodaVelha = doc.getDocumentElement();
-
-		Element nodeId = getElement(nodeJogodaVelha,NODE_ID);
-		String idStr = getElementValue(nodeId);
-		if (idStr != null) {
-			idStr = idStr.toUpperCase();
-		}
-		char id = VelhaEngine.JOGADOR_VAZIO;
-		if ("X".equals(idStr))
-			id = VelhaEngine.JOGADOR_X;
-		else if ("O".equals(idStr))
-			id = VelhaEngine.JOGADOR_O;
-		velhaBean.setId(id);
+		Element nodeTabuleiro = getElement(nodeJogodaVelha,NODE_TABULEIRO);
+		List<Element> nodesTabPos = getChildElements(nodeTabuleiro);
 		
-		Element nodeStatus = getElement(nodeJogodaVelha,NODE_STATUS);
-		String statusStr = getElementValue(nodeStatus);
-		if (statusStr != null) {
-			statusStr = statusStr.toLowerCase();
-			velhaBean.setStatus(statusStr);
+		/* valida o XML na arvore DOM, conforme o nivel de validacao */
+		if (validacao == Validacao.COMPLETA) {
+			if (!validateXML(new DOMSource(doc),
+							 getSchemaFileName(nodesTabPos.size()))) {
+				return rejeitar(Rejeicao.SCHEMA, null);
+			}
+			if (!validatePosicoes(nodesTabPos)) {
+				return rejeitar(Rejeicao.TABULEIRO, null);
+			}
+		} else if (validacao == Validacao.ESTRUTURAL) {
+			if (!validateEstrutura(nodeJogodaVelha, nodesTabPos)) {
+				return rejeitar(Rejeicao.ESTRUTURA, null);
+			}
 		}
 		
-		Element nodeJogada = getElement(nodeJogodaVelha,NODE_JOGADA);
-		String jogadaStr = getElementValue(nodeJogada);
-		int jogada = -1;
-		if (jogadaStr != null && !jogadaStr.isEmpty()) {
-			jogada = Integer.parseInt(jogadaStr);
+        /* percorre a arvore DOM e popula o bean */
+		String idStr = getElementValue(getElement(nodeJogodaVelha,NODE_ID));
+		String statusStr =
+			getElementValue(getElement(nodeJogodaVelha,NODE_STATUS));
+		String jogadaStr =
+			getElementValue(getElement(nodeJogodaVelha,NODE_JOGADA));
+		char tabuleiro[] = new char[nodesTabPos.size()];
+		for (int pos = 0; pos < tabuleiro.length; pos++) {
+			tabuleiro[pos] = getJogador(getElementValue(nodesTabPos.get(pos)));
 		}
-		velhaBean.setJogada(jogada);
 		
-		Element nodeTabuleiro = getElement(nodeJogodaVelha,NODE_TABULEIRO);
-		for (int pos = 0; pos < NODE_TAB_POS.length; pos++) {
-			char jogador = VelhaEngine.JOGADOR_VAZIO;
-			Element nodeTabPos = getElement(nodeTabuleiro,NODE_TAB_POS[pos]);
-			String posStr = getElementValue(nodeTabPos);
-			if (posStr != null && !posStr.isEmpty()) {
-				posStr = posStr.toUpperCase();
-				if (posStr.equals("X"))
-					jogador = VelhaEngine.JOGADOR_X;
-				else if (posStr.equals("O"))
-					jogador = VelhaEngine.JOGADOR_O;
+		return montarBean(validacao, idStr, statusStr, jogadaStr,
+						  tabuleiro, tabuleiro.length);
+	}
+
+	/**
+	 * Retorna um objeto @ref VelhaBean a partir de uma string contendo XML,
+	 *   lendo em uma unica passada (StAX). A estrutura e os valores sao
+	 *   validados durante a leitura, com as mesmas regras dos schemas:
+	 *   elementos id, status, jogada e tabuleiro nesta ordem, posicoes
+	 *   p0..pN em sequencia e nenhum conteudo a mais. No nivel de validacao
+	 *   completo, o XML tambem e' conferido com o schema.
+	 * @param xmlContent String com o conteudo do XML
+	 * @return Objeto da classe @ref VelhaBean, ou null se houve erro.
+	 */
+	private VelhaBean getVelhaBeanStax(String xmlContent) {
+
+		Validacao validacao = this.validacao;
+		XMLStreamReader reader = null;
+		try {
+			reader = STAX_FACTORY.createXMLStreamReader(
+					new StringReader(xmlContent));
+
+			/* cabecalho: JogoDaVelha, id, status e jogada */
+			if (!isProximoElemento(reader, NODE_JOGODAVELHA)) {
+				return rejeitar(Rejeicao.ESTRUTURA, null);
+			}
+			String idStr     = lerElemento(reader, NODE_ID);
+			String statusStr = lerElemento(reader, NODE_STATUS);
+			String jogadaStr = lerElemento(reader, NODE_JOGADA);
+			if (idStr == null || statusStr == null || jogadaStr == null ||
+				!isProximoElemento(reader, NODE_TABULEIRO)) {
+				return rejeitar(Rejeicao.ESTRUTURA, null);
+			}
+
+			/* posicoes do tabuleiro, em sequencia */
+			char tabuleiro[] = new char[POSICOES_3X3];
+			int posicoes = 0;
+			while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+				if (!getNomePosicao(posicoes).equals(reader.getLocalName())) {
+					return rejeitar(Rejeicao.ESTRUTURA, null);
+				}
+				if (posicoes == tabuleiro.length) {
+					tabuleiro = Arrays.copyOf(tabuleiro, posicoes * 2);
+				}
+				tabuleiro[posicoes++] = getJogador(reader.getElementText());
+			}
+
+			/* fim do JogoDaVelha, sem elementos depois do tabuleiro */
+			if (reader.nextTag() != XMLStreamConstants.END_ELEMENT) {
+				return rejeitar(Rejeicao.ESTRUTURA, null);
+			}
+			while (reader.hasNext()) reader.next();
+
+			/* no nivel completo, confere tambem com o schema */
+			if (validacao == Validacao.COMPLETA &&
+				!validateXML(new StreamSource(new StringReader(xmlContent)),
+							 getSchemaFileName(posicoes))) {
+				return rejeitar(Rejeicao.SCHEMA, null);
+			}
+
+			return montarBean(validacao, idStr, statusStr, jogadaStr,
+							  tabuleiro, posicoes);
+
+		} catch (Exception e) {
+			return rejeitar(Rejeicao.MAL_FORMADO, e);
+			
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException e) {
+					if (DEBUG_ENABLED) e.printStackTrace(); 
+				}
 			}
-			velhaBean.setPosicao(pos, jogador);
 		}
-		
-		return velhaBean;
 	}
 
 	/**
@@ -129,63 +414,15 @@ public class VelhaParser {
 	 */
 	public String getVelhaXML(VelhaBean velhaBean) {
 
-		Document doc = null;
-		try {
-			/* instancia um DocumentBuilder e cria um documento */
-			DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-			DocumentBuilder docBuilder = dbf.newDocumentBuilder();
-			doc = docBuilder.newDocument();
+		/* escreve o template com os valores do bean */
+		String xml = CODIFICADOR.get().codificarString(velhaBean);
 
-		} catch (Exception e) {
-			if (DEBUG_ENABLED) e.printStackTrace(); 
-			return null;
-		}
-        
-        Text textValue = null;
-         
-        /* monta a arvore DOM */
-        Element nodeJogodaVelha = doc.createElement(NODE_JOGODAVELHA);
-        doc.appendChild(nodeJogodaVelha);
-         
-        Element nodeId = doc.createElement(NODE_ID);
-        nodeJogodaVelha.appendChild(nodeId);
-        textValue = doc.createTextNode(String.valueOf(velhaBean.getId()));
-        nodeId.appendChild(textValue);
-        
-        Element nodeStatus = doc.createElement(NODE_STATUS);
-        nodeJogodaVelha.appendChild(nodeStatus);
-        textValue = doc.createTextNode(velhaBean.getStatus());
-        nodeStatus.appendChild(textValue);
-        
-        Element nodeJogada = doc.createElement(NODE_JOGADA);
-        nodeJogodaVelha.appendChild(nodeJogada);
-        if (velhaBean.getJogada() >= 0) {
-        	textValue =
-        		doc.createTextNode(String.valueOf(velhaBean.getJogada()));
-        	nodeJogada.appendChild(textValue);
-        }
-        
-        Element nodeTabuleiro = doc.createElement(NODE_TABULEIRO);
-        nodeJogodaVelha.appendChild(nodeTabuleiro);
-        
-        for (int pos = 0; pos < NODE_TAB_POS.length; pos++) {
-        	Element nodeTabPos = doc.createElement(NODE_TAB_POS[pos]);
-        	nodeTabuleiro.appendChild(nodeTabPos);
-        	if (velhaBean.getPosicao(pos) != VelhaEngine.JOGADOR_VAZIO) {
-        		textValue =
-        			doc.createTextNode(
-        					String.valueOf(velhaBean.getPosicao(pos)));
-        		nodeTabPos.appendChild(textValue);
-        	}
-        }
-
-		/* valida o XML na arvore DOM */
-		if (!validateXML(doc, SCHEMA_FILENAME)) {
+		/* o codificador so' gera XML valido; no Modo Debug, confere com
+		 * o schema */
+		if (DEBUG_ENABLED && xml != null && getVelhaBeanDom(xml) == null) {
 			return null;
 		}
-        
-        /* retorna uma string a partir da arvore DOM */
-        return domToString(doc);
+		return xml;
 	}
 
 	/**
@@ -204,31 +441,268 @@ public class VelhaParser {
 		return (Element) elementsList.item(0);
 	}
 
+	/**
+	 * Le o proximo elemento (somente texto) de um leitor StAX.
+	 * @param reader Leitor StAX
+	 * @param name Nome esperado do elemento
+	 * @return Texto do elemento (vazio se nao ha' texto), ou null se o
+	 *   proximo elemento nao tem o nome esperado.
+	 * @throws XMLStreamException se o XML esta' mal formado ou se o
+	 *   elemento contem outros elementos
+	 */
+	private static String lerElemento(XMLStreamReader reader, String name)
+			throws XMLStreamException {
+		return isProximoElemento(reader, name) ? reader.getElementText()
+											   : null;
+	}
+
+	/**
+	 * Avanca um leitor StAX ate' o proximo elemento e confere o nome.
+	 * @param reader Leitor StAX
+	 * @param name Nome esperado do elemento
+	 * @return True se o proximo elemento tem o nome esperado, false se nao.
+	 * @throws XMLStreamException se o XML esta' mal formado
+	 */
+	private static boolean isProximoElemento(XMLStreamReader reader,
+											 String name)
+			throws XMLStreamException {
+		return reader.nextTag() == XMLStreamConstants.START_ELEMENT &&
+			   name.equals(reader.getLocalName());
+	}
+
+	/**
+	 * Cria e configura a factory de leitores StAX (sem DTD nem entidades
+	 *   externas, que o protocolo nao usa).
+	 * @return Factory de leitores StAX.
+	 */
+	private static XMLInputFactory criarStaxFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(
+				XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		return factory;
+	}
+
+	/**
+	 * Retorna os elementos filhos de um elemento, em ordem.
+	 * @param parent Elemento pai.
+	 * @return Lista com os elementos filhos (vazia se parent e' null).
+	 */
+	private List<Element> getChildElements(Element parent) {
+
+		List<Element> elements = new ArrayList<Element>();
+		if (parent == null) return elements;
+		
+		for (Node node = parent.getFirstChild(); node != null;
+			 node = node.getNextSibling()) {
+			if (node.getNodeType() == Node.ELEMENT_NODE) {
+				elements.add((Element) node);
+			}
+		}
+		return elements;
+	}
+
+	/**
+	 * Retorna o nome do elemento de uma posicao do tabuleiro ("p0", "p1"...).
+	 * @param pos Posicao no tabuleiro
+	 * @return Nome do elemento.
+	 */
+	private static String getNomePosicao(int pos) {
+		return (pos < NODE_TAB_POS.length) ? NODE_TAB_POS[pos] : "p" + pos;
+	}
+
+	/**
+	 * Retorna o arquivo de schema adequado ao tamanho do tabuleiro.
+	 * @param posicoes Quantidade de posicoes do tabuleiro
+	 * @return Nome do arquivo de schema (XSD).
+	 */
+	private static String getSchemaFileName(int posicoes) {
+		return (posicoes == POSICOES_3X3) ? SCHEMA_FILENAME
+										  : SCHEMA_MNK_FILENAME;
+	}
+
+	/**
+	 * Valida as posicoes de um tabuleiro NxN, que o schema generico nao
+	 *   consegue validar: quantidade quadrada, nomes em sequencia
+	 *   ("p0", "p1"...) e conteudo X, O, espaco ou vazio.
+	 * @param nodesTabPos Elementos das posicoes do tabuleiro
+	 * @return True se validado, false se houve erro de validacao.
+	 */
+	private boolean validatePosicoes(List<Element> nodesTabPos) {
+		int posicoes = nodesTabPos.size();
+		if (posicoes == POSICOES_3X3) return true;
+		
+		int tamanho = (int) Math.round(Math.sqrt(posicoes));
+		if (tamanho * tamanho != posicoes) return false;
+		
+		for (int pos = 0; pos < posicoes; pos++) {
+			Element nodeTabPos = nodesTabPos.get(pos);
+			if (!getNomePosicao(pos).equals(nodeTabPos.getTagName())) {
+				return false;
+			}
+			String posStr = getElementValue(nodeTabPos);
+			if (posStr != null && !posStr.matches("[XO ]?")) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Valida a estrutura de uma arvore DOM sem o schema: elementos id,
+	 *   status, jogada e tabuleiro nesta ordem, posicoes p0..pN em
+	 *   sequencia e nenhum elemento dentro dos valores.
+	 * @param nodeJogodaVelha Elemento raiz
+	 * @param nodesTabPos Elementos das posicoes do tabuleiro
+	 * @return True se validada, false se houve erro de validacao.
+	 */
+	private boolean validateEstrutura(Element nodeJogodaVelha,
+									  List<Element> nodesTabPos) {
+		if (!NODE_JOGODAVELHA.equals(nodeJogodaVelha.getTagName())) {
+			return false;
+		}
+		List<Element> nodes = getChildElements(nodeJogodaVelha);
+		String nomes[] = { NODE_ID, NODE_STATUS, NODE_JOGADA, NODE_TABULEIRO };
+		if (nodes.size() != nomes.length) return false;
+		for (int i = 0; i < nomes.length; i++) {
+			if (!nomes[i].equals(nodes.get(i).getTagName())) return false;
+			if (i < nomes.length - 1 &&
+				!getChildElements(nodes.get(i)).isEmpty()) return false;
+		}
+		for (int pos = 0; pos < nodesTabPos.size(); pos++) {
+			Element nodeTabPos = nodesTabPos.get(pos);
+			if (!getNomePosicao(pos).equals(nodeTabPos.getTagName()) ||
+				!getChildElements(nodeTabPos).isEmpty()) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Confere os valores lidos (nos niveis de validacao completo e
+	 *   estrutural) e monta o bean.
+	 * @param validacao Nivel de validacao
+	 * @param idStr Texto do elemento id
+	 * @param statusStr Texto do elemento status
+	 * @param jogadaStr Texto do elemento jogada
+	 * @param tabuleiro Posicoes lidas (ver @ref getJogador)
+	 * @param posicoes Quantidade de posicoes lidas
+	 * @return Objeto da classe @ref VelhaBean, ou null se algum valor foi
+	 *   rejeitado.
+	 */
+	private static VelhaBean montarBean(Validacao validacao, String idStr,
+										String statusStr, String jogadaStr,
+										char[] tabuleiro, int posicoes) {
+		boolean validar = (validacao != Validacao.NENHUMA);
+		if (idStr == null)     idStr = "";
+		if (jogadaStr == null) jogadaStr = "";
+
+		/* tabuleiro: quadrado, a partir do 3x3, com X, O ou vazio */
+		int tamanho = (int) Math.round(Math.sqrt(posicoes));
+		if (posicoes < POSICOES_3X3 || tamanho * tamanho != posicoes) {
+			return rejeitar(Rejeicao.TABULEIRO, null);
+		}
+		for (int pos = 0; pos < posicoes; pos++) {
+			if (tabuleiro[pos] != JOGADOR_INVALIDO) continue;
+			if (validar) return rejeitar(Rejeicao.TABULEIRO, null);
+			tabuleiro[pos] = VelhaEngine.JOGADOR_VAZIO;
+		}
+
+		/* id: X|O (em qualquer nivel: o id e' usado como a marca do
+		 * jogador) */
+		if (!"X".equals(idStr) && !"O".equals(idStr)) {
+			return rejeitar(Rejeicao.ID, null);
+		}
+
+		/* status: enumeracao StatusJogoType */
+		VelhaStatus status = VelhaStatus.getStatus(statusStr);
+		if (status == null) return rejeitar(Rejeicao.STATUS, null);
+
+		/* jogada: numero sem zeros 'a esquerda, dentro do tabuleiro (em
+		 * qualquer nivel: a jogada e' usada como indice das posicoes) */
+		int jogada = -1;
+		if (!jogadaStr.isEmpty()) {
+			if (jogadaStr.length() > 4 ||
+				(validar && jogadaStr.length() > 1 && jogadaStr.charAt(0) == '0')) {
+				return rejeitar(Rejeicao.JOGADA, null);
+			}
+			for (int i = 0; i < jogadaStr.length(); i++) {
+				char c = jogadaStr.charAt(i);
+				if (c < '0' || c > '9') return rejeitar(Rejeicao.JOGADA, null);
+			}
+			jogada = Integer.parseInt(jogadaStr);
+			if (jogada >= posicoes) {
+				return rejeitar(Rejeicao.JOGADA, null);
+			}
+		}
+
+		/* popula o bean */
+		VelhaBean velhaBean = new VelhaBean(posicoes);
+		velhaBean.setId(idStr.charAt(0));
+		velhaBean.setStatus(status);
+		velhaBean.setJogada(jogada);
+		for (int pos = 0; pos < posicoes; pos++) {
+			velhaBean.setPosicao(pos, tabuleiro[pos]);
+		}
+		return velhaBean;
+	}
+
+	/**
+	 * Converte o texto de uma posicao do tabuleiro.
+	 * @param posStr Texto da posicao (ou null)
+	 * @return Jogador (X, O ou vazio), ou JOGADOR_INVALIDO se o texto nao e'
+	 *   de nenhum deles.
+	 */
+	private static char getJogador(String posStr) {
+		if (posStr == null || posStr.isEmpty()) return VelhaEngine.JOGADOR_VAZIO;
+		if (posStr.length() > 1) return JOGADOR_INVALIDO;
+		char jogador = posStr.charAt(0);
+		return (jogador == VelhaEngine.JOGADOR_X ||
+				jogador == VelhaEngine.JOGADOR_O ||
+				jogador == VelhaEngine.JOGADOR_VAZIO) ? jogador
+													  : JOGADOR_INVALIDO;
+	}
+
+	/**
+	 * Conta uma mensagem rejeitada.
+	 * @param motivo Motivo da rejeicao
+	 * @param e Excecao ocorrida (ou null)
+	 * @return Sempre null (a mensagem rejeitada).
+	 */
+	private static VelhaBean rejeitar(Rejeicao motivo, Exception e) {
+		REJEICOES.incrementAndGet(motivo.ordinal());
+		if (DEBUG_ENABLED) {
+			System.out.println("Rejeitada: " + motivo);
+			if (e != null) e.printStackTrace();
+		}
+		return null;
+	}
+
 	/**
 	 * Retorna o valor de um elemento.
-	 * @param element Elemento
-	 * @return Valor do elemento, ou null se nao ha' valor.
+	 * @param element Elemento (ou null)
+	 * @return Valor do elemento, ou null se nao ha' elemento ou valor.
 	 */
 	private String getElementValue(Element element) {
+		if (element == null) return null;
 		Node node = element.getFirstChild();
 		return (node != null) ? node.getNodeValue() : null;
 	}
 
 	/**
-	 * Valida um XML contido numa arvore DOM a partir de um arquivo de schema.
-	 * @param doc Objeto Document contendo a arvore DOM
+	 * Valida um XML (arvore DOM ou texto) a partir de um arquivo de schema.
+	 * @param source XML a validar
 	 * @param schemaFileName Nome do arquivo de schema (XSD)
 	 * @return True se validado, false se houve erro de validacao.
 	 */
-	private boolean validateXML(Document doc, String schemaFileName) {
+	private boolean validateXML(Source source, String schemaFileName) {
 		try {
-			/* faz validacao do XML com base no schema */
-			String language = XMLConstants.W3C_XML_SCHEMA_NS_URI;
-			SchemaFactory factory = SchemaFactory.newInstance(language);
-			Schema schema =
-				factory.newSchema(getClass().getResource(schemaFileName));
-			Validator validator = schema.newValidator();
-			validator.validate(new DOMSource(doc));
+			/* faz validacao do XML com base no schema (ja' compilado) */
+			Validator validator = SCHEMA_FILENAME.equals(schemaFileName)
+					? VALIDATOR.get() : VALIDATOR_MNK.get();
+			if (validator == null) return false;
+			validator.reset();
+			validator.validate(source);
 			return true;
 			
 		} catch (Exception e) {
@@ -238,24 +712,16 @@ public class VelhaParser {
 	}
 
 	/**
-	 * Escreve uma arvore DOM (document) para uma string.
-	 * @param doc Objeto Document contendo a arvore DOM
-	 * @return String com o XML, ou null se houve erro.
+	 * Carrega e compila um arquivo de schema.
+	 * @param schemaFileName Nome do arquivo de schema (XSD)
+	 * @return Schema compilado, ou null se houve erro.
 	 */
-	private String domToString(Document doc) {
+	private static Schema carregarSchema(String schemaFileName) {
 		try {
-			/* instancia um transformer */
-	        TransformerFactory transfac = TransformerFactory.newInstance();
-	        Transformer trans = transfac.newTransformer();
-	        trans.setOutputProperty(OutputKeys.INDENT, "no");
-	        trans.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-
-	        /* cria uma string a partir da arvore DOM */
-	        StringWriter strWriter = new StringWriter();
-	        StreamResult result = new StreamResult(strWriter);
-	        DOMSource source = new DOMSource(doc);
-			trans.transform(source, result);
-			return strWriter.toString();
+			String language = XMLConstants.W3C_XML_SCHEMA_NS_URI;
+			SchemaFactory factory = SchemaFactory.newInstance(language);
+			return factory.newSchema(
+					VelhaParser.class.getResource(schemaFileName));
 			
 		} catch (Exception e) {
 			if (DEBUG_ENABLED) e.printStackTrace(); 
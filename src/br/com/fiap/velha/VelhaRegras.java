@@ -0,0 +1,385 @@
+package br.com.fiap.velha;
+
+import java.util.Random;
+
+/**
+ * Classe que implementa a estrategia de jogo baseada em regras, a
+ * "Jogada Perfeita" descrita em
+ * http://pt.wikipedia.org/wiki/Jogo_da_velha#Jogada_perfeita, com
+ * consulta opcional 'a tabela pre-calculada de jogadas perfeitas
+ * (@ref VelhaTabela).
+ */
+public class VelhaRegras implements VelhaEstrategia {
+
+	/** Defesa "triangulo": oponente em cantos opostos (jogador no centro). */
+	private static final int TRIANGULO_CANTOS_OPOSTOS[] = {
+			VelhaBitboard.mascara(0,8), VelhaBitboard.mascara(2,6)
+	};
+
+	/** Defesa "triangulo": {posicoes do oponente, jogada de defesa}
+	 * (jogador somente no centro). */
+	private static final int DEFESA_TRIANGULO[][] = {
+			{VelhaBitboard.mascara(1,5), 2}, {VelhaBitboard.mascara(5,7), 8},
+			{VelhaBitboard.mascara(3,7), 6}, {VelhaBitboard.mascara(1,3), 0},
+			{VelhaBitboard.mascara(0,5), 2}, {VelhaBitboard.mascara(2,7), 8},
+			{VelhaBitboard.mascara(3,8), 6}, {VelhaBitboard.mascara(1,6), 0}
+	};
+
+	/** Bits do peso de cada posicao em @ref getMelhoresJogadas. */
+	private static final int BITS_PESO    = 4;
+	/** Mascara do peso de uma posicao em @ref getMelhoresJogadas. */
+	private static final int MASCARA_PESO = (1 << BITS_PESO) - 1;
+
+	/** Indica se as jogadas sao consultadas na @ref VelhaTabela. */
+	private volatile boolean tabelaHabilitada = false;
+
+	/** Construtor default. */
+	public VelhaRegras() { }
+
+	/**
+	 * Construtor.
+	 * @param tabelaHabilitada True para consultar a tabela pre-calculada de
+	 *   jogadas perfeitas (ver @ref setTabelaHabilitada)
+	 */
+	public VelhaRegras(boolean tabelaHabilitada) {
+		this.tabelaHabilitada = tabelaHabilitada;
+	}
+
+	/**
+	 * Indica se as jogadas sao consultadas na tabela pre-calculada de
+	 *   jogadas perfeitas (@ref VelhaTabela).
+	 * @return True se a tabela esta' habilitada, false se nao.
+	 */
+	public boolean isTabelaHabilitada() {
+		return tabelaHabilitada;
+	}
+
+	/**
+	 * Habilita ou desabilita a consulta 'a tabela pre-calculada de jogadas
+	 *   perfeitas (@ref VelhaTabela). O nivel continua valendo: a cada
+	 *   jogada, um unico sorteio decide se o robot joga perfeito (tabela) ou
+	 *   se nao defende (nem a defesa simples nem a do "triangulo").
+	 * @param tabelaHabilitada True para habilitar, false para desabilitar
+	 */
+	public void setTabelaHabilitada(boolean tabelaHabilitada) {
+		this.tabelaHabilitada = tabelaHabilitada;
+	}
+
+	/**
+	 * Retorna a proxima jogada para um jogador.
+	 * Este metodo contem a "AI" necessaria para um robot de Jogo da Velha.
+	 * (Baseado na "Jogada Perfeita" descrita em
+	 *   http://pt.wikipedia.org/wiki/Jogo_da_velha#Jogada_perfeita).
+	 * @param tabuleiro Tabuleiro em formato bitboard (ver @ref VelhaBitboard)
+	 * @param jogador Jogador a ser verificada a proxima jogada
+	 *  (@ref VelhaEngine#JOGADOR_X ou @ref VelhaEngine#JOGADOR_O)
+	 * @param nivel Nivel de inteligencia do robot (0 a 10)
+	 * @param random Gerador de numeros aleatorios usado nos sorteios (por
+	 *  exemplo, ThreadLocalRandom.current() da thread chamadora)
+	 * @return Posicao no tabuleiro onde deve ser a proxima jogada, ou -1 se
+	 *  nao ha' mais posicoes disponiveis no tabuleiro.
+	 */
+	@Override
+	public int getJogada(int tabuleiro, char jogador, int nivel,
+						 Random random) {
+		int jogada = -1;
+
+		/* Jogada Perfeita: passo 1 */
+		jogada = getJogadaAtaque(tabuleiro, jogador);
+		if (jogada >= 0) return jogada;
+
+		/* Jogada Perfeita: tabela pre-calculada (passos 2 a 6). O nivel e'
+		 * sorteado uma vez so': se falhar, o robot tambem nao defende nos
+		 * passos 2 e 4 */
+		boolean tabela = tabelaHabilitada;
+		boolean defende = false;
+		if (tabela) {
+			defende = random.nextInt(10) >= (10 - nivel);
+			if (defende) {
+				int melhores = VelhaTabela.getMelhoresJogadas(tabuleiro, jogador);
+				if (melhores != 0) {
+					return selecionarBit(melhores,
+							random.nextInt(Integer.bitCount(melhores)));
+				}
+			}
+		}
+
+		/* Jogada Perfeita: passo 2 */
+		if (tabela ? defende : random.nextInt(10) >= (10 - nivel)) {
+			jogada = getJogadaDefesa(tabuleiro, jogador);
+			if (jogada >= 0) return jogada;
+		}
+		
+		/* Jogada Perfeita: passo 3 */
+		/* 50%, para que o robot nao tente sempre iniciar pelos cantos,
+		 * ficando o jogo monotono */
+		if (tabuleiro == VelhaBitboard.VAZIO && random.nextBoolean()) {
+			jogada = getJogadaCanto(tabuleiro, jogador, random);
+			if (jogada >= 0) return jogada;
+		}
+		jogada = getJogadaAtaqueTriangulo(tabuleiro, jogador);
+		if (jogada >= 0) return jogada;
+
+		/* Jogada Perfeita: passo 4 */
+		if (tabela ? defende : random.nextInt(10) >= (10 - nivel)) {
+			jogada = getJogadaDefesaTriangulo(tabuleiro, jogador, random);
+			if (jogada >= 0) return jogada;
+		}
+		
+		/* Jogada Perfeita: passo 5 */
+		if ((VelhaBitboard.getVazias(tabuleiro) & VelhaBitboard.CENTRO) != 0) {
+			jogada = 4; return jogada;
+		}
+		
+		/* Jogada Perfeita: passo 6 */
+		jogada = getJogadaCanto(tabuleiro, jogador, random);
+		if (jogada >= 0) return jogada;
+		
+		/* borda: ultima opcao */
+		jogada = getJogadaBorda(tabuleiro, jogador, random);
+		if (jogada >= 0) return jogada;
+
+		return -1;
+	}
+
+	/**
+	 * Retorna uma possivel jogada de ataque para o jogador especificado.
+	 * A jogada de ataque e' aquela que completa tres posicoes em linha para
+	 * que o jogador ganhe o jogo.
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @param jogador Jogador a ter a jogada analisada
+	 * @return Posicao da jogada no tabuleiro, ou -1 se nao ha' uma jogada
+	 * de ataque possivel.
+	 */
+	private static int getJogadaAtaque(int tabuleiro, char jogador) {
+
+		int meus     = VelhaBitboard.getMascara(tabuleiro, jogador);
+		int oponente = VelhaBitboard.getMascara(tabuleiro, VelhaEngine.getOponente(jogador));
+		int ameacas  = VelhaBitboard.getAmeacas(meus, oponente);
+		
+		if (ameacas != 0) { return Integer.numberOfTrailingZeros(ameacas); }
+		
+		return -1;
+	}
+	
+	/**
+	 * Retorna uma possivel jogada de defesa para o jogador especificado.
+	 * A jogada de defesa e' aquela que bloqueia o oponente de completar
+	 * tres posicoes em linha.
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @param jogador Jogador a ter a jogada analisada
+	 * @return Posicao da jogada no tabuleiro, ou -1 se nao ha' uma jogada
+	 * de defesa possivel.
+	 */
+	private static int getJogadaDefesa(int tabuleiro, char jogador) {
+		return getJogadaAtaque(tabuleiro, VelhaEngine.getOponente(jogador));
+	}
+	
+	/**
+	 * Retorna uma possivel jogada de defesa "triangulo" para o jogador
+	 * especificado.
+	 * A jogada em "triangulo" e' aquela em que o jogador tem duas
+	 * possibilidades simultaneas de completar uma linha e ganhar o jogo.
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @param jogador Jogador a ter a jogada analisada
+	 * @param random Gerador de numeros aleatorios
+	 * @return Posicao da jogada no tabuleiro, ou -1 se nao ha' uma jogada
+	 * de defesa "triangulo" possivel.
+	 */
+	private static int getJogadaDefesaTriangulo(int tabuleiro,
+												char jogador,
+												Random random) {
+		/* todos os padroes tem somente o centro marcado pelo jogador */
+		int meus = VelhaBitboard.getMascara(tabuleiro, jogador);
+		if (meus != VelhaBitboard.CENTRO) return -1;
+
+		int oponente = VelhaBitboard.getMascara(tabuleiro, VelhaEngine.getOponente(jogador));
+		
+		/* oponente em cantos opostos: joga na borda */
+		if (oponente == TRIANGULO_CANTOS_OPOSTOS[0] ||
+			oponente == TRIANGULO_CANTOS_OPOSTOS[1]) {
+			return getJogadaBorda(tabuleiro, jogador, random);
+		}
+		
+		for (int i = 0; i < DEFESA_TRIANGULO.length; i++) {
+			if (oponente == DEFESA_TRIANGULO[i][0]) {
+				return DEFESA_TRIANGULO[i][1];
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Retorna uma possivel jogada de ataque "triangulo" para o jogador
+	 * especificado.
+	 * A jogada em "triangulo" e' aquela em que o jogador tem duas
+	 * possibilidades simultaneas de completar uma linha e ganhar o jogo.
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @param jogador Jogador a ter a jogada analisada
+	 * @return Posicao da jogada no tabuleiro, ou -1 se nao ha' uma jogada
+	 * de ataque "triangulo" possivel.
+	 */
+	private static int getJogadaAtaqueTriangulo(int tabuleiro,
+												char jogador) {
+		/* oponente somente no centro e jogador somente num canto */
+		int meus     = VelhaBitboard.getMascara(tabuleiro, jogador);
+		int oponente = VelhaBitboard.getMascara(tabuleiro, VelhaEngine.getOponente(jogador));
+		if (oponente != VelhaBitboard.CENTRO ||
+			Integer.bitCount(meus) != 1 ||
+			(meus & VelhaBitboard.CANTOS) == 0) {
+			
+			return -1;
+		}
+		
+		/* joga no canto oposto */
+		return 8 - Integer.numberOfTrailingZeros(meus);
+	}
+
+	/**
+	 * Retorna uma possivel jogada no canto para o jogador especificado.
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @param jogador Jogador a ter a jogada analisada
+	 * @param random Gerador de numeros aleatorios
+	 * @return Posicao da jogada no tabuleiro, ou -1 se nao ha' uma jogada
+	 * no canto possivel.
+	 */
+	private static int getJogadaCanto(int tabuleiro, char jogador,
+									  Random random) {
+		return escolherMelhorJogada(tabuleiro, jogador,
+				VelhaBitboard.getVazias(tabuleiro) & VelhaBitboard.CANTOS,
+				random);
+	}
+	
+	/**
+	 * Retorna uma possivel jogada na borda para o jogador especificado.
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @param jogador Jogador a ter a jogada analisada
+	 * @param random Gerador de numeros aleatorios
+	 * @return Posicao da jogada no tabuleiro, ou -1 se nao ha' uma jogada
+	 * na borda possivel.
+	 */
+	private static int getJogadaBorda(int tabuleiro, char jogador,
+									  Random random) {
+		return escolherMelhorJogada(tabuleiro, jogador,
+				VelhaBitboard.getVazias(tabuleiro) & VelhaBitboard.BORDAS,
+				random);
+	}
+
+	/**
+	 * Retorna as melhores jogadas de ataque dentre um conjunto especificado
+	 *   de jogadas, com o peso de cada uma. Uma jogada ganha peso 1 para
+	 *   cada trio que passa por ela e cujas outras duas posicoes tem
+	 *   exatamente a quantidade indicada de marcas do jogador (e as demais
+	 *   vazias).
+	 * @param jogadasPossiveis Mascara das jogadas possiveis
+	 * @param meus Mascara das posicoes do jogador
+	 * @param oponente Mascara das posicoes do oponente
+	 * @param marcas Quantidade de marcas do jogador no restante do trio
+	 * @return Pesos das jogadas, 4 bits por posicao (posicao 0 nos bits
+	 *   menos significativos), ou 0 se nenhuma jogada foi selecionada.
+	 */
+	private static long getMelhoresJogadas(int jogadasPossiveis,
+										   int meus, int oponente,
+										   int marcas) {
+		
+		long pesos = 0L;
+
+		for (int livres = jogadasPossiveis; livres != 0; livres &= livres - 1) {
+			
+			int pos = Integer.numberOfTrailingZeros(livres);
+				
+			for (int linha : VelhaBitboard.getLinhasPosicao(pos)) {
+				
+				int resto = linha & ~(1 << pos);
+				if ((resto & oponente) == 0 &&
+					Integer.bitCount(resto & meus) == marcas) {
+					
+					pesos += 1L << (pos * BITS_PESO);
+				}
+			}
+		}
+		return pesos;
+	}
+
+	/**
+	 * Seleciona dentre um conjunto de jogadas de ataque qual e' a melhor.
+	 * Caso nao haja uma melhor, sorteia uma. 
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @param jogador Jogador a ter a jogada analisada
+	 * @param jogadasPossiveis Mascara das jogadas possiveis
+	 * @param random Gerador de numeros aleatorios
+	 * @return Posicao da jogada no tabuleiro, ou -1 se nao ha' uma jogada
+	 *   possivel.
+	 */
+	private static int escolherMelhorJogada(int tabuleiro, char jogador,
+										   int jogadasPossiveis,
+										   Random random) {
+
+		/* nenhuma jogada possivel */
+		if (jogadasPossiveis == 0) { return -1; }
+		
+		/* so' uma jogada possivel */
+		if (Integer.bitCount(jogadasPossiveis) == 1) {
+			return Integer.numberOfTrailingZeros(jogadasPossiveis);
+		}
+		
+		int meus     = VelhaBitboard.getMascara(tabuleiro, jogador);
+		int oponente = VelhaBitboard.getMascara(tabuleiro, VelhaEngine.getOponente(jogador));
+
+		/* mais de uma jogada possivel */
+		/* verifica quais delas tem chance para formar um trio no futuro */
+		/* jogadas para formar uma dupla [2] */
+		long boasJogadas =
+			getMelhoresJogadas(jogadasPossiveis, meus, oponente, 1);
+		
+		/* se ha' jogadas, sorteia uma */
+		if (boasJogadas != 0L) {
+			return sortearJogada(boasJogadas, random);
+		}
+		
+		/* jogadas para iniciar um novo trio [1] */
+		boasJogadas = getMelhoresJogadas(jogadasPossiveis, meus, oponente, 0);
+	
+		/* se ha' jogadas, sorteia uma */
+		if (boasJogadas != 0L) {
+			return sortearJogada(boasJogadas, random);
+		}
+		
+		/* se nao ha' boas jogadas, sorteia qualquer uma das possiveis */
+		return selecionarBit(jogadasPossiveis,
+				random.nextInt(Integer.bitCount(jogadasPossiveis)));
+	}
+
+	/**
+	 * Sorteia uma jogada, com chance proporcional ao seu peso.
+	 * @param pesos Pesos das jogadas (ver @ref getMelhoresJogadas)
+	 * @param random Gerador de numeros aleatorios
+	 * @return Posicao da jogada sorteada.
+	 */
+	private static int sortearJogada(long pesos, Random random) {
+		int total = 0;
+		for (int pos = 0; pos < 9; pos++) {
+			total += (int) (pesos >>> (pos * BITS_PESO)) & MASCARA_PESO;
+		}
+		int sorteio = random.nextInt(total);
+		for (int pos = 0; pos < 9; pos++) {
+			sorteio -= (int) (pesos >>> (pos * BITS_PESO)) & MASCARA_PESO;
+			if (sorteio < 0) return pos;
+		}
+		return -1;
+	}
+
+	/**
+	 * Retorna a posicao do n-esimo bit marcado numa mascara.
+	 * @param mascara Mascara de posicoes
+	 * @param n Indice do bit marcado (a partir de 0)
+	 * @return Posicao do bit.
+	 */
+	private static int selecionarBit(int mascara, int n) {
+		for (int i = 0; i < n; i++) {
+			mascara &= mascara - 1;
+		}
+		return Integer.numberOfTrailingZeros(mascara);
+	}
+}
@@ -0,0 +1,113 @@
+package br.com.fiap.velha;
+
+/**
+ * Classe utilitaria com as 8 simetrias do tabuleiro (4 rotacoes e suas
+ * reflexoes). Tabuleiros que sao rotacoes ou reflexoes um do outro tem a
+ * mesma analise; por isso cada tabuleiro e' levado a uma forma canonica
+ * (a de menor valor entre as 8 simetrias) e a analise guardada sob essa
+ * chave e' trazida de volta para a orientacao original.
+ */
+public final class VelhaSimetria {
+
+	/** Quantidade de simetrias do tabuleiro. */
+	public static final int SIMETRIAS = 8;
+
+	/** Posicao de destino de cada posicao, para cada simetria. */
+	private static final int PERMUTACOES[][] = {
+			{0,1,2,3,4,5,6,7,8},	/* identidade */
+			{2,5,8,1,4,7,0,3,6},	/* rotacao 90 */
+			{8,7,6,5,4,3,2,1,0},	/* rotacao 180 */
+			{6,3,0,7,4,1,8,5,2},	/* rotacao 270 */
+			{2,1,0,5,4,3,8,7,6},	/* reflexao vertical */
+			{6,7,8,3,4,5,0,1,2},	/* reflexao horizontal */
+			{0,3,6,1,4,7,2,5,8},	/* reflexao na diagonal principal */
+			{8,5,2,7,4,1,6,3,0}		/* reflexao na diagonal secundaria */
+	};
+
+	/** Mascara transformada, por simetria e mascara de 9 bits. */
+	private static final short TRANSFORMADA[][] = new short[SIMETRIAS][512];
+	/** Mascara destransformada, por simetria e mascara de 9 bits. */
+	private static final short INVERSA[][] = new short[SIMETRIAS][512];
+
+	static {
+		for (int s = 0; s < SIMETRIAS; s++) {
+			for (int mascara = 0; mascara < 512; mascara++) {
+				int direta = 0;
+				int inversa = 0;
+				for (int pos = 0; pos < 9; pos++) {
+					if ((mascara & (1 << pos)) == 0) continue;
+					direta |= 1 << PERMUTACOES[s][pos];
+					for (int origem = 0; origem < 9; origem++) {
+						if (PERMUTACOES[s][origem] == pos) inversa |= 1 << origem;
+					}
+				}
+				TRANSFORMADA[s][mascara] = (short) direta;
+				INVERSA[s][mascara] = (short) inversa;
+			}
+		}
+	}
+
+	/* classe utilitaria, nao deve ser instanciada */
+	private VelhaSimetria() { }
+
+	/**
+	 * Aplica uma simetria a uma mascara de 9 bits.
+	 * @param mascara Mascara de posicoes
+	 * @param simetria Indice da simetria (0 a 7)
+	 * @return Mascara transformada.
+	 */
+	public static int transformarMascara(int mascara, int simetria) {
+		return TRANSFORMADA[simetria][mascara & VelhaBitboard.CHEIO];
+	}
+
+	/**
+	 * Desfaz uma simetria numa mascara de 9 bits, trazendo-a de volta para
+	 *   a orientacao original.
+	 * @param mascara Mascara de posicoes, na orientacao transformada
+	 * @param simetria Indice da simetria (0 a 7)
+	 * @return Mascara na orientacao original.
+	 */
+	public static int destransformarMascara(int mascara, int simetria) {
+		return INVERSA[simetria][mascara & VelhaBitboard.CHEIO];
+	}
+
+	/**
+	 * Aplica uma simetria a um tabuleiro.
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @param simetria Indice da simetria (0 a 7)
+	 * @return Tabuleiro transformado, em formato bitboard.
+	 */
+	public static int transformar(int tabuleiro, int simetria) {
+		short[] tabela = TRANSFORMADA[simetria];
+		return tabela[tabuleiro & VelhaBitboard.CHEIO] |
+			   (tabela[(tabuleiro >>> VelhaBitboard.SHIFT_O) & VelhaBitboard.CHEIO]
+					   << VelhaBitboard.SHIFT_O);
+	}
+
+	/**
+	 * Retorna a simetria que leva um tabuleiro 'a sua forma canonica.
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @return Indice da simetria (0 a 7).
+	 */
+	public static int getSimetriaCanonica(int tabuleiro) {
+		int melhor = 0;
+		int canonico = tabuleiro;
+		for (int s = 1; s < SIMETRIAS; s++) {
+			int transformado = transformar(tabuleiro, s);
+			if (transformado < canonico) {
+				canonico = transformado;
+				melhor = s;
+			}
+		}
+		return melhor;
+	}
+
+	/**
+	 * Retorna a forma canonica de um tabuleiro.
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @return Tabuleiro canonico, em formato bitboard.
+	 */
+	public static int canonizar(int tabuleiro) {
+		return transformar(tabuleiro, getSimetriaCanonica(tabuleiro));
+	}
+}
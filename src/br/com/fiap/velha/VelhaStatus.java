@@ -0,0 +1,121 @@
+package br.com.fiap.velha;
+
+import java.nio.charset.Charset;
+
+/**
+ * Enumeracao dos status do jogo (StatusJogoType do schema). Cada status
+ * guarda o seu nome nas mensagens XML, ja' codificado em UTF-8, e o seu
+ * codigo no codec binario, de forma que os codecs convertem os status
+ * sem criar nem comparar Strings.
+ */
+public enum VelhaStatus {
+
+	/** Status: E' a vez de jogar. */
+	JOGUE   ("jogue",   0),
+	/** Status: Aguarde a vez de jogar. */
+	AGUARDE ("aguarde", 1),
+	/** Status: Jogador ganhou. */
+	GANHOU  ("ganhou",  2),
+	/** Status: Jogador perdeu. */
+	PERDEU  ("perdeu",  3),
+	/** Status: Houve empate. */
+	EMPATE  ("empate",  4),
+	/** Status: Outro jogador abandonou a partida. */
+	WO      ("wo",      5);
+
+	/** Todos os status, na ordem dos codigos (sem copiar o vetor de values()). */
+	private static final VelhaStatus VALORES[] = values();
+
+	/** Nome do status nas mensagens XML. */
+	private final String nome;
+	/** Nome do status em UTF-8. */
+	private final byte[] bytes;
+	/** Codigo do status no codec binario. */
+	private final int codigo;
+
+	/**
+	 * Construtor.
+	 * @param nome Nome do status nas mensagens XML
+	 * @param codigo Codigo do status no codec binario
+	 */
+	private VelhaStatus(String nome, int codigo) {
+		this.nome   = nome;
+		this.bytes  = nome.getBytes(Charset.forName("UTF-8"));
+		this.codigo = codigo;
+	}
+
+	/**
+	 * Retorna o nome do status nas mensagens XML.
+	 * @return Nome do status.
+	 */
+	public String getNome() {
+		return nome;
+	}
+
+	/**
+	 * Retorna o codigo do status no codec binario.
+	 * @return Codigo do status.
+	 */
+	public int getCodigo() {
+		return codigo;
+	}
+
+	/**
+	 * Escreve o nome do status em UTF-8 num vetor de bytes.
+	 * @param destino Vetor de destino
+	 * @param i Indice do primeiro byte a escrever
+	 * @return Indice seguinte ao ultimo byte escrito.
+	 */
+	public int escrever(byte[] destino, int i) {
+		System.arraycopy(bytes, 0, destino, i, bytes.length);
+		return i + bytes.length;
+	}
+
+	/* retorna o nome do status */
+	@Override
+	public String toString() {
+		return nome;
+	}
+
+	/**
+	 * Retorna o status de um nome.
+	 * @param nome Nome do status nas mensagens XML
+	 * @return Status, ou null se o nome nao e' de nenhum status.
+	 */
+	public static VelhaStatus getStatus(String nome) {
+		for (VelhaStatus status : VALORES) {
+			if (status.nome.equals(nome)) return status;
+		}
+		return null;
+	}
+
+	/**
+	 * Retorna o status de um nome em UTF-8, sem criar String.
+	 * @param dados Vetor com os bytes do nome
+	 * @param inicio Indice do primeiro byte do nome
+	 * @param fim Indice seguinte ao ultimo byte do nome
+	 * @return Status, ou null se o nome nao e' de nenhum status.
+	 */
+	public static VelhaStatus getStatus(byte[] dados, int inicio, int fim) {
+		for (VelhaStatus status : VALORES) {
+			byte[] nome = status.bytes;
+			if (fim - inicio != nome.length) continue;
+			int j = 0;
+			while (j < nome.length && dados[inicio + j] == nome[j]) j++;
+			if (j == nome.length) return status;
+		}
+		return null;
+	}
+
+	/**
+	 * Retorna o status de um codigo do codec binario.
+	 * @param codigo Codigo do status
+	 * @return Status, ou null se o codigo nao e' de nenhum status.
+	 */
+	public static VelhaStatus getStatus(int codigo) {
+		for (VelhaStatus status : VALORES) {
+			if (status.codigo == codigo) return status;
+		}
+		return null;
+	}
+}
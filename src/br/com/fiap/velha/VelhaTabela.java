@@ -0,0 +1,100 @@
+package br.com.fiap.velha;
+
+/**
+ * Classe que implementa uma tabela pre-calculada de jogadas perfeitas.
+ * A tabela e' montada na carga da classe, resolvendo por minimax todos os
+ * estados alcancaveis a partir do tabuleiro vazio (comecando por qualquer
+ * um dos jogadores), e guarda para cada um deles a mascara (ver
+ * @ref VelhaBitboard) com todas as jogadas otimas.
+ * Os estados sao guardados na forma canonica (ver @ref VelhaSimetria), o
+ * que reduz a tabela a algumas centenas de entradas; as jogadas lidas sao
+ * trazidas de volta para a orientacao do tabuleiro consultado.
+ */
+public final class VelhaTabela {
+
+	/** Deslocamento do valor minimax dentro de uma entrada da tabela. */
+	private static final int SHIFT_VALOR = 9;
+
+	/** Estados resolvidos: chave canonica -> (valor + 1) e melhores jogadas. */
+	private static final VelhaTransposicao TABELA = new VelhaTransposicao(4096);
+
+	static {
+		resolver(VelhaBitboard.VAZIO, VelhaEngine.JOGADOR_X);
+		resolver(VelhaBitboard.VAZIO, VelhaEngine.JOGADOR_O);
+	}
+
+	/* classe utilitaria, nao deve ser instanciada */
+	private VelhaTabela() { }
+
+	/**
+	 * Retorna todas as jogadas otimas para um jogador.
+	 * @param tabuleiro Tabuleiro em formato bitboard
+	 * @param jogador Jogador da vez (@ref VelhaEngine#JOGADOR_X ou
+	 *   @ref VelhaEngine#JOGADOR_O)
+	 * @return Mascara com as jogadas otimas, ou 0 se o jogo terminou, o
+	 *   jogador nao e' valido ou o estado nao e' alcancavel numa partida.
+	 */
+	public static int getMelhoresJogadas(int tabuleiro, char jogador) {
+		if (jogador != VelhaEngine.JOGADOR_X && jogador != VelhaEngine.JOGADOR_O) {
+			return 0;
+		}
+		int simetria = VelhaSimetria.getSimetriaCanonica(tabuleiro);
+		int canonico = VelhaSimetria.transformar(tabuleiro, simetria);
+		int entrada  = TABELA.get(VelhaTransposicao.getChave(canonico, jogador), 0);
+		return VelhaSimetria.destransformarMascara(
+				entrada & VelhaBitboard.CHEIO, simetria);
+	}
+
+	/**
+	 * Retorna a quantidade de estados canonicos guardados na tabela.
+	 * @return Quantidade de estados.
+	 */
+	public static int getTamanho() {
+		return TABELA.getTamanho();
+	}
+
+	/**
+	 * Resolve um estado canonico por minimax, guardando o valor e as
+	 * melhores jogadas do jogador da vez.
+	 * @param canonico Tabuleiro canonico em formato bitboard
+	 * @param jogador Jogador da vez
+	 * @return Valor do estado para o jogador da vez (-1, 0 ou 1).
+	 */
+	private static int resolver(int canonico, char jogador) {
+		int chave = VelhaTransposicao.getChave(canonico, jogador);
+		if (TABELA.contem(chave)) {
+			return (TABELA.get(chave, 0) >>> SHIFT_VALOR) - 1;
+		}
+
+		int meus     = VelhaBitboard.getMascara(canonico, jogador);
+		int oponente = VelhaBitboard.getMascara(canonico,
+				VelhaEngine.getOponente(jogador));
+		int vazias   = VelhaBitboard.getVazias(canonico);
+
+		int melhorValor = 0;
+		int melhores    = 0;
+
+		if (VelhaBitboard.isGanhador(oponente)) {
+			melhorValor = -1;
+		} else if (VelhaBitboard.isGanhador(meus)) {
+			melhorValor = 1;
+		} else if (vazias != 0) {
+			melhorValor = -2;
+			for (int livres = vazias; livres != 0; livres &= livres - 1) {
+				int pos = Integer.numberOfTrailingZeros(livres);
+				int filho = VelhaBitboard.setPosicao(canonico, pos, jogador);
+				int valor = -resolver(VelhaSimetria.canonizar(filho),
+						VelhaEngine.getOponente(jogador));
+				if (valor > melhorValor) {
+					melhorValor = valor;
+					melhores = 1 << pos;
+				} else if (valor == melhorValor) {
+					melhores |= 1 << pos;
+				}
+			}
+		}
+
+		TABELA.put(chave, ((melhorValor + 1) << SHIFT_VALOR) | melhores);
+		return melhorValor;
+	}
+}
@@ -0,0 +1,94 @@
+package br.com.fiap.velha;
+
+/**
+ * Interface que define as operacoes de uma partida de Jogo da Velha,
+ * independente do tamanho do tabuleiro. E' implementada pela
+ * @ref VelhaEngine (3x3) e pela @ref VelhaEngineMNK (NxN, k em linha).
+ * As posicoes sao numeradas linha a linha, de 0 a (tamanho * tamanho - 1).
+ */
+public interface VelhaTabuleiro {
+
+	/**
+	 * Retorna o tamanho do lado do tabuleiro.
+	 * @return Quantidade de linhas (e de colunas) do tabuleiro.
+	 */
+	public int getTamanho();
+
+	/**
+	 * Retorna o Nivel de inteligencia do robot.
+	 * @return Nivel de inteligencia (0 a 10).
+	 */
+	public int getNivel();
+
+	/**
+	 * Configura o Nivel de inteligencia do robot.
+	 * @param nivel Nivel de inteligencia (0 a 10).
+	 */
+	public void setNivel(int nivel);
+
+	/**
+	 * Retorna uma posicao no tabuleiro.
+	 * @param pos Posicao no tabuleiro
+	 * @return Jogador marcado na posicao ou @ref VelhaEngine#JOGADOR_VAZIO
+	 *   se nao houver.
+	 */
+	public char getPosicao(int pos);
+
+	/**
+	 * Altera uma posicao no tabuleiro.
+	 * @param pos Posicao no tabuleiro
+	 * @param jogador Jogador a ser marcado na posicao
+	 *   (@ref VelhaEngine#JOGADOR_X ou @ref VelhaEngine#JOGADOR_O)
+	 */
+	public void setPosicao(int pos, char jogador);
+
+	/**
+	 * Retorna o tabuleiro.
+	 * @return Vetor que representa o tabuleiro.
+	 */
+	public char[] getTabuleiro();
+
+	/**
+	 * Copia um vetor para o tabuleiro.
+	 * @param from Vetor origem, com a representacao de um tabuleiro
+	 *   (tamanho * tamanho posicoes).
+	 */
+	public void copiarTabuleiro(char[] from);
+
+	/**
+	 * Limpa o tabuleiro, marcando todas as posicoes com
+	 * @ref VelhaEngine#JOGADOR_VAZIO.
+	 */
+	public void limparTabuleiro();
+
+	/**
+	 * Verifica se o jogo terminou (um jogador ganhou ou deu empate).
+	 * @return True se o jogo terminou, false se nao.
+	 */
+	public boolean isGameOver();
+
+	/**
+	 * Retorna o jogador ganhador.
+	 * @return Jogador que ganhou (@ref VelhaEngine#JOGADOR_X ou
+	 *   @ref VelhaEngine#JOGADOR_O), ou @ref VelhaEngine#JOGADOR_VAZIO se
+	 *   nenhum jogador ganhou.
+	 */
+	public char getGanhador();
+
+	/**
+	 * Retorna as posicoes da linha ganhadora, em ordem.
+	 * @return Vetor com as posicoes da linha ganhadora (somente para
+	 *   leitura), ou null se nenhum jogador ganhou.
+	 */
+	public int[] getLinhaGanhadora();
+
+	/**
+	 * Retorna a proxima jogada para um jogador.
+	 * @param jogador Jogador a ser verificada a proxima jogada
+	 *  (@ref VelhaEngine#JOGADOR_X ou @ref VelhaEngine#JOGADOR_O)
+	 * @return Posicao no tabuleiro onde deve ser a proxima jogada, ou -1 se
+	 *  nao ha' mais posicoes disponiveis no tabuleiro.
+	 */
+	public int getJogada(char jogador);
+
+}
@@ -0,0 +1,140 @@
+package br.com.fiap.velha;
+
+/**
+ * Enumeracao das estrategias de jogo que podem ser escolhidas para um robot
+ * (por exemplo, na configuracao de cada sessao). Cada tipo define a
+ * estrategia do tabuleiro 3x3 (@ref VelhaEstrategia) e a dos tabuleiros NxN
+ * (@ref VelhaEstrategiaMNK); as estrategias sem estado sao compartilhadas
+ * por todas as logicas. O orcamento das buscas MCTS (tempo, playouts e
+ * paralelismo) vale para as logicas criadas depois de alterado (ver
+ * @ref setOrcamentoMCTS).
+ */
+public enum VelhaTipoEstrategia {
+
+	/** Regras da "Jogada Perfeita" no 3x3; busca limitada no NxN. */
+	REGRAS {
+		@Override
+		public VelhaEstrategia criarEstrategia() {
+			return Compartilhadas.REGRAS;
+		}
+	},
+
+	/** Regras com a tabela pre-calculada no 3x3; busca limitada no NxN. */
+	TABELA {
+		@Override
+		public VelhaEstrategia criarEstrategia() {
+			return Compartilhadas.TABELA;
+		}
+	},
+
+	/** Negamax completo no 3x3; busca limitada no NxN. */
+	NEGAMAX {
+		@Override
+		public VelhaEstrategia criarEstrategia() {
+			return Compartilhadas.NEGAMAX;
+		}
+	},
+
+	/** Negamax completo no 3x3; Monte Carlo Tree Search no NxN. */
+	MCTS {
+		@Override
+		public VelhaEstrategia criarEstrategia() {
+			return Compartilhadas.NEGAMAX;
+		}
+
+		@Override
+		public VelhaEstrategiaMNK criarEstrategiaMNK() {
+			return new VelhaMCTS(tempoMCTS, playoutsMCTS, paralelismoMCTS);
+		}
+	};
+
+	/* orcamento das novas buscas MCTS */
+	private static volatile long tempoMCTS       = VelhaMCTS.TEMPO_PADRAO;
+	private static volatile long playoutsMCTS    = VelhaMCTS.PLAYOUTS_PADRAO;
+	private static volatile int  paralelismoMCTS =
+		Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Altera o orcamento das buscas MCTS das logicas criadas (ou com a
+	 *   estrategia aplicada) a partir de agora.
+	 * @param tempo Tempo maximo de busca por jogada, em ms (0 = sem limite)
+	 * @param playouts Quantidade maxima de playouts por jogada
+	 *   (0 = sem limite)
+	 * @param paralelismo Quantidade de tarefas de busca simultaneas
+	 * @throws IllegalArgumentException se nao ha' limite de tempo nem de
+	 *   playouts, ou o paralelismo e' menor que 1
+	 */
+	public static void setOrcamentoMCTS(long tempo, long playouts,
+										int paralelismo) {
+		if (tempo <= 0 && playouts <= 0) {
+			throw new IllegalArgumentException(
+					"Orcamento invalido: informe tempo ou playouts");
+		}
+		if (paralelismo < 1) {
+			throw new IllegalArgumentException(
+					"paralelismo < 1: " + paralelismo);
+		}
+		tempoMCTS       = tempo;
+		playoutsMCTS    = playouts;
+		paralelismoMCTS = paralelismo;
+	}
+
+	/**
+	 * Retorna a estrategia do tabuleiro 3x3.
+	 * @return Estrategia de jogo.
+	 */
+	public abstract VelhaEstrategia criarEstrategia();
+
+	/**
+	 * Retorna a estrategia dos tabuleiros NxN.
+	 * @return Estrategia de jogo.
+	 */
+	public VelhaEstrategiaMNK criarEstrategiaMNK() {
+		return Compartilhadas.BUSCA_MNK;
+	}
+
+	/**
+	 * Cria a logica do Jogo da Velha para um tamanho de tabuleiro, com esta
+	 *   estrategia.
+	 * @param tamanho Tamanho do lado do tabuleiro
+	 * @return @ref VelhaEngine no 3x3, ou @ref VelhaEngineMNK com a
+	 *   quantidade padrao de marcas em linha nos demais.
+	 */
+	public VelhaTabuleiro criarEngine(int tamanho) {
+		if (tamanho == 3) {
+			VelhaEngine engine = new VelhaEngine();
+			engine.setEstrategia(criarEstrategia());
+			return engine;
+		}
+		VelhaEngineMNK engine = new VelhaEngineMNK(tamanho,
+				VelhaEngineMNK.getSequenciaPadrao(tamanho));
+		engine.setEstrategia(criarEstrategiaMNK());
+		return engine;
+	}
+
+	/**
+	 * Aplica esta estrategia a uma logica ja' criada.
+	 * @param engine Logica do Jogo da Velha (@ref VelhaEngine ou
+	 *   @ref VelhaEngineMNK)
+	 */
+	public void aplicar(VelhaTabuleiro engine) {
+		if (engine instanceof VelhaEngine) {
+			((VelhaEngine) engine).setEstrategia(criarEstrategia());
+		} else if (engine instanceof VelhaEngineMNK) {
+			((VelhaEngineMNK) engine).setEstrategia(criarEstrategiaMNK());
+		}
+	}
+
+	/** Estrategias sem estado, compartilhadas (criadas no primeiro uso). */
+	private static final class Compartilhadas {
+
+		/** Regras sem tabela. */
+		static final VelhaEstrategia    REGRAS    = new VelhaRegras();
+		/** Regras com tabela. */
+		static final VelhaEstrategia    TABELA    = new VelhaRegras(true);
+		/** Negamax (tabela de transposicao por thread). */
+		static final VelhaEstrategia    NEGAMAX   = new VelhaNegamax();
+		/** Busca limitada NxN. */
+		static final VelhaEstrategiaMNK BUSCA_MNK = new VelhaBuscaMNK();
+	}
+}
@@ -0,0 +1,136 @@
+package br.com.fiap.velha;
+
+import java.util.Arrays;
+
+/**
+ * Classe que implementa uma tabela de transposicao: um mapa compacto de
+ * chave int para valor int, com enderecamento aberto e sondagem linear.
+ * As chaves sao tabuleiros canonicos (ver @ref VelhaSimetria), com o
+ * jogador da vez no bit @ref VEZ_DE_O, o que mantem a tabela pequena o
+ * bastante para caber no cache do processador.
+ * Nao e' thread-safe para escrita; depois de preenchida pode ser lida por
+ * varias threads.
+ */
+public class VelhaTransposicao {
+
+	/** Bit da chave que indica que e' a vez do Jogador O. */
+	public static final int VEZ_DE_O = 1 << 18;
+
+	/** Valor de uma posicao livre da tabela (chave invalida). */
+	private static final int LIVRE = -1;
+
+	/** Chaves armazenadas. */
+	private int chaves[];
+	/** Valores armazenados. */
+	private int valores[];
+	/** Mascara de enderecamento (capacidade - 1). */
+	private int mascara;
+	/** Quantidade de entradas. */
+	private int tamanho = 0;
+
+	/**
+	 * Construtor.
+	 * @param capacidade Capacidade inicial (arredondada para potencia de 2)
+	 */
+	public VelhaTransposicao(int capacidade) {
+		int potencia = Integer.highestOneBit(Math.max(capacidade, 16) - 1) << 1;
+		chaves  = new int[potencia];
+		valores = new int[potencia];
+		mascara = potencia - 1;
+		Arrays.fill(chaves, LIVRE);
+	}
+
+	/**
+	 * Monta a chave de um tabuleiro canonico.
+	 * @param canonico Tabuleiro canonico em formato bitboard
+	 * @param jogador Jogador da vez
+	 * @return Chave para a tabela.
+	 */
+	public static int getChave(int canonico, char jogador) {
+		return (jogador == VelhaEngine.JOGADOR_O) ? (canonico | VEZ_DE_O)
+												  : canonico;
+	}
+
+	/**
+	 * Verifica se a tabela contem uma chave.
+	 * @param chave Chave (ver @ref getChave)
+	 * @return True se contem, false se nao.
+	 */
+	public boolean contem(int chave) {
+		return chaves[getSlot(chave)] == chave;
+	}
+
+	/**
+	 * Retorna o valor de uma chave.
+	 * @param chave Chave (ver @ref getChave)
+	 * @param padrao Valor retornado se a chave nao existir
+	 * @return Valor armazenado, ou o padrao.
+	 */
+	public int get(int chave, int padrao) {
+		int slot = getSlot(chave);
+		return (chaves[slot] == chave) ? valores[slot] : padrao;
+	}
+
+	/**
+	 * Armazena o valor de uma chave.
+	 * @param chave Chave (ver @ref getChave)
+	 * @param valor Valor
+	 */
+	public void put(int chave, int valor) {
+		int slot = getSlot(chave);
+		if (chaves[slot] != chave) {
+			chaves[slot] = chave;
+			if (++tamanho * 2 > chaves.length) {
+				valores[slot] = valor;
+				crescer();
+				return;
+			}
+		}
+		valores[slot] = valor;
+	}
+
+	/**
+	 * Retorna a quantidade de entradas.
+	 * @return Quantidade de entradas.
+	 */
+	public int getTamanho() {
+		return tamanho;
+	}
+
+	/** Remove todas as entradas. */
+	public void limpar() {
+		Arrays.fill(chaves, LIVRE);
+		tamanho = 0;
+	}
+
+	/**
+	 * Retorna a posicao da tabela onde a chave esta' ou deveria estar.
+	 * @param chave Chave
+	 * @return Indice nos vetores.
+	 */
+	private int getSlot(int chave) {
+		int hash = chave * 0x9E3779B1;
+		int slot = (hash ^ (hash >>> 16)) & mascara;
+		while (chaves[slot] != LIVRE && chaves[slot] != chave) {
+			slot = (slot + 1) & mascara;
+		}
+		return slot;
+	}
+
+	/** Dobra a capacidade da tabela. */
+	private void crescer() {
+		int antigasChaves[]  = chaves;
+		int antigosValores[] = valores;
+		chaves  = new int[antigasChaves.length * 2];
+		valores = new int[antigasChaves.length * 2];
+		mascara = chaves.length - 1;
+		Arrays.fill(chaves, LIVRE);
+		for (int i = 0; i < antigasChaves.length; i++) {
+			if (antigasChaves[i] != LIVRE) {
+				int slot = getSlot(antigasChaves[i]);
+				chaves[slot]  = antigasChaves[i];
+				valores[slot] = antigosValores[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package br.com.fiap.velha.client;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Classe que representa o atraso do robot antes de enviar uma jogada (para
+ * "parecer humano"): nenhum, fixo ou sorteado num intervalo. O atraso nao
+ * bloqueia a thread de IO: a jogada e' agendada (ver @ref VelhaRobot e
+ * @ref VelhaFazenda). Objetos imutaveis.
+ */
+public class VelhaAtraso {
+
+	/** Sem atraso: a jogada e' enviada assim que calculada. */
+	public static final VelhaAtraso NENHUM = new VelhaAtraso(0);
+
+	/** Atraso minimo, em ms. */
+	private final long minimo;
+	/** Atraso maximo, em ms. */
+	private final long maximo;
+
+	/**
+	 * Construtor de um atraso fixo.
+	 * @param atraso Atraso, em ms (0 = nenhum)
+	 * @throws IllegalArgumentException se o atraso e' negativo
+	 */
+	public VelhaAtraso(long atraso) {
+		this(atraso, atraso);
+	}
+
+	/**
+	 * Construtor de um atraso sorteado (uniforme) num intervalo.
+	 * @param minimo Atraso minimo, em ms
+	 * @param maximo Atraso maximo, em ms
+	 * @throws IllegalArgumentException se o intervalo e' invalido
+	 */
+	public VelhaAtraso(long minimo, long maximo) {
+		if (minimo < 0 || maximo < minimo) {
+			throw new IllegalArgumentException(
+					"Atraso invalido: " + minimo + "-" + maximo);
+		}
+		this.minimo = minimo;
+		this.maximo = maximo;
+	}
+
+	/**
+	 * Cria um atraso a partir de um texto: "ms" (fixo) ou "min-max"
+	 *   (sorteado), em ms.
+	 * @param texto Texto com o atraso
+	 * @return Objeto VelhaAtraso.
+	 * @throws IllegalArgumentException se o texto e' invalido
+	 */
+	public static VelhaAtraso valueOf(String texto) {
+		try {
+			int traco = texto.indexOf('-');
+			if (traco < 0) return new VelhaAtraso(Long.parseLong(texto.trim()));
+			return new VelhaAtraso(
+					Long.parseLong(texto.substring(0, traco).trim()),
+					Long.parseLong(texto.substring(traco + 1).trim()));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Atraso invalido: " + texto);
+		}
+	}
+
+	/**
+	 * Sorteia o atraso de uma jogada.
+	 * @return Atraso, em ms (0 = nenhum).
+	 */
+	public long getAtraso() {
+		if (minimo == maximo) return minimo;
+		return minimo + ThreadLocalRandom.current().nextLong(maximo - minimo + 1);
+	}
+
+	/**
+	 * Verifica se nao ha' atraso.
+	 * @return True se a jogada e' enviada assim que calculada.
+	 */
+	public boolean isNenhum() {
+		return maximo == 0;
+	}
+
+	/**
+	 * Retorna o atraso minimo.
+	 * @return Atraso minimo, em ms.
+	 */
+	public long getMinimo() {
+		return minimo;
+	}
+
+	/**
+	 * Retorna o atraso maximo.
+	 * @return Atraso maximo, em ms.
+	 */
+	public long getMaximo() {
+		return maximo;
+	}
+
+	/**
+	 * Retorna o atraso no formato de @ref valueOf.
+	 * @return "ms" ou "min-max".
+	 */
+	@Override
+	public String toString() {
+		return (minimo == maximo) ? String.valueOf(minimo) : minimo + "-" + maximo;
+	}
+}
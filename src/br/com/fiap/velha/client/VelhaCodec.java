@@ -0,0 +1,49 @@
+package br.com.fiap.velha.client;
+
+import br.com.fiap.velha.VelhaBean;
+
+/**
+ * Interface que define um codec das mensagens trocadas com o servidor:
+ * converte um @ref VelhaBean para bytes e vice-versa. O codec usado numa
+ * conexao e' combinado com o servidor na abertura da sessao (ver
+ * @ref VelhaNegociacao). As implementacoes nao sao thread-safe: use uma
+ * instancia por sessao.
+ */
+public interface VelhaCodec {
+
+	/**
+	 * Retorna o nome do codec, usado na negociacao.
+	 * @return Nome do codec.
+	 */
+	public String getNome();
+
+	/**
+	 * Decodifica uma mensagem para um @ref VelhaBean.
+	 * @param dados Vetor com os bytes da mensagem
+	 * @param inicio Indice do primeiro byte da mensagem
+	 * @param fim Indice seguinte ao ultimo byte da mensagem
+	 * @param velhaBean Bean que recebe a mensagem (reutilizavel)
+	 * @return True se a mensagem foi decodificada, false se e' invalida.
+	 */
+	public boolean decodificar(byte[] dados, int inicio, int fim,
+							   VelhaBean velhaBean);
+
+	/**
+	 * Codifica um @ref VelhaBean num vetor de bytes.
+	 * @param velhaBean Objeto da classe @ref VelhaBean
+	 * @param destino Vetor de destino, com pelo menos
+	 *   @ref getTamanhoMaximo bytes a partir de inicio
+	 * @param inicio Indice do primeiro byte a escrever
+	 * @return Indice seguinte ao ultimo byte escrito, ou -1 se o bean nao
+	 *   pode ser codificado (valor invalido ou tabuleiro nao suportado).
+	 */
+	public int codificar(VelhaBean velhaBean, byte[] destino, int inicio);
+
+	/**
+	 * Retorna o tamanho maximo de uma mensagem, para dimensionar um buffer.
+	 * @param posicoes Quantidade de posicoes do tabuleiro
+	 * @return Tamanho maximo, em bytes.
+	 */
+	public int getTamanhoMaximo(int posicoes);
+
+}
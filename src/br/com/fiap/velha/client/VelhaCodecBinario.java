@@ -0,0 +1,84 @@
+package br.com.fiap.velha.client;
+
+import br.com.fiap.velha.VelhaBean;
+import br.com.fiap.velha.VelhaCompacto;
+
+/**
+ * Classe que implementa o codec binario compacto do tabuleiro 3x3: a
+ * mensagem inteira cabe em 4 bytes (um int big-endian), em vez de ~250
+ * bytes de XML:
+ * - bit 31: marca de mensagem binaria (sempre 1, o que a distingue de uma
+ *   mensagem XML, que comeca com '<');
+ * - bits 26..30: reservados (0);
+ * - bits 0..25: a mensagem no formato de @ref VelhaCompacto (id, status,
+ *   jogada e tabuleiro).
+ * Tabuleiros maiores que 3x3 nao sao suportados; nesse caso a mensagem
+ * deve ir em XML.
+ */
+public class VelhaCodecBinario implements VelhaCodec {
+
+	/** Nome do codec. */
+	public static final String NOME = "bin";
+
+	/** Tamanho de uma mensagem, em bytes. */
+	public static final int TAMANHO = 4;
+
+	/** Marca de mensagem binaria. */
+	private static final int MARCA = 1 << 31;
+
+	/* implementado de VelhaCodec */
+	@Override
+	public String getNome() {
+		return NOME;
+	}
+
+	/**
+	 * Verifica se uma mensagem esta' no formato binario.
+	 * @param primeiro Primeiro byte da mensagem
+	 * @return True se a mensagem e' binaria, false se nao.
+	 */
+	public static boolean isBinario(byte primeiro) {
+		return (primeiro & 0x80) != 0;
+	}
+
+	/* implementado de VelhaCodec */
+	@Override
+	public boolean decodificar(byte[] dados, int inicio, int fim,
+							   VelhaBean velhaBean) {
+		if (fim - inicio != TAMANHO) return false;
+		int valor = ((dados[inicio]     & 0xFF) << 24) |
+					((dados[inicio + 1] & 0xFF) << 16) |
+					((dados[inicio + 2] & 0xFF) <<  8) |
+					 (dados[inicio + 3] & 0xFF);
+
+		/* confere a marca e os campos */
+		if ((valor & MARCA) == 0) return false;
+		long compacto = valor & ~MARCA;
+		if (!VelhaCompacto.isValido(compacto)) return false;
+
+		/* copia para o bean */
+		VelhaCompacto.toBean(compacto, velhaBean);
+		return true;
+	}
+
+	/* implementado de VelhaCodec */
+	@Override
+	public int codificar(VelhaBean velhaBean, byte[] destino, int inicio) {
+		long compacto = VelhaCompacto.fromBean(velhaBean);
+		if (compacto == VelhaCompacto.NENHUM) return -1;
+		int valor = MARCA | (int) compacto;
+
+		/* escreve em big-endian */
+		destino[inicio]     = (byte) (valor >>> 24);
+		destino[inicio + 1] = (byte) (valor >>> 16);
+		destino[inicio + 2] = (byte) (valor >>>  8);
+		destino[inicio + 3] = (byte)  valor;
+		return inicio + TAMANHO;
+	}
+
+	/* implementado de VelhaCodec */
+	@Override
+	public int getTamanhoMaximo(int posicoes) {
+		return TAMANHO;
+	}
+}
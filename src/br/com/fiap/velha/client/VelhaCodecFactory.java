@@ -0,0 +1,277 @@
+package br.com.fiap.velha.client;
+
+import java.nio.charset.Charset;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.filter.codec.CumulativeProtocolDecoder;
+import org.apache.mina.filter.codec.ProtocolCodecFactory;
+import org.apache.mina.filter.codec.ProtocolDecoder;
+import org.apache.mina.filter.codec.ProtocolDecoderException;
+import org.apache.mina.filter.codec.ProtocolDecoderOutput;
+import org.apache.mina.filter.codec.ProtocolEncoder;
+import org.apache.mina.filter.codec.ProtocolEncoderAdapter;
+import org.apache.mina.filter.codec.ProtocolEncoderOutput;
+
+import br.com.fiap.velha.VelhaBean;
+import br.com.fiap.velha.VelhaCache;
+
+/**
+ * Classe que implementa a fabrica de codecs MINA do Jogo da Velha: as
+ * mensagens sao separadas e decodificadas direto do @ref IoBuffer para
+ * objetos @ref VelhaBean (e codificadas de volta), sem passar por String.
+ * Formato das mensagens no socket:
+ * - XML e linhas de negociacao (ver @ref VelhaNegociacao): uma linha
+ *   terminada por '\n' ('\r' opcional);
+ * - binario (ver @ref VelhaCodecBinario): 4 bytes, sem fim de linha; o
+ *   primeiro byte tem o bit mais alto ligado, o que nunca acontece no
+ *   inicio de uma linha de texto.
+ * Objetos entregues ao handler: @ref VelhaBean para as mensagens do jogo e
+ * String para as linhas de negociacao. Objetos aceitos para envio: os
+ * mesmos; o bean vai no codec guardado no atributo @ref ATRIBUTO_CODEC da
+ * sessao (XML se nao houver).
+ * Um @ref VelhaCache opcional, compartilhado pelas sessoes, guarda as
+ * mensagens XML ja' decodificadas. O cache pode ser trocado com a fabrica
+ * em uso: cada decodificador fica com o cache da criacao da sua sessao, e
+ * o novo vale a partir das proximas sessoes (sem perder os bytes ja'
+ * acumulados pelos decodificadores das sessoes abertas).
+ */
+public class VelhaCodecFactory implements ProtocolCodecFactory {
+
+	/** Atributo da sessao com o nome do codec de envio dos beans. */
+	public static final String ATRIBUTO_CODEC =
+		VelhaCodecFactory.class.getName() + ".codec";
+
+	/** Tamanho maximo de uma linha, em bytes. */
+	private static final int TAMANHO_MAXIMO_LINHA = 64 * 1024;
+
+	/** Charset das mensagens. */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** Prefixo das linhas de negociacao, em bytes. */
+	private static final byte[] PREFIXO_NEGOCIACAO =
+		VelhaNegociacao.PREFIXO.getBytes(UTF8);
+
+	/** Cache das mensagens XML decodificadas (opcional). */
+	private volatile VelhaCache velhaCache;
+
+	/** Construtor default (sem cache). */
+	public VelhaCodecFactory() {
+		this(null);
+	}
+
+	/**
+	 * Construtor.
+	 * @param cache Cache das mensagens XML decodificadas, compartilhado
+	 *   pelas sessoes, ou null para nenhum
+	 */
+	public VelhaCodecFactory(VelhaCache cache) {
+		this.velhaCache = cache;
+	}
+
+	/**
+	 * Troca o cache das mensagens XML decodificadas, a partir das proximas
+	 *   sessoes.
+	 * @param cache Cache compartilhado pelas sessoes, ou null para nenhum
+	 */
+	public void setCache(VelhaCache cache) {
+		this.velhaCache = cache;
+	}
+
+	/* implementado de ProtocolCodecFactory */
+	@Override
+	public ProtocolEncoder getEncoder(IoSession session) {
+		return new Codificador();
+	}
+
+	/* implementado de ProtocolCodecFactory */
+	@Override
+	public ProtocolDecoder getDecoder(IoSession session) {
+		return new Decodificador(velhaCache);
+	}
+
+	/**
+	 * Decodificador (um por sessao). Os bytes sao lidos direto do vetor do
+	 * IoBuffer; so' se o buffer nao tiver vetor (direto) a mensagem e'
+	 * copiada, para um vetor reutilizavel.
+	 */
+	private static class Decodificador extends CumulativeProtocolDecoder {
+
+		/** Codec das mensagens XML. */
+		private final VelhaCodec codecXML;
+		/** Codec das mensagens binarias. */
+		private final VelhaCodec codecBinario = new VelhaCodecBinario();
+		/** Vetor reutilizavel, para buffers sem vetor. */
+		private byte[] copia = new byte[256];
+
+		/**
+		 * Construtor.
+		 * @param cache Cache das mensagens XML decodificadas, ou null
+		 */
+		Decodificador(VelhaCache cache) {
+			codecXML = new VelhaCodecXML(cache);
+		}
+
+		/* implementado de CumulativeProtocolDecoder */
+		@Override
+		protected boolean doDecode(IoSession session, IoBuffer in,
+								   ProtocolDecoderOutput out)
+				throws ProtocolDecoderException {
+			int inicio = in.position();
+			int limite = in.limit();
+			if (inicio >= limite) return false;
+
+			/* mensagem binaria: tamanho fixo */
+			if (VelhaCodecBinario.isBinario(in.get(inicio))) {
+				if (limite - inicio < VelhaCodecBinario.TAMANHO) return false;
+				decodificar(in, inicio, inicio + VelhaCodecBinario.TAMANHO,
+							codecBinario, out);
+				in.position(inicio + VelhaCodecBinario.TAMANHO);
+				return true;
+			}
+
+			/* linha de texto: procura o fim de linha */
+			int fimLinha = -1;
+			for (int i = inicio; i < limite; i++) {
+				if (in.get(i) == '\n') {
+					fimLinha = i;
+					break;
+				}
+			}
+			if (fimLinha < 0) {
+				if (limite - inicio > TAMANHO_MAXIMO_LINHA) {
+					in.position(limite);
+					throw new ProtocolDecoderException(
+							"Linha maior que " + TAMANHO_MAXIMO_LINHA + " bytes");
+				}
+				return false;
+			}
+			int fim = fimLinha;
+			if (fim > inicio && in.get(fim - 1) == '\r') fim--;
+
+			/* linhas em branco sao ignoradas */
+			if (fim > inicio) decodificar(in, inicio, fim, codecXML, out);
+			in.position(fimLinha + 1);
+			return true;
+		}
+
+		/**
+		 * Decodifica uma mensagem e a entrega ao handler. Mensagens invalidas
+		 *   sao descartadas.
+		 * @param in Buffer com a mensagem
+		 * @param inicio Posicao do primeiro byte da mensagem no buffer
+		 * @param fim Posicao seguinte ao ultimo byte da mensagem no buffer
+		 * @param codec Codec da mensagem
+		 * @param out Saida do decodificador
+		 */
+		private void decodificar(IoBuffer in, int inicio, int fim,
+								 VelhaCodec codec, ProtocolDecoderOutput out) {
+			byte[] dados;
+			int deslocamento;
+			if (in.hasArray()) {
+				dados = in.array();
+				deslocamento = in.arrayOffset();
+			} else {
+				if (copia.length < fim - inicio) copia = new byte[fim - inicio];
+				for (int i = inicio; i < fim; i++) copia[i - inicio] = in.get(i);
+				dados = copia;
+				deslocamento = -inicio;
+			}
+			int ini = inicio + deslocamento;
+			int fin = fim + deslocamento;
+
+			/* linha de negociacao: entregue como String */
+			if (isNegociacao(dados, ini, fin)) {
+				out.write(new String(dados, ini, fin - ini, UTF8));
+				return;
+			}
+			VelhaBean velhaBean = new VelhaBean();
+			if (codec.decodificar(dados, ini, fin, velhaBean)) {
+				out.write(velhaBean);
+			}
+		}
+
+		/**
+		 * Verifica se uma linha e' de negociacao.
+		 * @param dados Vetor com os bytes da linha
+		 * @param inicio Indice do primeiro byte da linha
+		 * @param fim Indice seguinte ao ultimo byte da linha
+		 * @return True se a linha comeca com o prefixo de negociacao.
+		 */
+		private static boolean isNegociacao(byte[] dados, int inicio, int fim) {
+			if (fim - inicio < PREFIXO_NEGOCIACAO.length) return false;
+			for (int i = 0; i < PREFIXO_NEGOCIACAO.length; i++) {
+				if (dados[inicio + i] != PREFIXO_NEGOCIACAO[i]) return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Codificador (um por sessao). O bean e' escrito direto no vetor do
+	 * IoBuffer de saida.
+	 */
+	private static class Codificador extends ProtocolEncoderAdapter {
+
+		/** Codec das mensagens XML. */
+		private final VelhaCodec codecXML     = new VelhaCodecXML();
+		/** Codec das mensagens binarias. */
+		private final VelhaCodec codecBinario = new VelhaCodecBinario();
+
+		/* implementado de ProtocolEncoderAdapter */
+		@Override
+		public void encode(IoSession session, Object message,
+						   ProtocolEncoderOutput out) {
+			IoBuffer buffer;
+			if (message instanceof VelhaBean) {
+				buffer = codificar(session, (VelhaBean) message);
+				if (buffer == null) return;
+			} else {
+				byte[] linha = message.toString().getBytes(UTF8);
+				buffer = IoBuffer.allocate(linha.length + 1, false);
+				buffer.put(linha);
+				buffer.put((byte) '\n');
+			}
+			buffer.flip();
+			out.write(buffer);
+		}
+
+		/**
+		 * Codifica um bean no codec da sessao. Se o codec da sessao nao
+		 *   suporta a mensagem (tabuleiro NxN), usa XML.
+		 * @param session Sessao
+		 * @param velhaBean Objeto VelhaBean
+		 * @return Buffer com a mensagem, ou null se o bean e' invalido.
+		 */
+		private IoBuffer codificar(IoSession session, VelhaBean velhaBean) {
+			VelhaCodec codec = VelhaCodecBinario.NOME.equals(
+					session.getAttribute(ATRIBUTO_CODEC))
+				? codecBinario : codecXML;
+			IoBuffer buffer = escrever(codec, velhaBean);
+			if (buffer == null && codec != codecXML) {
+				buffer = escrever(codecXML, velhaBean);
+			}
+			return buffer;
+		}
+
+		/**
+		 * Escreve um bean num buffer novo, com o fim de linha no XML.
+		 * @param codec Codec da mensagem
+		 * @param velhaBean Objeto VelhaBean
+		 * @return Buffer com a mensagem, ou null se o codec nao pode
+		 *   codificar o bean.
+		 */
+		private IoBuffer escrever(VelhaCodec codec, VelhaBean velhaBean) {
+			int tamanho = codec.getTamanhoMaximo(
+					velhaBean.getTabuleiro().length) + 1;
+			IoBuffer buffer = IoBuffer.allocate(tamanho, false);
+			byte[] dados = buffer.array();
+			int inicio = buffer.arrayOffset();
+			int fim = codec.codificar(velhaBean, dados, inicio);
+			if (fim < 0) return null;
+			if (codec == codecXML) dados[fim++] = '\n';
+			buffer.position(fim - inicio);
+			return buffer;
+		}
+	}
+}
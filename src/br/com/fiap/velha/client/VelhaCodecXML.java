@@ -0,0 +1,59 @@
+package br.com.fiap.velha.client;
+
+import br.com.fiap.velha.VelhaBean;
+import br.com.fiap.velha.VelhaCache;
+import br.com.fiap.velha.VelhaCodificador;
+import br.com.fiap.velha.VelhaDecodificador;
+
+/**
+ * Classe que implementa o codec XML (o formato original do protocolo),
+ * usando o @ref VelhaDecodificador e o @ref VelhaCodificador. E' o codec
+ * padrao, usado sempre que o servidor nao suporta outro.
+ */
+public class VelhaCodecXML implements VelhaCodec {
+
+	/** Nome do codec. */
+	public static final String NOME = "xml";
+
+	/** Decodificador das mensagens recebidas. */
+	private final VelhaDecodificador decodificador = new VelhaDecodificador();
+
+	/** Construtor default (sem cache). */
+	public VelhaCodecXML() {
+		this(null);
+	}
+
+	/**
+	 * Construtor.
+	 * @param cache Cache das mensagens decodificadas (pode ser
+	 *   compartilhado), ou null para nenhum
+	 */
+	public VelhaCodecXML(VelhaCache cache) {
+		decodificador.setCache(cache);
+	}
+
+	/* implementado de VelhaCodec */
+	@Override
+	public String getNome() {
+		return NOME;
+	}
+
+	/* implementado de VelhaCodec */
+	@Override
+	public boolean decodificar(byte[] dados, int inicio, int fim,
+							   VelhaBean velhaBean) {
+		return decodificador.decodificar(dados, inicio, fim, velhaBean);
+	}
+
+	/* implementado de VelhaCodec */
+	@Override
+	public int codificar(VelhaBean velhaBean, byte[] destino, int inicio) {
+		return VelhaCodificador.codificar(velhaBean, destino, inicio);
+	}
+
+	/* implementado de VelhaCodec */
+	@Override
+	public int getTamanhoMaximo(int posicoes) {
+		return VelhaCodificador.getTamanhoMaximo(posicoes);
+	}
+}
@@ -0,0 +1,195 @@
+package br.com.fiap.velha.client;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Classe que implementa a configuracao do robot, lida de um arquivo de
+ * propriedades e/ou da linha de comando. Os argumentos tem a forma
+ * chave=valor (com ou sem "-" ou "--" na frente; uma chave sozinha vale
+ * "true") e tem precedencia sobre o arquivo, indicado pela chave
+ * @ref CONFIG. Exemplo:
+ *   java br.com.fiap.velha.client.VelhaRobot --headless host=servidor nivel=8
+ */
+public class VelhaConfiguracao {
+
+	/** Chave: arquivo de propriedades com a configuracao. */
+	public static final String CONFIG          = "config";
+	/** Chave: executa sem interface grafica, conectando na partida. */
+	public static final String HEADLESS        = "headless";
+	/** Chave: nome do host ou endereco IP do servidor. */
+	public static final String HOST            = "host";
+	/** Chave: numero da Porta TCP do servidor. */
+	public static final String PORTA           = "porta";
+	/** Chave: nivel de inteligencia do robot (0 a 10). */
+	public static final String NIVEL           = "nivel";
+	/** Chave: estrategia de jogo (REGRAS, TABELA, NEGAMAX, MCTS); na
+	 * fazenda, uma lista separada por virgula, distribuida em rodizio. */
+	public static final String ESTRATEGIA      = "estrategia";
+	/** Chave: tempo de busca MCTS por jogada, em ms (0 = sem limite). */
+	public static final String MCTS_TEMPO       = "mctsTempo";
+	/** Chave: playouts MCTS por jogada (0 = sem limite). */
+	public static final String MCTS_PLAYOUTS    = "mctsPlayouts";
+	/** Chave: tarefas de busca MCTS simultaneas (padrao: processadores). */
+	public static final String MCTS_PARALELISMO = "mctsParalelismo";
+	/** Chave: calcula as respostas enquanto o oponente pensa. */
+	public static final String PONDERAR        = "ponderar";
+	/** Chave: oferece o codec binario ao servidor. */
+	public static final String NEGOCIAR_CODEC  = "negociarCodec";
+	/** Chave: capacidade do cache das mensagens recebidas (0 = sem cache). */
+	public static final String CACHE_MENSAGENS = "cacheMensagens";
+	/** Chave: nivel de validacao do XML (COMPLETA, ESTRUTURAL, NENHUMA). */
+	public static final String VALIDACAO       = "validacao";
+	/** Chave: atraso das jogadas, em ms: "ms" ou "min-max" (0 = sem). */
+	public static final String ATRASO          = "atraso";
+	/** Chave: intervalo inicial de reconexao, em ms (dobra a cada falha). */
+	public static final String RECONEXAO_INICIAL = "reconexaoInicial";
+	/** Chave: intervalo maximo de reconexao, em ms. */
+	public static final String RECONEXAO_MAXIMA  = "reconexaoMaxima";
+	/** Chave: threads do calculo das jogadas (0 = nas threads de IO). */
+	public static final String THREADS         = "threads";
+	/** Chave: quantidade de sessoes do modo fazenda (0 = um robot so'). */
+	public static final String SESSOES         = "sessoes";
+	/** Chave: niveis das sessoes da fazenda, separados por virgula. */
+	public static final String NIVEIS          = "niveis";
+	/** Chave: quantidade de IoProcessors da fazenda (0 = padrao do MINA). */
+	public static final String PROCESSADORES   = "processadores";
+	/** Chave: intervalo do log das estatisticas da fazenda, em s (0 = sem). */
+	public static final String ESTATISTICAS    = "estatisticas";
+
+	/** Hostname default. */
+	public static final String HOST_DEFAULT  = "localhost";
+	/** Porta TCP default. */
+	public static final int    PORTA_DEFAULT = 9123;
+	/** Nivel default. */
+	public static final int    NIVEL_DEFAULT = 10;
+
+	/** Propriedades lidas. */
+	private final Properties propriedades;
+
+	/**
+	 * Construtor.
+	 * @param propriedades Propriedades com a configuracao
+	 */
+	public VelhaConfiguracao(Properties propriedades) {
+		this.propriedades = propriedades;
+	}
+
+	/**
+	 * Le a configuracao da linha de comando e, se indicado, do arquivo de
+	 *   propriedades.
+	 * @param args Argumentos de linha de comando
+	 * @return Configuracao lida.
+	 * @throws IOException se o arquivo de propriedades nao pode ser lido
+	 */
+	public static VelhaConfiguracao ler(String[] args) throws IOException {
+		Properties argumentos = new Properties();
+		for (String arg : args) {
+			String chaveValor = arg.replaceFirst("^--?", "");
+			int igual = chaveValor.indexOf('=');
+			if (igual < 0) {
+				argumentos.setProperty(chaveValor, "true");
+			} else {
+				argumentos.setProperty(chaveValor.substring(0, igual).trim(),
+									   chaveValor.substring(igual + 1).trim());
+			}
+		}
+
+		/* arquivo primeiro; os argumentos tem precedencia */
+		Properties propriedades = new Properties();
+		String arquivo = argumentos.getProperty(CONFIG);
+		if (arquivo != null) {
+			InputStream in = new FileInputStream(arquivo);
+			try {
+				propriedades.load(in);
+			} finally {
+				in.close();
+			}
+		}
+		propriedades.putAll(argumentos);
+		return new VelhaConfiguracao(propriedades);
+	}
+
+	/**
+	 * Retorna uma propriedade do tipo texto.
+	 * @param chave Chave da propriedade
+	 * @param padrao Valor se a propriedade nao foi informada
+	 * @return Valor da propriedade.
+	 */
+	public String getString(String chave, String padrao) {
+		String valor = propriedades.getProperty(chave);
+		return (valor == null || valor.trim().isEmpty()) ? padrao : valor.trim();
+	}
+
+	/**
+	 * Retorna uma propriedade do tipo inteiro.
+	 * @param chave Chave da propriedade
+	 * @param padrao Valor se a propriedade nao foi informada
+	 * @return Valor da propriedade.
+	 * @throws IllegalArgumentException se o valor nao e' um numero
+	 */
+	public int getInt(String chave, int padrao) {
+		String valor = getString(chave, null);
+		if (valor == null) return padrao;
+		try {
+			return Integer.parseInt(valor);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(
+					"Valor invalido para " + chave + ": " + valor);
+		}
+	}
+
+	/**
+	 * Retorna uma propriedade do tipo lista de inteiros (separados por
+	 *   virgula).
+	 * @param chave Chave da propriedade
+	 * @param padrao Valor se a propriedade nao foi informada
+	 * @return Valor da propriedade.
+	 * @throws IllegalArgumentException se algum valor nao e' um numero
+	 */
+	public int[] getInts(String chave, int[] padrao) {
+		String valor = getString(chave, null);
+		if (valor == null) return padrao;
+		String itens[] = valor.split(",");
+		int valores[] = new int[itens.length];
+		try {
+			for (int i = 0; i < itens.length; i++) {
+				valores[i] = Integer.parseInt(itens[i].trim());
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(
+					"Valor invalido para " + chave + ": " + valor);
+		}
+		return valores;
+	}
+
+	/**
+	 * Retorna uma propriedade do tipo lista de textos (separados por
+	 *   virgula).
+	 * @param chave Chave da propriedade
+	 * @param padrao Valor se a propriedade nao foi informada
+	 * @return Valor da propriedade.
+	 */
+	public String[] getStrings(String chave, String[] padrao) {
+		String valor = getString(chave, null);
+		if (valor == null) return padrao;
+		String itens[] = valor.split(",");
+		for (int i = 0; i < itens.length; i++) {
+			itens[i] = itens[i].trim();
+		}
+		return itens;
+	}
+
+	/**
+	 * Retorna uma propriedade do tipo booleano.
+	 * @param chave Chave da propriedade
+	 * @param padrao Valor se a propriedade nao foi informada
+	 * @return Valor da propriedade.
+	 */
+	public boolean getBoolean(String chave, boolean padrao) {
+		String valor = getString(chave, null);
+		return (valor == null) ? padrao : Boolean.parseBoolean(valor);
+	}
+}
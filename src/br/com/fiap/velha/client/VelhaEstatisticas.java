@@ -0,0 +1,161 @@
+package br.com.fiap.velha.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import br.com.fiap.velha.VelhaStatus;
+
+/**
+ * Classe que acumula as estatisticas de uma @ref VelhaFazenda: conexoes,
+ * partidas, resultados, jogadas e tempo de calculo, somados de todas as
+ * sessoes. Os contadores sao atomicos: as sessoes atualizam sem bloqueio,
+ * das threads de IO, e podem ser lidos a qualquer momento.
+ */
+public class VelhaEstatisticas {
+
+	/** Quantidade de sessoes abertas no momento. */
+	private final AtomicLong sessoesAbertas = new AtomicLong();
+	/** Quantidade de conexoes estabelecidas. */
+	private final AtomicLong conexoes       = new AtomicLong();
+	/** Quantidade de tentativas de conexao sem sucesso. */
+	private final AtomicLong falhasConexao  = new AtomicLong();
+	/** Quantidade de mensagens do jogo recebidas. */
+	private final AtomicLong mensagens      = new AtomicLong();
+	/** Quantidade de jogadas enviadas. */
+	private final AtomicLong jogadas        = new AtomicLong();
+	/** Tempo total de calculo das jogadas, em ns. */
+	private final AtomicLong tempoJogadas   = new AtomicLong();
+	/** Quantidade de partidas terminadas, por codigo do status final. */
+	private final AtomicLong resultados[]   =
+		new AtomicLong[VelhaStatus.values().length];
+
+	/** Construtor. */
+	public VelhaEstatisticas() {
+		for (int i = 0; i < resultados.length; i++) {
+			resultados[i] = new AtomicLong();
+		}
+	}
+
+	/** Registra uma sessao aberta. */
+	void sessaoAberta() {
+		sessoesAbertas.incrementAndGet();
+		conexoes.incrementAndGet();
+	}
+
+	/** Registra uma sessao fechada. */
+	void sessaoFechada() {
+		sessoesAbertas.decrementAndGet();
+	}
+
+	/** Registra uma tentativa de conexao sem sucesso. */
+	void falhaConexao() {
+		falhasConexao.incrementAndGet();
+	}
+
+	/** Registra uma mensagem do jogo recebida. */
+	void mensagem() {
+		mensagens.incrementAndGet();
+	}
+
+	/**
+	 * Registra uma jogada enviada.
+	 * @param tempo Tempo de calculo da jogada, em ns
+	 */
+	void jogada(long tempo) {
+		jogadas.incrementAndGet();
+		tempoJogadas.addAndGet(tempo);
+	}
+
+	/**
+	 * Registra o fim de uma partida.
+	 * @param status Status final (GANHOU, PERDEU, EMPATE ou WO)
+	 */
+	void fimPartida(VelhaStatus status) {
+		resultados[status.getCodigo()].incrementAndGet();
+	}
+
+	/**
+	 * Retorna a quantidade de sessoes abertas no momento.
+	 * @return Quantidade de sessoes.
+	 */
+	public long getSessoesAbertas() {
+		return sessoesAbertas.get();
+	}
+
+	/**
+	 * Retorna a quantidade de conexoes estabelecidas.
+	 * @return Quantidade de conexoes.
+	 */
+	public long getConexoes() {
+		return conexoes.get();
+	}
+
+	/**
+	 * Retorna a quantidade de tentativas de conexao sem sucesso.
+	 * @return Quantidade de falhas.
+	 */
+	public long getFalhasConexao() {
+		return falhasConexao.get();
+	}
+
+	/**
+	 * Retorna a quantidade de mensagens do jogo recebidas.
+	 * @return Quantidade de mensagens.
+	 */
+	public long getMensagens() {
+		return mensagens.get();
+	}
+
+	/**
+	 * Retorna a quantidade de jogadas enviadas.
+	 * @return Quantidade de jogadas.
+	 */
+	public long getJogadas() {
+		return jogadas.get();
+	}
+
+	/**
+	 * Retorna o tempo medio de calculo de uma jogada.
+	 * @return Tempo medio, em microssegundos (0 se nao houve jogadas).
+	 */
+	public long getTempoMedioJogada() {
+		long quantidade = jogadas.get();
+		return (quantidade == 0) ? 0 : tempoJogadas.get() / quantidade / 1000;
+	}
+
+	/**
+	 * Retorna a quantidade de partidas terminadas com um resultado.
+	 * @param status Status final (GANHOU, PERDEU, EMPATE ou WO)
+	 * @return Quantidade de partidas.
+	 */
+	public long getPartidas(VelhaStatus status) {
+		return resultados[status.getCodigo()].get();
+	}
+
+	/**
+	 * Retorna a quantidade de partidas terminadas.
+	 * @return Quantidade de partidas.
+	 */
+	public long getPartidas() {
+		return getPartidas(VelhaStatus.GANHOU) + getPartidas(VelhaStatus.PERDEU) +
+			   getPartidas(VelhaStatus.EMPATE) + getPartidas(VelhaStatus.WO);
+	}
+
+	/**
+	 * Retorna um resumo das estatisticas, numa linha.
+	 * @return String com o resumo.
+	 */
+	@Override
+	public String toString() {
+		return "sessoes="  + getSessoesAbertas() +
+			   " conexoes=" + getConexoes() +
+			   " falhas="   + getFalhasConexao() +
+			   " partidas=" + getPartidas() +
+			   " ganhou="   + getPartidas(VelhaStatus.GANHOU) +
+			   " perdeu="   + getPartidas(VelhaStatus.PERDEU) +
+			   " empate="   + getPartidas(VelhaStatus.EMPATE) +
+			   " wo="       + getPartidas(VelhaStatus.WO) +
+			   " mensagens=" + getMensagens() +
+			   " jogadas="  + getJogadas() +
+			   " tempoMedioJogada=" + getTempoMedioJogada() + "us";
+	}
+}
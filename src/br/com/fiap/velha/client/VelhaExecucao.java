@@ -0,0 +1,194 @@
+package br.com.fiap.velha.client;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.mina.core.filterchain.DefaultIoFilterChainBuilder;
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.filter.executor.ExecutorFilter;
+import org.apache.mina.filter.executor.OrderedThreadPoolExecutor;
+
+/**
+ * Classe que implementa o estagio opcional de execucao das mensagens: um
+ * @ref ExecutorFilter com um @ref OrderedThreadPoolExecutor, colocado
+ * depois do codec. O calculo das jogadas sai das threads de IO e roda em
+ * paralelo entre as sessoes, mantendo a ordem dos eventos de cada sessao;
+ * as threads de IO ficam livres para ler as outras sessoes.
+ * Dois filtros em volta do executor medem as mensagens recebidas: a
+ * quantidade na fila (esperando uma thread) e o tempo de espera.
+ */
+public class VelhaExecucao {
+
+	/** Tempo que uma thread ociosa espera antes de terminar, em s. */
+	private static final long KEEP_ALIVE = 30L;
+
+	/** Executor ordenado por sessao. */
+	private final OrderedThreadPoolExecutor executor;
+
+	/** Quantidade de mensagens na fila no momento. */
+	private final AtomicLong fila          = new AtomicLong();
+	/** Maior quantidade de mensagens na fila. */
+	private final AtomicLong filaMaxima    = new AtomicLong();
+	/** Quantidade de mensagens que passaram pela fila. */
+	private final AtomicLong mensagens     = new AtomicLong();
+	/** Soma dos tempos de espera na fila, em ns. */
+	private final AtomicLong esperaTotal   = new AtomicLong();
+	/** Maior tempo de espera na fila, em ns. */
+	private final AtomicLong esperaMaxima  = new AtomicLong();
+
+	/**
+	 * Construtor.
+	 * @param threads Quantidade maxima de threads do executor
+	 * @throws IllegalArgumentException se a quantidade e' menor que 1
+	 */
+	public VelhaExecucao(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads < 1: " + threads);
+		}
+		final AtomicInteger numero = new AtomicInteger();
+		executor = new OrderedThreadPoolExecutor(0, threads, KEEP_ALIVE,
+				TimeUnit.SECONDS, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r,
+						"VelhaExecucao-" + numero.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Coloca o estagio de execucao no fim de uma cadeia de filtros (depois
+	 *   do codec).
+	 * @param cadeia Cadeia de filtros do conector
+	 */
+	public void instalar(DefaultIoFilterChainBuilder cadeia) {
+		cadeia.addLast("filaEntrada", new Entrada());
+		cadeia.addLast("executor", new ExecutorFilter(executor));
+		cadeia.addLast("filaSaida", new Saida());
+	}
+
+	/** Encerra o executor (as mensagens na fila ainda sao processadas). */
+	public void encerrar() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Retorna a quantidade de mensagens na fila, esperando uma thread.
+	 * @return Quantidade de mensagens.
+	 */
+	public long getFila() {
+		return fila.get();
+	}
+
+	/**
+	 * Retorna a maior quantidade de mensagens na fila.
+	 * @return Quantidade de mensagens.
+	 */
+	public long getFilaMaxima() {
+		return filaMaxima.get();
+	}
+
+	/**
+	 * Retorna a quantidade de mensagens que passaram pela fila.
+	 * @return Quantidade de mensagens.
+	 */
+	public long getMensagens() {
+		return mensagens.get();
+	}
+
+	/**
+	 * Retorna o tempo medio de espera de uma mensagem na fila.
+	 * @return Tempo medio, em microssegundos (0 se nao houve mensagens).
+	 */
+	public long getEsperaMedia() {
+		long quantidade = mensagens.get();
+		return (quantidade == 0) ? 0 : TimeUnit.NANOSECONDS.toMicros(
+				esperaTotal.get() / quantidade);
+	}
+
+	/**
+	 * Retorna o maior tempo de espera de uma mensagem na fila.
+	 * @return Tempo maximo, em microssegundos.
+	 */
+	public long getEsperaMaxima() {
+		return TimeUnit.NANOSECONDS.toMicros(esperaMaxima.get());
+	}
+
+	/**
+	 * Retorna um resumo das metricas, numa linha.
+	 * @return String com o resumo.
+	 */
+	@Override
+	public String toString() {
+		return "fila="          + getFila() +
+			   " filaMaxima="   + getFilaMaxima() +
+			   " esperaMedia="  + getEsperaMedia() + "us" +
+			   " esperaMaxima=" + getEsperaMaxima() + "us";
+	}
+
+	/**
+	 * Guarda o maior valor num contador atomico.
+	 * @param maximo Contador com o maior valor
+	 * @param valor Valor
+	 */
+	private static void atualizarMaximo(AtomicLong maximo, long valor) {
+		long atual;
+		do {
+			atual = maximo.get();
+		} while (valor > atual && !maximo.compareAndSet(atual, valor));
+	}
+
+	/** Mensagem recebida na fila do executor, com o instante da entrada. */
+	private static class Espera {
+
+		/** Mensagem recebida. */
+		final Object mensagem;
+		/** Instante da entrada na fila (System.nanoTime). */
+		final long   entrada;
+
+		/**
+		 * Construtor.
+		 * @param mensagem Mensagem recebida
+		 * @param entrada Instante da entrada na fila
+		 */
+		Espera(Object mensagem, long entrada) {
+			this.mensagem = mensagem;
+			this.entrada  = entrada;
+		}
+	}
+
+	/** Filtro antes do executor (thread de IO): marca a entrada na fila. */
+	private class Entrada extends IoFilterAdapter {
+
+		/* implementado de IoFilterAdapter */
+		@Override
+		public void messageReceived(NextFilter nextFilter, IoSession session,
+									Object message) {
+			atualizarMaximo(filaMaxima, fila.incrementAndGet());
+			nextFilter.messageReceived(session,
+					new Espera(message, System.nanoTime()));
+		}
+	}
+
+	/** Filtro depois do executor (thread do executor): mede a espera. */
+	private class Saida extends IoFilterAdapter {
+
+		/* implementado de IoFilterAdapter */
+		@Override
+		public void messageReceived(NextFilter nextFilter, IoSession session,
+									Object message) {
+			Espera espera = (Espera) message;
+			long tempo = System.nanoTime() - espera.entrada;
+			fila.decrementAndGet();
+			mensagens.incrementAndGet();
+			esperaTotal.addAndGet(tempo);
+			atualizarMaximo(esperaMaxima, tempo);
+			nextFilter.messageReceived(session, espera.mensagem);
+		}
+	}
+}
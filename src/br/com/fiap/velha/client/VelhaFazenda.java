@@ -0,0 +1,532 @@
+package br.com.fiap.velha.client;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.mina.core.future.ConnectFuture;
+import org.apache.mina.core.future.IoFutureListener;
+import org.apache.mina.core.service.IoHandlerAdapter;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.session.IoSessionInitializer;
+import org.apache.mina.filter.codec.ProtocolCodecFilter;
+import org.apache.mina.transport.socket.nio.NioSocketConnector;
+
+import br.com.fiap.velha.VelhaBean;
+import br.com.fiap.velha.VelhaCache;
+import br.com.fiap.velha.VelhaMCTS;
+import br.com.fiap.velha.VelhaParser;
+import br.com.fiap.velha.VelhaTipoEstrategia;
+
+/**
+ * Classe que implementa uma "fazenda" de robots: muitas sessoes (milhares)
+ * jogando ao mesmo tempo numa so' JVM, para teste de carga de servidores
+ * ou para oferecer oponentes em escala. Todas as sessoes compartilham um
+ * unico @ref NioSocketConnector (e o seu pool de IoProcessors), a fabrica de
+ * codecs e o cache de mensagens; cada sessao tem so' o seu
+ * @ref VelhaPartida, guardado como atributo da sessao MINA.
+ * As jogadas sao calculadas na propria thread de IO ou, com threads
+ * configuradas, num estagio de execucao ordenado por sessao (ver
+ * @ref VelhaExecucao); nao ha' pondering. O atraso opcional de cada
+ * sessao e' agendado, sem bloquear a thread de IO. Cada sessao tem o seu
+ * nivel, atraso e escolha de codec. Quando uma sessao e' fechada, ela
+ * reconecta (com backoff exponencial e jitter, ver @ref VelhaReconexao)
+ * enquanto a fazenda estiver ativa.
+ * Os resultados de todas as sessoes sao somados em @ref VelhaEstatisticas.
+ */
+public class VelhaFazenda {
+
+	/** Timeout de conexao, em ms. */
+	private static final long CONNECTOR_TIMEOUT = 30000L;
+	/** Tamanho do buffer da sessao, em bytes. */
+	private static final int CONNECTOR_BUFFER_SIZE = 2048;
+
+	/** Atributo da sessao MINA com a sessao da fazenda. */
+	private static final String ATRIBUTO_SESSAO =
+		VelhaFazenda.class.getName() + ".sessao";
+
+	/** Connector unico, compartilhado por todas as sessoes. */
+	private final NioSocketConnector velhaSockConnector;
+	/** Endereco do servidor. */
+	private final InetSocketAddress  endereco;
+	/** Agenda as jogadas com atraso, as reconexoes e o log das
+	 * estatisticas. */
+	private final ScheduledExecutorService agendador;
+	/** Estatisticas somadas de todas as sessoes. */
+	private final VelhaEstatisticas  estatisticas = new VelhaEstatisticas();
+	/** Politica (backoff) e metricas das reconexoes de todas as sessoes. */
+	private final VelhaReconexao     reconexao;
+	/** Estagio de execucao das mensagens, ou null para as threads de IO. */
+	private final VelhaExecucao      execucao;
+	/** Codec XML (so' o nome e' usado, na negociacao). */
+	private final VelhaCodec codecXML     = new VelhaCodecXML();
+	/** Codec binario (so' o nome e' usado, na negociacao). */
+	private final VelhaCodec codecBinario = new VelhaCodecBinario();
+	/** Quantidade de sessoes criadas. */
+	private final AtomicInteger quantidadeSessoes = new AtomicInteger();
+
+	/** Indica se a fazenda esta' ativa (conecta e reconecta as sessoes). */
+	private volatile boolean executando = true;
+
+	/**
+	 * Construtor. Nenhuma sessao e' aberta: ver @ref adicionarSessao.
+	 * @param hostName Nome do host ou numero IP do servidor
+	 * @param tcpPort Numero da Porta TCP do servidor
+	 * @param processadores Quantidade de IoProcessors do connector, ou 0 para
+	 *   o padrao do MINA
+	 * @param cache Cache das mensagens XML decodificadas, compartilhado pelas
+	 *   sessoes, ou null para nenhum
+	 */
+	public VelhaFazenda(String hostName, int tcpPort, int processadores,
+						VelhaCache cache) {
+		this(hostName, tcpPort, processadores, cache, new VelhaReconexao());
+	}
+
+	/**
+	 * Construtor. Nenhuma sessao e' aberta: ver @ref adicionarSessao.
+	 * @param hostName Nome do host ou numero IP do servidor
+	 * @param tcpPort Numero da Porta TCP do servidor
+	 * @param processadores Quantidade de IoProcessors do connector, ou 0 para
+	 *   o padrao do MINA
+	 * @param cache Cache das mensagens XML decodificadas, compartilhado pelas
+	 *   sessoes, ou null para nenhum
+	 * @param reconexao Politica de reconexao das sessoes
+	 */
+	public VelhaFazenda(String hostName, int tcpPort, int processadores,
+						VelhaCache cache, VelhaReconexao reconexao) {
+		this(hostName, tcpPort, processadores, cache, reconexao, 0);
+	}
+
+	/**
+	 * Construtor. Nenhuma sessao e' aberta: ver @ref adicionarSessao.
+	 * @param hostName Nome do host ou numero IP do servidor
+	 * @param tcpPort Numero da Porta TCP do servidor
+	 * @param processadores Quantidade de IoProcessors do connector, ou 0 para
+	 *   o padrao do MINA
+	 * @param cache Cache das mensagens XML decodificadas, compartilhado pelas
+	 *   sessoes, ou null para nenhum
+	 * @param reconexao Politica de reconexao das sessoes
+	 * @param threads Quantidade de threads do calculo das jogadas, ou 0 para
+	 *   calcular nas threads de IO
+	 */
+	public VelhaFazenda(String hostName, int tcpPort, int processadores,
+						VelhaCache cache, VelhaReconexao reconexao,
+						int threads) {
+		this.reconexao = reconexao;
+		this.execucao  = (threads > 0) ? new VelhaExecucao(threads) : null;
+		endereco = new InetSocketAddress(hostName, tcpPort);
+		agendador = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "VelhaFazenda");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		/* cria e configura o conector (sem LoggingFilter: milhares de
+		 * sessoes) */
+		velhaSockConnector = (processadores > 0)
+				? new NioSocketConnector(processadores)
+				: new NioSocketConnector();
+		velhaSockConnector.getFilterChain().addLast(
+				"codec", new ProtocolCodecFilter(new VelhaCodecFactory(cache)));
+		if (execucao != null) {
+			execucao.instalar(velhaSockConnector.getFilterChain());
+		}
+		velhaSockConnector.setConnectTimeoutMillis(CONNECTOR_TIMEOUT);
+		velhaSockConnector.getSessionConfig().setReadBufferSize(
+				CONNECTOR_BUFFER_SIZE);
+		velhaSockConnector.setHandler(new Handler());
+	}
+
+	/**
+	 * Cria e inicia uma fazenda com uma configuracao: quantidade de sessoes,
+	 *   niveis e estrategias (distribuidos em rodizio entre as sessoes),
+	 *   orcamento das buscas MCTS, atraso das jogadas (padrao: nenhum),
+	 *   negociacao do codec, IoProcessors, threads do calculo das jogadas,
+	 *   cache, intervalos de reconexao, validacao do XML e intervalo do log
+	 *   das estatisticas.
+	 * @param config Configuracao
+	 * @return Fazenda iniciada.
+	 * @throws IllegalArgumentException se algum valor e' invalido
+	 */
+	public static VelhaFazenda iniciar(VelhaConfiguracao config) {
+		int sessoes = config.getInt(VelhaConfiguracao.SESSOES, 0);
+		int niveis[] = config.getInts(VelhaConfiguracao.NIVEIS,
+				new int[] { config.getInt(VelhaConfiguracao.NIVEL,
+										  VelhaConfiguracao.NIVEL_DEFAULT) });
+		String nomes[] = config.getStrings(VelhaConfiguracao.ESTRATEGIA,
+				new String[] { VelhaTipoEstrategia.REGRAS.name() });
+		VelhaTipoEstrategia estrategias[] = new VelhaTipoEstrategia[nomes.length];
+		for (int i = 0; i < nomes.length; i++) {
+			estrategias[i] = VelhaTipoEstrategia.valueOf(nomes[i].toUpperCase());
+		}
+		VelhaTipoEstrategia.setOrcamentoMCTS(
+				config.getInt(VelhaConfiguracao.MCTS_TEMPO,
+							  (int) VelhaMCTS.TEMPO_PADRAO),
+				config.getInt(VelhaConfiguracao.MCTS_PLAYOUTS,
+							  (int) VelhaMCTS.PLAYOUTS_PADRAO),
+				config.getInt(VelhaConfiguracao.MCTS_PARALELISMO,
+							  Runtime.getRuntime().availableProcessors()));
+		VelhaAtraso atraso = VelhaAtraso.valueOf(
+				config.getString(VelhaConfiguracao.ATRASO, "0"));
+		boolean negociarCodec =
+			config.getBoolean(VelhaConfiguracao.NEGOCIAR_CODEC, false);
+		int capacidadeCache =
+			config.getInt(VelhaConfiguracao.CACHE_MENSAGENS, 0);
+		int intervalo = config.getInt(VelhaConfiguracao.ESTATISTICAS, 10);
+		String validacao = config.getString(VelhaConfiguracao.VALIDACAO, null);
+		if (validacao != null) {
+			VelhaParser.setValidacaoPadrao(
+					VelhaParser.Validacao.valueOf(validacao.toUpperCase()));
+		}
+
+		final VelhaFazenda fazenda = new VelhaFazenda(
+				config.getString(VelhaConfiguracao.HOST,
+								 VelhaConfiguracao.HOST_DEFAULT),
+				config.getInt(VelhaConfiguracao.PORTA,
+							  VelhaConfiguracao.PORTA_DEFAULT),
+				config.getInt(VelhaConfiguracao.PROCESSADORES, 0),
+				(capacidadeCache > 0) ? new VelhaCache(capacidadeCache) : null,
+				new VelhaReconexao(
+					config.getInt(VelhaConfiguracao.RECONEXAO_INICIAL,
+								  (int) VelhaReconexao.INICIAL_DEFAULT),
+					config.getInt(VelhaConfiguracao.RECONEXAO_MAXIMA,
+								  (int) VelhaReconexao.MAXIMO_DEFAULT)),
+				config.getInt(VelhaConfiguracao.THREADS, 0));
+		for (int i = 0; i < sessoes; i++) {
+			fazenda.adicionarSessao(niveis[i % niveis.length], negociarCodec,
+									atraso, estrategias[i % estrategias.length]);
+		}
+
+		/* log periodico das estatisticas */
+		if (intervalo > 0) {
+			final VelhaRobotLog log =
+				new VelhaRobotLog(System.out, "VelhaFazenda");
+			fazenda.agendador.scheduleAtFixedRate(new Runnable() {
+				@Override
+				public void run() {
+					log.escreverInfo(fazenda.estatisticas + " " +
+							fazenda.reconexao + ((fazenda.execucao == null)
+									? "" : " " + fazenda.execucao));
+				}
+			}, intervalo, intervalo, TimeUnit.SECONDS);
+		}
+		return fazenda;
+	}
+
+	/**
+	 * Cria uma sessao sem atraso nas jogadas e conecta ao servidor (sem
+	 *   esperar a conexao).
+	 * @param nivel Nivel de inteligencia do robot da sessao (0 a 10)
+	 * @param negociarCodec True para oferecer o codec binario ao servidor,
+	 *   false para usar somente XML
+	 */
+	public void adicionarSessao(int nivel, boolean negociarCodec) {
+		adicionarSessao(nivel, negociarCodec, VelhaAtraso.NENHUM);
+	}
+
+	/**
+	 * Cria uma sessao e conecta ao servidor (sem esperar a conexao).
+	 * @param nivel Nivel de inteligencia do robot da sessao (0 a 10)
+	 * @param negociarCodec True para oferecer o codec binario ao servidor,
+	 *   false para usar somente XML
+	 * @param atraso Atraso das jogadas da sessao
+	 */
+	public void adicionarSessao(int nivel, boolean negociarCodec,
+								VelhaAtraso atraso) {
+		adicionarSessao(nivel, negociarCodec, atraso,
+						VelhaTipoEstrategia.REGRAS);
+	}
+
+	/**
+	 * Cria uma sessao e conecta ao servidor (sem esperar a conexao).
+	 * @param nivel Nivel de inteligencia do robot da sessao (0 a 10)
+	 * @param negociarCodec True para oferecer o codec binario ao servidor,
+	 *   false para usar somente XML
+	 * @param atraso Atraso das jogadas da sessao
+	 * @param estrategia Estrategia de jogo da sessao
+	 */
+	public void adicionarSessao(int nivel, boolean negociarCodec,
+								VelhaAtraso atraso,
+								VelhaTipoEstrategia estrategia) {
+		quantidadeSessoes.incrementAndGet();
+		conectar(new Sessao(new VelhaPartida(nivel, estrategia),
+							negociarCodec, atraso));
+	}
+
+	/**
+	 * Retorna a quantidade de sessoes criadas.
+	 * @return Quantidade de sessoes.
+	 */
+	public int getQuantidadeSessoes() {
+		return quantidadeSessoes.get();
+	}
+
+	/**
+	 * Retorna as estatisticas somadas de todas as sessoes.
+	 * @return Objeto VelhaEstatisticas.
+	 */
+	public VelhaEstatisticas getEstatisticas() {
+		return estatisticas;
+	}
+
+	/**
+	 * Retorna a politica de reconexao, com as metricas somadas de todas as
+	 *   sessoes (tentativas e tempo de reconexao).
+	 * @return Objeto VelhaReconexao.
+	 */
+	public VelhaReconexao getReconexao() {
+		return reconexao;
+	}
+
+	/**
+	 * Retorna o estagio de execucao das mensagens, com as metricas (fila e
+	 *   tempo de espera).
+	 * @return Objeto VelhaExecucao, ou null se as jogadas sao calculadas nas
+	 *   threads de IO.
+	 */
+	public VelhaExecucao getExecucao() {
+		return execucao;
+	}
+
+	/** Encerra a fazenda: fecha todas as sessoes, sem reconectar. */
+	public void encerrar() {
+		executando = false;
+		agendador.shutdownNow();
+		/* libera da memoria os recursos do conector (fecha as sessoes) */
+		velhaSockConnector.dispose();
+		if (execucao != null) execucao.encerrar();
+	}
+
+	/**
+	 * Conecta uma sessao ao servidor. A sessao da fazenda e' associada a
+	 *   sessao MINA antes de qualquer evento; se a conexao falhar, uma nova
+	 *   tentativa e' agendada.
+	 * @param sessao Sessao da fazenda
+	 */
+	private void conectar(final Sessao sessao) {
+		if (!executando) return;
+		reconexao.tentativa();
+		ConnectFuture future = velhaSockConnector.connect(endereco,
+				new IoSessionInitializer<ConnectFuture>() {
+			@Override
+			public void initializeSession(IoSession session,
+										  ConnectFuture future) {
+				session.setAttribute(ATRIBUTO_SESSAO, sessao);
+			}
+		});
+		future.addListener(new IoFutureListener<ConnectFuture>() {
+			@Override
+			public void operationComplete(ConnectFuture future) {
+				synchronized (sessao) {
+					if (future.isConnected()) {
+						if (sessao.instanteQueda != 0) {
+							reconexao.reconectou(
+									System.nanoTime() - sessao.instanteQueda);
+						}
+						/* tentativas so' sao zeradas com a sessao estavel */
+						sessao.instanteQueda   = 0;
+						sessao.instanteConexao = System.nanoTime();
+						return;
+					}
+					sessao.tentativas++;
+				}
+				estatisticas.falhaConexao();
+				reconectar(sessao);
+			}
+		});
+	}
+
+	/**
+	 * Agenda a reconexao de uma sessao, fora da thread de IO, com o intervalo
+	 *   da politica de reconexao.
+	 * @param sessao Sessao da fazenda
+	 */
+	private void reconectar(final Sessao sessao) {
+		if (!executando) return;
+		int tentativas;
+		synchronized (sessao) {
+			tentativas = sessao.tentativas;
+		}
+		agendador.schedule(new Runnable() {
+			@Override
+			public void run() {
+				conectar(sessao);
+			}
+		}, reconexao.getIntervalo(tentativas), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Manipulador unico das sessoes: o estado de cada partida vem do
+	 * atributo da sessao MINA.
+	 */
+	private class Handler extends IoHandlerAdapter {
+
+		/* implementado de IoHandlerAdapter */
+		@Override
+		public void sessionOpened(IoSession session) {
+			estatisticas.sessaoAberta();
+			/* sessao comeca em XML; oferece o codec binario, se habilitado */
+			if (getSessao(session).negociarCodec) {
+				session.write(VelhaNegociacao.getOferta(codecBinario, codecXML));
+			}
+		}
+
+		/* implementado de IoHandlerAdapter */
+		@Override
+		public void sessionClosed(IoSession session) {
+			Sessao sessao = getSessao(session);
+			estatisticas.sessaoFechada();
+			synchronized (sessao) {
+				sessao.emPartida     = false;
+				sessao.partida.limpar();
+				/* caiu antes de ficar estavel: conta como tentativa */
+				if (VelhaReconexao.isEstavel(sessao.instanteConexao,
+											 sessao.recebeuJogo)) {
+					sessao.tentativas = 0;
+				} else {
+					sessao.tentativas++;
+				}
+				sessao.instanteConexao = 0;
+				sessao.recebeuJogo     = false;
+				sessao.instanteQueda   = System.nanoTime();
+			}
+			reconectar(sessao);
+		}
+
+		/* implementado de IoHandlerAdapter */
+		@Override
+		public void messageReceived(IoSession session, Object message) {
+			/* resposta da negociacao do codec */
+			if (!(message instanceof VelhaBean)) {
+				VelhaCodec escolhido = VelhaNegociacao.getEscolhido(
+						message.toString(), codecBinario, codecXML);
+				if (escolhido != null) {
+					session.setAttribute(VelhaCodecFactory.ATRIBUTO_CODEC,
+										 escolhido.getNome());
+				}
+				return;
+			}
+
+			final Sessao sessao = getSessao(session);
+			final VelhaBean mensagem = (VelhaBean) message;
+			final int posicao;
+			estatisticas.mensagem();
+			synchronized (sessao) {
+				sessao.recebeuJogo = true;
+				VelhaPartida partida = sessao.partida;
+				partida.atualizar(mensagem);
+
+				switch (partida.getStatus()) {
+					case JOGUE:
+						sessao.emPartida = true;
+						long inicio = System.nanoTime();
+						posicao = partida.getJogada();
+						estatisticas.jogada(System.nanoTime() - inicio);
+						break;
+					case AGUARDE:
+						sessao.emPartida = true;
+						return;
+					default:
+						/* fim de partida: conta uma vez so' */
+						if (sessao.emPartida) {
+							sessao.emPartida = false;
+							estatisticas.fimPartida(partida.getStatus());
+						}
+						return;
+				}
+			}
+
+			/* atraso agendado: a thread de IO nao espera */
+			long espera = sessao.atraso.getAtraso();
+			if (espera <= 0) {
+				enviarJogada(session, sessao, mensagem, posicao);
+				return;
+			}
+			final IoSession ioSession = session;
+			agendador.schedule(new Runnable() {
+				@Override
+				public void run() {
+					enviarJogada(ioSession, sessao, mensagem, posicao);
+				}
+			}, espera, TimeUnit.MILLISECONDS);
+		}
+
+		/* implementado de IoHandlerAdapter */
+		@Override
+		public void exceptionCaught(IoSession session, Throwable cause) {
+			session.close(true);
+		}
+
+		/**
+		 * Registra uma jogada e a envia ao servidor (codificada na hora, no
+		 *   filtro: o bean pode ser reutilizado).
+		 * @param session Sessao MINA
+		 * @param sessao Sessao da fazenda
+		 * @param mensagem Mensagem a que a jogada responde; se outra chegou
+		 *   durante o atraso, a jogada e' descartada
+		 * @param posicao Posicao da jogada
+		 */
+		private void enviarJogada(IoSession session, Sessao sessao,
+								  VelhaBean mensagem, int posicao) {
+			synchronized (sessao) {
+				VelhaPartida partida = sessao.partida;
+				if (partida.getBean() != mensagem ||
+					!partida.registrarJogada(posicao)) return;
+				session.write(partida.getBean());
+			}
+		}
+
+		/**
+		 * Retorna a sessao da fazenda associada a uma sessao MINA.
+		 * @param session Sessao MINA
+		 * @return Sessao da fazenda.
+		 */
+		private Sessao getSessao(IoSession session) {
+			return (Sessao) session.getAttribute(ATRIBUTO_SESSAO);
+		}
+	}
+
+	/**
+	 * Sessao da fazenda: o estado da partida e o comportamento do robot.
+	 * Sobrevive as reconexoes.
+	 */
+	private static class Sessao {
+
+		/** Estado da partida. */
+		final VelhaPartida partida;
+		/** Indica se oferece o codec binario ao servidor. */
+		final boolean negociarCodec;
+		/** Atraso das jogadas. */
+		final VelhaAtraso atraso;
+		/** Indica se ha' uma partida em andamento (para contar o fim). */
+		boolean emPartida = false;
+		/** Quantidade de tentativas de conexao seguidas sem sucesso. */
+		int  tentativas    = 0;
+		/** Instante da queda da sessao (System.nanoTime), ou 0 se nao caiu. */
+		long instanteQueda = 0;
+		/** Instante da conexao (System.nanoTime), ou 0 se nao conectada. */
+		long instanteConexao = 0;
+		/** Indica se a sessao corrente recebeu alguma mensagem do jogo. */
+		boolean recebeuJogo = false;
+
+		/**
+		 * Construtor.
+		 * @param partida Estado da partida
+		 * @param negociarCodec True para oferecer o codec binario
+		 * @param atraso Atraso das jogadas
+		 */
+		Sessao(VelhaPartida partida, boolean negociarCodec,
+			   VelhaAtraso atraso) {
+			this.partida       = partida;
+			this.negociarCodec = negociarCodec;
+			this.atraso        = atraso;
+		}
+	}
+}
@@ -3,6 +3,7 @@ package br.com.fiap.velha.client;
 import org.apache.mina.core.service.IoHandlerAdapter;
 import org.apache.mina.core.session.IoSession;
 
+import br.com.fiap.velha.VelhaBean;
 import br.com.fiap.velha.gui.VelhaListener;
 
 /**
@@ -16,8 +17,9 @@ public class VelhaHandler extends IoHandlerAdapter {
 	/** Armazena uma referencia para o objeto VelhaListener. */
 	private VelhaListener listener = null;
 	
-	/** Guarda a sessao corrente (conexao com o servidor). */
-	private IoSession session = null;
+	/** Guarda a sessao corrente (conexao com o servidor). Volatil: e' lida
+	 * tambem pelas threads que enviam as jogadas agendadas. */
+	private volatile IoSession session = null;
 	
 	/**
 	 * Construtor.
@@ -59,8 +61,12 @@ public class VelhaHandler extends IoHandlerAdapter {
 	 @Override
 	 public void messageReceived(IoSession session, Object message) {
 
-		 if (DEBUG_ENABLED) System.out.println("Recebida:" + (String) message);
-		 listener.onMessageReceived((String) message);
+		 if (DEBUG_ENABLED) System.out.println("Recebida:" + message);
+		 if (message instanceof VelhaBean) {
+			 listener.onMessageReceived((VelhaBean) message);
+		 } else {
+			 listener.onMessageReceived((String) message);
+		 }
 	 }
 
 	/**
@@ -69,10 +75,34 @@ public class VelhaHandler extends IoHandlerAdapter {
 	 */
 	public void sendMessage(String message) {
 
-		if (session != null && session.isConnected()) {
-			session.write(message);
+		IoSession sessao = session;
+		if (sessao != null && sessao.isConnected()) {
+			sessao.write(message);
+		}
+	}
+
+	/**
+	 * Envia uma mensagem do jogo para o servidor, no codec da sessao.
+	 * @param message Objeto VelhaBean a ser enviado
+	 */
+	public void sendMessage(VelhaBean message) {
+
+		IoSession sessao = session;
+		if (sessao != null && sessao.isConnected()) {
+			sessao.write(message);
+		}
+	}
+
+	/**
+	 * Define o codec de envio das mensagens do jogo na sessao corrente.
+	 * @param nome Nome do codec (ver @ref VelhaCodec#getNome)
+	 */
+	public void setCodec(String nome) {
+
+		IoSession sessao = session;
+		if (sessao != null) {
+			sessao.setAttribute(VelhaCodecFactory.ATRIBUTO_CODEC, nome);
 		}
-		
 	}
 
 	/**
@@ -0,0 +1,58 @@
+package br.com.fiap.velha.client;
+
+/**
+ * Classe utilitaria com a negociacao do codec de uma sessao. Logo apos
+ * conectar, o cliente envia uma linha de oferta com os codecs que suporta,
+ * em ordem de preferencia:
+ *   VELHA-CODEC bin xml
+ * Um servidor que suporta a negociacao responde com o codec escolhido:
+ *   VELHA-CODEC bin
+ * Enquanto nao ha' resposta (ou se o servidor nao conhece a negociacao e
+ * simplesmente manda o XML do jogo), a sessao continua em XML.
+ */
+public final class VelhaNegociacao {
+
+	/** Prefixo das linhas de negociacao. */
+	public static final String PREFIXO = "VELHA-CODEC";
+
+	/* classe utilitaria, nao deve ser instanciada */
+	private VelhaNegociacao() { }
+
+	/**
+	 * Monta a linha de oferta.
+	 * @param codecs Codecs suportados, em ordem de preferencia
+	 * @return Linha de oferta.
+	 */
+	public static String getOferta(VelhaCodec... codecs) {
+		StringBuilder oferta = new StringBuilder(PREFIXO);
+		for (VelhaCodec codec : codecs) {
+			oferta.append(' ').append(codec.getNome());
+		}
+		return oferta.toString();
+	}
+
+	/**
+	 * Verifica se uma linha recebida e' de negociacao.
+	 * @param linha Linha recebida
+	 * @return True se e' de negociacao, false se nao.
+	 */
+	public static boolean isNegociacao(String linha) {
+		return linha != null && linha.startsWith(PREFIXO);
+	}
+
+	/**
+	 * Retorna o codec escolhido pelo servidor numa linha de resposta.
+	 * @param linha Linha de resposta
+	 * @param codecs Codecs oferecidos
+	 * @return Codec escolhido, ou null se a resposta nao escolhe nenhum
+	 *   dos codecs oferecidos.
+	 */
+	public static VelhaCodec getEscolhido(String linha, VelhaCodec... codecs) {
+		if (!isNegociacao(linha)) return null;
+		String nome = linha.substring(PREFIXO.length()).trim();
+		for (VelhaCodec codec : codecs) {
+			if (codec.getNome().equals(nome)) return codec;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,158 @@
+package br.com.fiap.velha.client;
+
+import br.com.fiap.velha.VelhaBean;
+import br.com.fiap.velha.VelhaEngine;
+import br.com.fiap.velha.VelhaStatus;
+import br.com.fiap.velha.VelhaTabuleiro;
+import br.com.fiap.velha.VelhaTipoEstrategia;
+
+/**
+ * Classe que guarda o estado de uma partida do robot: a logica do Jogo da
+ * Velha (do tamanho do tabuleiro recebido) e a ultima mensagem do servidor.
+ * Nao tem threads nem interface: e' usada pelo @ref VelhaRobot e por cada
+ * sessao da @ref VelhaFazenda. Nao e' thread-safe; o MINA entrega os
+ * eventos de uma sessao em ordem, um de cada vez.
+ */
+public class VelhaPartida {
+
+	/** Logica do Jogo da Velha (3x3 ou NxN, conforme a partida). */
+	private VelhaTabuleiro velhaEngine = null;
+	/** Ultima mensagem recebida (e jogada a enviar). */
+	private VelhaBean      velhaBean   = null;
+	/** Estrategia de jogo (mantida quando a logica e' trocada). */
+	private VelhaTipoEstrategia estrategia = VelhaTipoEstrategia.REGRAS;
+
+	/** Construtor default (nivel padrao da logica, estrategia por regras). */
+	public VelhaPartida() {
+		velhaEngine = estrategia.criarEngine(3);
+		velhaBean   = new VelhaBean();
+	}
+
+	/**
+	 * Construtor.
+	 * @param nivel Nivel de inteligencia do robot (0 a 10)
+	 */
+	public VelhaPartida(int nivel) {
+		this();
+		velhaEngine.setNivel(nivel);
+	}
+
+	/**
+	 * Construtor.
+	 * @param nivel Nivel de inteligencia do robot (0 a 10)
+	 * @param estrategia Estrategia de jogo
+	 */
+	public VelhaPartida(int nivel, VelhaTipoEstrategia estrategia) {
+		this(nivel);
+		setEstrategia(estrategia);
+	}
+
+	/**
+	 * Atualiza a partida com uma mensagem recebida. Se o tabuleiro mudou de
+	 *   tamanho, a logica e' trocada, mantendo o nivel e a estrategia.
+	 * @param mensagem Mensagem recebida, ja' decodificada
+	 * @return True se a logica foi trocada, false se nao.
+	 */
+	public boolean atualizar(VelhaBean mensagem) {
+		velhaBean = mensagem;
+		boolean trocou = false;
+		if (velhaBean.getTamanho() != velhaEngine.getTamanho()) {
+			VelhaTabuleiro engine = estrategia.criarEngine(velhaBean.getTamanho());
+			engine.setNivel(velhaEngine.getNivel());
+			velhaEngine = engine;
+			trocou = true;
+		}
+		velhaEngine.copiarTabuleiro(velhaBean.getTabuleiro());
+		return trocou;
+	}
+
+	/**
+	 * Calcula a jogada do robot no tabuleiro atual.
+	 * @return Posicao da jogada, ou -1 se nao houver.
+	 */
+	public int getJogada() {
+		return velhaEngine.getJogada(velhaBean.getId());
+	}
+
+	/**
+	 * Registra uma jogada no tabuleiro e no bean, se for a vez do robot.
+	 * @param posicao Posicao da jogada
+	 * @return True se a jogada foi registrada (e o bean deve ser enviado),
+	 *   false se e' invalida.
+	 */
+	public boolean registrarJogada(int posicao) {
+		if ((posicao < 0) ||
+			(velhaEngine.getPosicao(posicao) != VelhaEngine.JOGADOR_VAZIO) ||
+			(velhaBean.getStatus() != VelhaStatus.JOGUE) ||
+			(velhaEngine.isGameOver())) return false;
+
+		velhaEngine.setPosicao(posicao, velhaBean.getId());
+		velhaBean.setJogada(posicao);
+		return true;
+	}
+
+	/** Limpa o tabuleiro e o status do jogo. */
+	public void limpar() {
+		velhaEngine.limparTabuleiro();
+		velhaBean.limpar();
+	}
+
+	/**
+	 * Retorna a logica do Jogo da Velha da partida.
+	 * @return Tabuleiro da partida.
+	 */
+	public VelhaTabuleiro getEngine() {
+		return velhaEngine;
+	}
+
+	/**
+	 * Retorna a ultima mensagem recebida.
+	 * @return Objeto VelhaBean.
+	 */
+	public VelhaBean getBean() {
+		return velhaBean;
+	}
+
+	/**
+	 * Retorna o Status do jogo.
+	 * @return Status da ultima mensagem recebida.
+	 */
+	public VelhaStatus getStatus() {
+		return velhaBean.getStatus();
+	}
+
+	/**
+	 * Retorna o nivel de inteligencia do robot.
+	 * @return Nivel (0 a 10).
+	 */
+	public int getNivel() {
+		return velhaEngine.getNivel();
+	}
+
+	/**
+	 * Altera o nivel de inteligencia do robot.
+	 * @param nivel Nivel de inteligencia (0 a 10)
+	 */
+	public void setNivel(int nivel) {
+		velhaEngine.setNivel(nivel);
+	}
+
+	/**
+	 * Retorna a estrategia de jogo.
+	 * @return Tipo da estrategia.
+	 */
+	public VelhaTipoEstrategia getEstrategia() {
+		return estrategia;
+	}
+
+	/**
+	 * Altera a estrategia de jogo, na logica atual e nas proximas (quando o
+	 *   tabuleiro muda de tamanho).
+	 * @param estrategia Tipo da estrategia
+	 */
+	public void setEstrategia(VelhaTipoEstrategia estrategia) {
+		if (estrategia == null) return;
+		this.estrategia = estrategia;
+		estrategia.aplicar(velhaEngine);
+	}
+}
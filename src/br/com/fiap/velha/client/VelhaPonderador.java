@@ -0,0 +1,260 @@
+package br.com.fiap.velha.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import br.com.fiap.velha.VelhaBitboard;
+import br.com.fiap.velha.VelhaEngine;
+import br.com.fiap.velha.VelhaTabuleiro;
+import br.com.fiap.velha.VelhaTipoEstrategia;
+
+/**
+ * Classe que implementa o "pondering" do robot: enquanto o oponente pensa,
+ * calcula numa thread de fundo a resposta do robot para cada jogada
+ * possivel do oponente e guarda as respostas por estado do tabuleiro.
+ * Quando chega a vez do robot, a jogada sai do cache sem nova busca; o
+ * calculo em andamento e' interrompido e a busca real so' comeca depois que
+ * ele para, sem dividir os processadores com ele.
+ */
+public class VelhaPonderador {
+
+	/** Executor (uma thread de fundo) que calcula as respostas. */
+	private final ExecutorService executor =
+		Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "VelhaPonderador");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+
+	/** Respostas calculadas, por jogador e estado do tabuleiro. */
+	private final ConcurrentHashMap<Long, Integer> respostas =
+		new ConcurrentHashMap<Long, Integer>();
+
+	/** Bit do jogador na chave do 3x3 (acima das 18 posicoes do bitboard). */
+	private static final long CHAVE_JOGADOR_O = 1L << 18;
+	/** Base do hash FNV-1a (64 bits) da chave dos tabuleiros NxN. */
+	private static final long FNV_BASE  = 0xcbf29ce484222325L;
+	/** Primo do hash FNV-1a (64 bits) da chave dos tabuleiros NxN. */
+	private static final long FNV_PRIMO = 0x100000001b3L;
+
+	/** Espera maxima pela parada do pondering interrompido, em ms. */
+	private static final long ESPERA_PARADA = 100L;
+
+	/** Tarefa vazia, usada para esperar a thread de fundo ficar livre. */
+	private static final Runnable VAZIA = new Runnable() {
+		@Override
+		public void run() { }
+	};
+
+	/** Tarefa de pondering em andamento. */
+	private Future<?> tarefa = null;
+
+	/** Quantidade de jogadas encontradas no cache. */
+	private final AtomicLong acertos = new AtomicLong();
+	/** Quantidade de jogadas nao encontradas no cache. */
+	private final AtomicLong falhas  = new AtomicLong();
+
+	/**
+	 * Inicia o calculo das respostas para todas as jogadas possiveis do
+	 *   oponente, descartando as respostas e o calculo anteriores.
+	 * @param tabuleiro Vetor com o tabuleiro (antes da jogada do oponente)
+	 * @param jogador Jogador do robot
+	 * @param nivel Nivel de inteligencia do robot (0 a 10)
+	 * @param estrategia Estrategia de jogo do robot (a mesma da partida,
+	 *   para que as respostas sejam as que o robot calcularia)
+	 */
+	public synchronized void ponderar(char[] tabuleiro, char jogador,
+									  int nivel,
+									  VelhaTipoEstrategia estrategia) {
+		cancelar();
+		tarefa = executor.submit(new Ponderacao(tabuleiro.clone(), jogador,
+												nivel, estrategia));
+	}
+
+	/**
+	 * Retorna a resposta calculada para um estado do tabuleiro e interrompe
+	 *   o pondering, que nao e' mais necessario.
+	 * @param tabuleiro Vetor com o tabuleiro (depois da jogada do oponente)
+	 * @param jogador Jogador do robot
+	 * @return Posicao da jogada, ou -1 se a resposta nao foi calculada.
+	 */
+	public synchronized int getResposta(char[] tabuleiro, char jogador) {
+		interromper();
+		esperarParada();
+		Integer resposta = respostas.get(getChave(tabuleiro, jogador));
+		respostas.clear();
+
+		if (resposta == null || resposta < 0 ||
+			tabuleiro[resposta] != VelhaEngine.JOGADOR_VAZIO) {
+			falhas.incrementAndGet();
+			return -1;
+		}
+		acertos.incrementAndGet();
+		return resposta;
+	}
+
+	/** Interrompe o pondering em andamento e descarta as respostas. */
+	public synchronized void cancelar() {
+		interromper();
+		respostas.clear();
+	}
+
+	/** Encerra a thread de fundo. */
+	public void encerrar() {
+		cancelar();
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Retorna a quantidade de jogadas encontradas no cache.
+	 * @return Quantidade de acertos.
+	 */
+	public long getAcertos() {
+		return acertos.get();
+	}
+
+	/**
+	 * Retorna a quantidade de jogadas nao encontradas no cache.
+	 * @return Quantidade de falhas.
+	 */
+	public long getFalhas() {
+		return falhas.get();
+	}
+
+	/** Interrompe o pondering em andamento, mantendo as respostas. */
+	private void interromper() {
+		if (tarefa != null) {
+			tarefa.cancel(true);
+			tarefa = null;
+		}
+	}
+
+	/**
+	 * Espera a thread de fundo terminar a tarefa interrompida (as buscas
+	 *   param no proximo playout ou na proxima posicao examinada), ate'
+	 *   @ref ESPERA_PARADA ms.
+	 */
+	private void esperarParada() {
+		try {
+			executor.submit(VAZIA).get(ESPERA_PARADA, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			/* a tarefa vazia nao falha */
+		} catch (TimeoutException e) {
+			/* segue sem esperar mais: a tarefa ainda vai parar */
+		} catch (RejectedExecutionException e) {
+			/* ponderador encerrado */
+		}
+	}
+
+	/**
+	 * Retorna a chave de um estado do tabuleiro no cache, sem criar texto:
+	 *   no 3x3, o bitboard com o bit do jogador; nos demais, um hash de 64
+	 *   bits do tabuleiro e do jogador (uma colisao, improvavel, so' traria
+	 *   uma jogada ruim, nunca invalida: ver @ref getResposta).
+	 * @param tabuleiro Vetor com o tabuleiro
+	 * @param jogador Jogador do robot
+	 * @return Chave do cache.
+	 */
+	private static long getChave(char[] tabuleiro, char jogador) {
+		if (tabuleiro.length == 9) {
+			return VelhaBitboard.fromChars(tabuleiro) |
+				((jogador == VelhaEngine.JOGADOR_O) ? CHAVE_JOGADOR_O : 0L);
+		}
+		long hash = (FNV_BASE ^ jogador) * FNV_PRIMO;
+		for (int pos = 0; pos < tabuleiro.length; pos++) {
+			hash = (hash ^ tabuleiro[pos]) * FNV_PRIMO;
+		}
+		return hash;
+	}
+
+	/**
+	 * Tarefa que calcula as respostas. As jogadas do oponente vizinhas 'as
+	 * marcas ja' feitas (as mais provaveis) sao examinadas primeiro.
+	 */
+	private class Ponderacao implements Runnable {
+
+		/** Tabuleiro antes da jogada do oponente. */
+		private final char[] tabuleiro;
+		/** Jogador do robot. */
+		private final char jogador;
+		/** Nivel de inteligencia do robot. */
+		private final int nivel;
+		/** Estrategia de jogo do robot. */
+		private final VelhaTipoEstrategia estrategia;
+
+		/**
+		 * Construtor.
+		 * @param tabuleiro Tabuleiro antes da jogada do oponente
+		 * @param jogador Jogador do robot
+		 * @param nivel Nivel de inteligencia do robot
+		 * @param estrategia Estrategia de jogo do robot
+		 */
+		Ponderacao(char[] tabuleiro, char jogador, int nivel,
+				   VelhaTipoEstrategia estrategia) {
+			this.tabuleiro  = tabuleiro;
+			this.jogador    = jogador;
+			this.nivel      = nivel;
+			this.estrategia = estrategia;
+		}
+
+		/* implementado de Runnable */
+		@Override
+		public void run() {
+			int tamanho = (int) Math.round(Math.sqrt(tabuleiro.length));
+			VelhaTabuleiro engine = estrategia.criarEngine(tamanho);
+			engine.setNivel(nivel);
+			char oponente = VelhaEngine.getOponente(jogador);
+
+			for (int passo = 0; passo < 2; passo++) {
+				for (int pos = 0; pos < tabuleiro.length; pos++) {
+					if (Thread.currentThread().isInterrupted()) return;
+					if (tabuleiro[pos] != VelhaEngine.JOGADOR_VAZIO ||
+						isVizinha(pos, tamanho) != (passo == 0)) continue;
+
+					engine.copiarTabuleiro(tabuleiro);
+					engine.setPosicao(pos, oponente);
+					if (engine.isGameOver()) continue;
+
+					char[] depois = engine.getTabuleiro();
+					int resposta = engine.getJogada(jogador);
+					/* busca interrompida no meio: a resposta nao vale */
+					if (Thread.currentThread().isInterrupted()) return;
+					respostas.put(getChave(depois, jogador), resposta);
+				}
+			}
+		}
+
+		/**
+		 * Verifica se uma posicao tem alguma marca ao redor.
+		 * @param pos Posicao
+		 * @param tamanho Tamanho do lado do tabuleiro
+		 * @return True se ha' marca vizinha, false se nao.
+		 */
+		private boolean isVizinha(int pos, int tamanho) {
+			int lin = pos / tamanho;
+			int col = pos % tamanho;
+			for (int l = Math.max(0, lin - 1); l <= Math.min(tamanho - 1, lin + 1); l++) {
+				for (int c = Math.max(0, col - 1); c <= Math.min(tamanho - 1, col + 1); c++) {
+					if (tabuleiro[l * tamanho + c] != VelhaEngine.JOGADOR_VAZIO) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+	}
+}
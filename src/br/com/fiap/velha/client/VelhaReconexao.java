@@ -0,0 +1,155 @@
+package br.com.fiap.velha.client;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Classe que implementa a politica de reconexao ao servidor (backoff
+ * exponencial com jitter) e as metricas das reconexoes. O intervalo antes
+ * da tentativa n (0, 1, 2...) e' sorteado entre a metade e o total de
+ * min(maximo, inicial * 2^n): sessoes derrubadas juntas (reinicio do
+ * servidor) nao voltam todas ao mesmo tempo, e um servidor fora do ar nao
+ * e' bombardeado. Quem reconecta guarda a quantidade de tentativas
+ * seguidas; esta classe so' calcula o intervalo e soma as metricas. Uma
+ * sessao que cai antes de ficar estavel (ver @ref isEstavel) conta como
+ * tentativa sem sucesso: um servidor que aceita e derruba a conexao nao e'
+ * reconectado sempre no intervalo inicial.
+ * E' thread-safe: pode ser compartilhada por varias sessoes.
+ */
+public class VelhaReconexao {
+
+	/** Intervalo inicial default, em ms. */
+	public static final long INICIAL_DEFAULT = 500L;
+	/** Intervalo maximo default, em ms. */
+	public static final long MAXIMO_DEFAULT  = 30000L;
+	/** Tempo minimo de uma sessao estavel, em ms. */
+	public static final long SESSAO_ESTAVEL  = 10000L;
+
+	/** Intervalo inicial, em ms. */
+	private final long inicial;
+	/** Intervalo maximo, em ms. */
+	private final long maximo;
+
+	/** Quantidade de tentativas de conexao. */
+	private final AtomicLong tentativas    = new AtomicLong();
+	/** Quantidade de reconexoes com sucesso. */
+	private final AtomicLong reconexoes    = new AtomicLong();
+	/** Soma dos tempos de reconexao, em ns. */
+	private final AtomicLong latenciaTotal = new AtomicLong();
+	/** Maior tempo de reconexao, em ns. */
+	private final AtomicLong latenciaMaxima = new AtomicLong();
+
+	/** Construtor default (intervalos padrao). */
+	public VelhaReconexao() {
+		this(INICIAL_DEFAULT, MAXIMO_DEFAULT);
+	}
+
+	/**
+	 * Construtor.
+	 * @param inicial Intervalo inicial, em ms
+	 * @param maximo Intervalo maximo, em ms
+	 * @throws IllegalArgumentException se os intervalos sao invalidos
+	 */
+	public VelhaReconexao(long inicial, long maximo) {
+		if (inicial < 1 || maximo < inicial) {
+			throw new IllegalArgumentException(
+					"Intervalos de reconexao invalidos: " + inicial + "-" + maximo);
+		}
+		this.inicial = inicial;
+		this.maximo  = maximo;
+	}
+
+	/**
+	 * Sorteia o intervalo antes de uma tentativa de conexao.
+	 * @param tentativa Quantidade de tentativas seguidas sem sucesso (0 na
+	 *   primeira reconexao)
+	 * @return Intervalo, em ms.
+	 */
+	public long getIntervalo(int tentativa) {
+		long teto = (tentativa >= 62 || inicial > (maximo >> tentativa))
+				? maximo : inicial << tentativa;
+		long metade = teto / 2;
+		return metade + ThreadLocalRandom.current().nextLong(teto - metade + 1);
+	}
+
+	/**
+	 * Verifica se uma sessao que caiu estava estavel (e as tentativas
+	 *   seguidas podem ser zeradas): recebeu alguma mensagem do jogo, ou
+	 *   ficou conectada pelo menos @ref SESSAO_ESTAVEL ms.
+	 * @param instanteConexao Instante da conexao (System.nanoTime), ou 0 se
+	 *   nao conectou
+	 * @param recebeuJogo True se a sessao recebeu alguma mensagem do jogo
+	 * @return True se a sessao estava estavel, false se nao.
+	 */
+	static boolean isEstavel(long instanteConexao, boolean recebeuJogo) {
+		return recebeuJogo || (instanteConexao != 0 &&
+				System.nanoTime() - instanteConexao >=
+				TimeUnit.MILLISECONDS.toNanos(SESSAO_ESTAVEL));
+	}
+
+	/** Registra uma tentativa de conexao. */
+	void tentativa() {
+		tentativas.incrementAndGet();
+	}
+
+	/**
+	 * Registra uma reconexao com sucesso.
+	 * @param latencia Tempo desde a queda da sessao anterior, em ns
+	 */
+	void reconectou(long latencia) {
+		reconexoes.incrementAndGet();
+		latenciaTotal.addAndGet(latencia);
+		long maxima;
+		do {
+			maxima = latenciaMaxima.get();
+		} while (latencia > maxima &&
+				 !latenciaMaxima.compareAndSet(maxima, latencia));
+	}
+
+	/**
+	 * Retorna a quantidade de tentativas de conexao.
+	 * @return Quantidade de tentativas.
+	 */
+	public long getTentativas() {
+		return tentativas.get();
+	}
+
+	/**
+	 * Retorna a quantidade de reconexoes com sucesso.
+	 * @return Quantidade de reconexoes.
+	 */
+	public long getReconexoes() {
+		return reconexoes.get();
+	}
+
+	/**
+	 * Retorna o tempo medio de reconexao (da queda ate' a nova sessao).
+	 * @return Tempo medio, em ms (0 se nao houve reconexoes).
+	 */
+	public long getLatenciaMedia() {
+		long quantidade = reconexoes.get();
+		return (quantidade == 0) ? 0 : TimeUnit.NANOSECONDS.toMillis(
+				latenciaTotal.get() / quantidade);
+	}
+
+	/**
+	 * Retorna o maior tempo de reconexao.
+	 * @return Tempo maximo, em ms.
+	 */
+	public long getLatenciaMaxima() {
+		return TimeUnit.NANOSECONDS.toMillis(latenciaMaxima.get());
+	}
+
+	/**
+	 * Retorna um resumo das metricas, numa linha.
+	 * @return String com o resumo.
+	 */
+	@Override
+	public String toString() {
+		return "tentativas="      + getTentativas() +
+			   " reconexoes="      + getReconexoes() +
+			   " latenciaMedia="   + getLatenciaMedia() + "ms" +
+			   " latenciaMaxima="  + getLatenciaMaxima() + "ms";
+	}
+}
@@ -1,22 +1,36 @@
 package br.com.fiap.velha.client;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.nio.charset.Charset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.mina.core.future.ConnectFuture;
+import org.apache.mina.core.future.IoFutureListener;
 import org.apache.mina.filter.codec.ProtocolCodecFilter;
-import org.apache.mina.filter.codec.textline.TextLineCodecFactory;
 import org.apache.mina.filter.logging.LoggingFilter;
 import org.apache.mina.transport.socket.nio.NioSocketConnector;
 
 import br.com.fiap.velha.VelhaBean;
-import br.com.fiap.velha.VelhaEngine;
+import br.com.fiap.velha.VelhaCache;
+import br.com.fiap.velha.VelhaMCTS;
 import br.com.fiap.velha.VelhaParser;
+import br.com.fiap.velha.VelhaTabuleiro;
+import br.com.fiap.velha.VelhaTipoEstrategia;
 import br.com.fiap.velha.gui.VelhaListener;
 import br.com.fiap.velha.gui.VelhaRobotGUI;
+import br.com.fiap.velha.gui.VelhaTela;
 
 /**
  * Classe que implementa um Cliente Robot de Jogo da Velha. 
+ * Com interface grafica, a conexao e' feita pelo botao "Conectar"; no modo
+ * headless (sem Swing), o robot conecta assim que inicia, com a
+ * configuracao da linha de comando ou de um arquivo de propriedades (ver
+ * @ref VelhaConfiguracao). Com a chave "sessoes", inicia uma
+ * @ref VelhaFazenda em vez de um robot so'.
  */
 public class VelhaRobot implements VelhaListener {
 
@@ -24,54 +38,201 @@ public class VelhaRobot implements VelhaListener {
 	private static final long CONNECTOR_TIMEOUT = 30000L;
 	/** Tamanho do buffer da sessao, em bytes. */
 	private static final int CONNECTOR_BUFFER_SIZE = 2048;
-	/** Intervalo de tempo para reconexao ao servidor, em ms. */
-	private static final int RECONNECT_DELAY = 500;
-	/** Intervalo de tempo para realizar uma jogada automatica, em ms. */
+	/** Atraso default para realizar uma jogada automatica, em ms. */
 	private static final int JOGADA_DELAY = 1000;
 	
-	/** Logica do Jogo da Velha. */
-	private VelhaEngine  velhaEngine  = null;
-	/** Parser de XML do Jogo da Velha. */
-	private VelhaParser  velhaParser  = null;
-	/** Bean (POJO) com a representacao do XML do Jogo da Velha. */
-	private VelhaBean    velhaBean    = null;
+	/** Estado da partida: logica do Jogo da Velha e ultima mensagem. */
+	private VelhaPartida velhaPartida = null;
+	/** Codec XML (padrao) das mensagens. */
+	private VelhaCodec   codecXML     = null;
+	/** Codec binario compacto das mensagens (3x3). */
+	private VelhaCodec   codecBinario = null;
 	/** Manipulador de sockets do cliente do Jogo da Velha. */
 	private VelhaHandler velhaHandler = null;
-	/** GUI do cliente do Jogo da Velha. */
-	private VelhaRobotGUI     velhaGUI     = null;
+	/** Saida visual do cliente do Jogo da Velha (GUI ou log). */
+	private VelhaTela         velhaTela    = null;
+	/** Calcula as respostas enquanto o oponente pensa. */
+	private VelhaPonderador   velhaPonderador = null;
+	/** Cache das mensagens recebidas (opcional). */
+	private VelhaCache        velhaCache      = null;
+	/** Fabrica de codecs do conector (troca o cache sem trocar o filtro). */
+	private VelhaCodecFactory velhaCodecFactory = null;
+	/** Agenda o envio das jogadas com atraso e as reconexoes (fora da
+	 * thread de IO). */
+	private ScheduledExecutorService agendador = null;
 
-	/** Connector do client de sockets. */ 
+	/** Connector do client de sockets (reutilizado nas reconexoes). */ 
 	private NioSocketConnector velhaSockConnector = null;
 	/** Objeto com a conexao de socket. */
 	private ConnectFuture      velhaConnect       = null;
+	/** Estagio de execucao das mensagens, ou null para as threads de IO. */
+	private VelhaExecucao      velhaExecucao      = null;
+	/** Quantidade de threads do estagio de execucao (0 = nenhum). */
+	private int                threads            = 0;
+	/** Politica (backoff) e metricas das reconexoes. */
+	private VelhaReconexao     velhaReconexao     = new VelhaReconexao();
+	/** Reconexao agendada, ou null se nao houver. */
+	private ScheduledFuture<?> reconexaoAgendada  = null;
+	/** Quantidade de tentativas de conexao seguidas sem sucesso. */
+	private int  tentativas    = 0;
+	/** Instante da queda da sessao (System.nanoTime), ou 0 se nao caiu. */
+	private long instanteQueda = 0;
+	/** Instante da conexao da sessao (System.nanoTime), ou 0 se nao ha'. */
+	private long instanteConexao = 0;
+	/** Indica se a sessao corrente recebeu alguma mensagem do jogo. */
+	private volatile boolean recebeuJogo = false;
 	
 	/** Indica se deve reconectar automaticamente ao servidor apos a partida. */
-	private boolean reconectar = false;
+	private volatile boolean reconectar = false;
 	/** Nome do host ou endereco IP do servidor. */
 	private String hostName = null;
 	/** Numero da Porta TCP do servidor. */
 	private int tcpPort = -1;
+	/** Indica se o robot calcula as respostas enquanto o oponente pensa. */
+	private volatile boolean ponderar = true;
+	/** Indica se o robot oferece o codec binario ao servidor. */
+	private volatile boolean negociarCodec = false;
+	/** Atraso das jogadas (para "parecer humano"). */
+	private volatile VelhaAtraso atraso = new VelhaAtraso(JOGADA_DELAY);
 	
 	/**
 	 * Metodo principal de execucao do programa.
 	 * @param args Argumentos de linha de comando
 	 */
 	public static void main(String[] args) {
-		new VelhaRobot();
+		try {
+			VelhaConfiguracao config = VelhaConfiguracao.ler(args);
+			
+			/* modo fazenda: muitas sessoes, sem GUI */
+			if (config.getInt(VelhaConfiguracao.SESSOES, 0) > 0) {
+				VelhaFazenda.iniciar(config);
+				return;
+			}
+			
+			boolean headless =
+				config.getBoolean(VelhaConfiguracao.HEADLESS, false);
+			VelhaRobot robot = new VelhaRobot(headless);
+			robot.configurar(config);
+			
+			/* sem GUI, conecta direto */
+			if (headless) {
+				robot.onClickConnect(
+					config.getString(VelhaConfiguracao.HOST,
+									 VelhaConfiguracao.HOST_DEFAULT),
+					config.getInt(VelhaConfiguracao.PORTA,
+								  VelhaConfiguracao.PORTA_DEFAULT));
+			}
+		} catch (IOException e) {
+			System.err.println("Erro ao ler a configuracao: " + e.getMessage());
+			System.exit(1);
+		} catch (IllegalArgumentException e) {
+			System.err.println("Configuracao invalida: " + e.getMessage());
+			System.exit(1);
+		}
 	}
 
-	/** Construtor default. */
+	/** Construtor default (com interface grafica). */
 	public VelhaRobot() {
-		velhaEngine    = new VelhaEngine();
-		velhaParser    = new VelhaParser();
-		velhaBean      = new VelhaBean();
+		this(false);
+	}
+
+	/**
+	 * Construtor.
+	 * @param headless True para executar sem interface grafica (mensagens
+	 *   no log), false para abrir a janela do robot
+	 */
+	public VelhaRobot(boolean headless) {
+		velhaPartida   = new VelhaPartida();
+		codecXML       = new VelhaCodecXML();
+		codecBinario   = new VelhaCodecBinario();
 		velhaHandler   = new VelhaHandler(this);
-		velhaGUI       = new VelhaRobotGUI(velhaEngine, this);
+		velhaPonderador = new VelhaPonderador();
+		agendador = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "VelhaRobot");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		if (headless) {
+			velhaTela = new VelhaRobotLog(System.out, "VelhaRobot");
+		} else {
+			velhaTela = new VelhaRobotGUI(velhaPartida.getEngine(), this);
+		}
+	}
+
+	/**
+	 * Aplica uma configuracao: nivel, estrategia (e orcamento das buscas
+	 *   MCTS), atraso das jogadas, pondering, negociacao do codec, cache das
+	 *   mensagens, threads do calculo das jogadas, intervalos de reconexao e
+	 *   nivel de validacao do XML. Os valores nao informados voltam ao
+	 *   padrao.
+	 * @param config Configuracao
+	 * @throws IllegalArgumentException se algum valor e' invalido
+	 */
+	public void configurar(VelhaConfiguracao config) {
+		setNivel(config.getInt(VelhaConfiguracao.NIVEL,
+							   VelhaConfiguracao.NIVEL_DEFAULT));
+		setAtraso(VelhaAtraso.valueOf(config.getString(
+				VelhaConfiguracao.ATRASO, String.valueOf(JOGADA_DELAY))));
+		VelhaTipoEstrategia.setOrcamentoMCTS(
+				config.getInt(VelhaConfiguracao.MCTS_TEMPO,
+							  (int) VelhaMCTS.TEMPO_PADRAO),
+				config.getInt(VelhaConfiguracao.MCTS_PLAYOUTS,
+							  (int) VelhaMCTS.PLAYOUTS_PADRAO),
+				config.getInt(VelhaConfiguracao.MCTS_PARALELISMO,
+							  Runtime.getRuntime().availableProcessors()));
+		setEstrategia(VelhaTipoEstrategia.valueOf(config.getString(
+				VelhaConfiguracao.ESTRATEGIA, "regras").toUpperCase()));
+		setPonderar(config.getBoolean(VelhaConfiguracao.PONDERAR, true));
+		setNegociarCodec(
+				config.getBoolean(VelhaConfiguracao.NEGOCIAR_CODEC, false));
+		setCacheMensagens(config.getInt(VelhaConfiguracao.CACHE_MENSAGENS, 0));
+		setThreads(config.getInt(VelhaConfiguracao.THREADS, 0));
+		setReconexao(new VelhaReconexao(
+				config.getInt(VelhaConfiguracao.RECONEXAO_INICIAL,
+							  (int) VelhaReconexao.INICIAL_DEFAULT),
+				config.getInt(VelhaConfiguracao.RECONEXAO_MAXIMA,
+							  (int) VelhaReconexao.MAXIMO_DEFAULT)));
+		String validacao = config.getString(VelhaConfiguracao.VALIDACAO, null);
+		if (validacao != null) {
+			VelhaParser.setValidacaoPadrao(
+					VelhaParser.Validacao.valueOf(validacao.toUpperCase()));
+		}
+	}
+
+	/**
+	 * Altera o nivel de inteligencia do robot.
+	 * @param nivel Nivel de inteligencia (0 a 10)
+	 */
+	public void setNivel(int nivel) {
+		velhaPartida.setNivel(nivel);
+	}
+
+	/**
+	 * Altera a estrategia de jogo do robot (mantida nas proximas partidas,
+	 *   de qualquer tamanho).
+	 * @param estrategia Tipo da estrategia
+	 */
+	public void setEstrategia(VelhaTipoEstrategia estrategia) {
+		synchronized (velhaPartida) {
+			velhaPartida.setEstrategia(estrategia);
+		}
+	}
+
+	/**
+	 * Altera o atraso das jogadas do robot, a partir da proxima jogada.
+	 * @param atraso Atraso (ver @ref VelhaAtraso#NENHUM)
+	 */
+	public void setAtraso(VelhaAtraso atraso) {
+		this.atraso = atraso;
 	}
 
 	/**
 	 * Metodo executado quando o tabuleiro e' clicado.
-	 * @param posicao Posicao no tabuleiro (0..8)
+	 * @param posicao Posicao no tabuleiro (0..8 no tabuleiro 3x3)
 	 */
 	@Override
 	public void onClickTabuleiro(int posicao) {
@@ -79,30 +240,168 @@ public class VelhaRobot implements VelhaListener {
 	}
 
 	/**
-	 * Metodo executado quando uma string e' recebida pelo socket de rede.
+	 * Metodo executado quando uma linha de texto (negociacao) e' recebida
+	 *   pelo socket de rede.
 	 * @param message String recebida pelo socket
 	 */
 	@Override
 	public void onMessageReceived(String message) {
-		/* processa xml recebido */
-		processarXML(message);
-		/* delay para "parecer humano" */
-		try {
-			Thread.sleep(JOGADA_DELAY);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+		/* resposta da negociacao do codec */
+		VelhaCodec escolhido = VelhaNegociacao.getEscolhido(
+				message, codecBinario, codecXML);
+		if (escolhido != null) velhaHandler.setCodec(escolhido.getNome());
+	}
+
+	/**
+	 * Metodo executado quando uma mensagem do jogo e' recebida pelo socket
+	 *   de rede, ja' decodificada.
+	 * @param message Objeto VelhaBean recebido pelo socket
+	 */
+	@Override
+	public void onMessageReceived(final VelhaBean message) {
+		final int posicao;
+		recebeuJogo = true;
+		synchronized (velhaPartida) {
+			/* processa mensagem recebida */
+			processarMensagem(message);
+			VelhaTabuleiro velhaEngine = velhaPartida.getEngine();
+			VelhaBean velhaBean = velhaPartida.getBean();
+			
+			switch (velhaBean.getStatus()) {
+				case JOGUE:
+					break;
+				case AGUARDE:
+					/* vez do oponente: calcula as respostas enquanto pensa */
+					if (ponderar && !velhaEngine.isGameOver()) {
+						velhaPonderador.ponderar(velhaEngine.getTabuleiro(),
+								velhaBean.getId(), velhaEngine.getNivel(),
+								velhaPartida.getEstrategia());
+					}
+					return;
+				default:
+					/* fim de partida */
+					velhaPonderador.cancelar();
+					return;
+			}
+			
+			/* obtem jogada automatica do robot (do cache, se ja' calculada) */
+			int resposta = velhaPonderador.getResposta(
+					velhaEngine.getTabuleiro(), velhaBean.getId());
+			posicao = (resposta >= 0) ? resposta : velhaPartida.getJogada();
 		}
-		/* obtem jogada automatica do robot */
-		int posicao = velhaEngine.getJogada(velhaBean.getId());
-		/* registra jogada e envia xml */
-		if (posicao >= 0) registrarJogada(posicao);
+		
+		/* delay para "parecer humano": a jogada e' agendada, a thread de IO
+		 * nao espera */
+		long espera = atraso.getAtraso();
+		if (espera <= 0) {
+			registrarJogada(message, posicao);
+			return;
+		}
+		agendador.schedule(new Runnable() {
+			@Override
+			public void run() {
+				registrarJogada(message, posicao);
+			}
+		}, espera, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Habilita ou desabilita o calculo das respostas enquanto o oponente
+	 *   pensa ("pondering").
+	 * @param ponderar True para habilitar, false para desabilitar
+	 */
+	public void setPonderar(boolean ponderar) {
+		this.ponderar = ponderar;
+		if (!ponderar) velhaPonderador.cancelar();
 	}
 
 	/**
 	 * Metodo executado quando uma conexao com o servidor de rede e' aberta.
 	 */
 	@Override
-	public void onSessionOpened() {	}
+	public void onSessionOpened() {
+		/* sessao comeca em XML; oferece o codec binario, se habilitado */
+		if (negociarCodec) {
+			velhaHandler.sendMessage(
+					VelhaNegociacao.getOferta(codecBinario, codecXML));
+		}
+	}
+
+	/**
+	 * Habilita ou desabilita a oferta do codec binario ao servidor, nas
+	 *   proximas conexoes.
+	 * @param negociarCodec True para oferecer o codec binario, false para
+	 *   usar somente XML
+	 */
+	public void setNegociarCodec(boolean negociarCodec) {
+		this.negociarCodec = negociarCodec;
+	}
+
+	/**
+	 * Habilita ou desabilita o cache das mensagens recebidas, nas proximas
+	 *   conexoes.
+	 * @param capacidade Quantidade maxima de mensagens no cache, ou 0 para
+	 *   desabilitar
+	 */
+	public synchronized void setCacheMensagens(int capacidade) {
+		velhaCache = (capacidade > 0) ? new VelhaCache(capacidade) : null;
+		/* o conector e' reutilizado: troca so' o cache da fabrica; o filtro
+		 * (e o decodificador da sessao aberta, com os bytes acumulados)
+		 * continua o mesmo */
+		if (velhaCodecFactory != null) {
+			velhaCodecFactory.setCache(velhaCache);
+		}
+	}
+
+	/**
+	 * Retorna o cache das mensagens recebidas (com os contadores de acertos
+	 *   e falhas).
+	 * @return Cache, ou null se desabilitado.
+	 */
+	public VelhaCache getCacheMensagens() {
+		return velhaCache;
+	}
+
+	/**
+	 * Habilita ou desabilita o estagio de execucao das mensagens (ver
+	 *   @ref VelhaExecucao): o calculo das jogadas sai das threads de IO.
+	 *   Vale quando o conector e' criado (na primeira conexao ou depois de
+	 *   abortar).
+	 * @param threads Quantidade maxima de threads, ou 0 para calcular nas
+	 *   threads de IO
+	 */
+	public synchronized void setThreads(int threads) {
+		if (threads < 0) {
+			throw new IllegalArgumentException("threads < 0: " + threads);
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Retorna o estagio de execucao das mensagens, com as metricas (fila e
+	 *   tempo de espera).
+	 * @return Objeto VelhaExecucao, ou null se desabilitado ou desconectado.
+	 */
+	public synchronized VelhaExecucao getExecucao() {
+		return velhaExecucao;
+	}
+
+	/**
+	 * Altera a politica de reconexao (as metricas recomecam do zero).
+	 * @param reconexao Politica de reconexao
+	 */
+	public synchronized void setReconexao(VelhaReconexao reconexao) {
+		velhaReconexao = reconexao;
+	}
+
+	/**
+	 * Retorna a politica de reconexao, com as metricas (tentativas e tempo
+	 *   de reconexao).
+	 * @return Objeto VelhaReconexao.
+	 */
+	public synchronized VelhaReconexao getReconexao() {
+		return velhaReconexao;
+	}
 
 	/**
 	 * Metodo executado quando uma conexao com o servidor de rede e' fechada.
@@ -113,14 +412,18 @@ public class VelhaRobot implements VelhaListener {
 		/* limpa o status do jogo */
 		limparStatusJogo();
 		
-		/* reconecta */
-		if (reconectar) {
-			try {
-				Thread.sleep(RECONNECT_DELAY);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
+		/* reconecta (agendado: a thread de IO nao espera); uma sessao que
+		 * caiu antes de ficar estavel conta como tentativa sem sucesso */
+		synchronized (this) {
+			if (VelhaReconexao.isEstavel(instanteConexao, recebeuJogo)) {
+				tentativas = 0;
+			} else {
+				tentativas++;
 			}
-			conectar(this.hostName, this.tcpPort);
+			instanteConexao = 0;
+			recebeuJogo     = false;
+			instanteQueda   = System.nanoTime();
+			agendarReconexao();
 		}
 	}
 
@@ -132,14 +435,18 @@ public class VelhaRobot implements VelhaListener {
 	@Override
 	public void onClickConnect(String hostName, Integer tcpPort) {
 
-		this.hostName = hostName;
-		this.tcpPort  = tcpPort;
-		reconectar    = true;
-		conectar(this.hostName, this.tcpPort);
+		synchronized (this) {
+			this.hostName = hostName;
+			this.tcpPort  = tcpPort;
+			reconectar    = true;
+			tentativas    = 0;
+			instanteQueda = 0;
+		}
+		conectar();
 		
 		/* habilita/desabilita controles no painel */
-		velhaGUI.habilitarPainelConexao(false);
-		velhaGUI.habilitarBotaoAbortar(true);
+		velhaTela.habilitarPainelConexao(false);
+		velhaTela.habilitarBotaoAbortar(true);
 	}
 
 	/**
@@ -152,114 +459,183 @@ public class VelhaRobot implements VelhaListener {
 		desconectar();
 		
 		/* habilita/desabilita controles no painel */
-		velhaGUI.habilitarPainelConexao(true);
-		velhaGUI.habilitarBotaoAbortar(false);
+		velhaTela.habilitarPainelConexao(true);
+		velhaTela.habilitarBotaoAbortar(false);
 	}
 
 	/**
 	 * Registra uma jogada no tabuleiro e envia um XML ao servidor.
+	 * @param mensagem Mensagem a que a jogada responde; se outra chegou
+	 *   durante o atraso, a jogada e' descartada
 	 * @param posicao Posicao da jogada
 	 */
-	private void registrarJogada(int posicao) {
-		/* se jogada e' invalida, sai */
-		if ((velhaEngine.getPosicao(posicao) != VelhaEngine.JOGADOR_VAZIO) ||
-			(!velhaBean.getStatus().equals(VelhaEngine.STATUS_JOGUE)) ||
-			(velhaEngine.isGameOver())) return;
-
-		/* coloca jogada no tabuleiro */
-		velhaEngine.setPosicao(posicao, velhaBean.getId());
-		/* coloca jogada no bean */
-		velhaBean.setJogada(posicao);
-		/* envia xml */
-		velhaHandler.sendMessage(velhaParser.getVelhaXML(velhaBean));
+	private void registrarJogada(VelhaBean mensagem, int posicao) {
+		synchronized (velhaPartida) {
+			/* coloca jogada no tabuleiro e no bean; se e' invalida, sai */
+			if (velhaPartida.getBean() != mensagem ||
+				!velhaPartida.registrarJogada(posicao)) return;
+			/* envia mensagem (o codec da sessao e' aplicado pelo filtro) */
+			velhaHandler.sendMessage(velhaPartida.getBean());
+		}
 	}
 
 	/**
-	 * Processa um XML recebido, atualizando o status do jogo e do tabuleiro.
-	 * @param message Mensagem recebida, em formato XML.
+	 * Processa uma mensagem recebida, atualizando o status do jogo e do
+	 *   tabuleiro.
+	 * @param tempBean Mensagem recebida, ja' decodificada.
 	 */
-	private void processarXML(String message) {
-		/* converte xml para o objeto VelhaBean */
-		VelhaBean tempBean = velhaParser.getVelhaBean(message);
-		
-		/* atualiza estado do jogo e tabuleiro */
-		if (tempBean != null) {
-			velhaBean = tempBean;
-			
-			velhaEngine.copiarTabuleiro(velhaBean.getTabuleiro());
-			velhaGUI.redesenharTabuleiro();
-			
-			velhaGUI.escreverInfo(getStatusInfo());
+	private void processarMensagem(VelhaBean tempBean) {
+		/* atualiza estado do jogo e tabuleiro (a logica e' trocada se o
+		 * tabuleiro mudou de tamanho) */
+		if (velhaPartida.atualizar(tempBean)) {
+			velhaTela.setTabuleiro(velhaPartida.getEngine());
 		}
+		velhaTela.redesenharTabuleiro();
+		
+		velhaTela.escreverInfo(getStatusInfo());
 	}
-	
+
 	/**
 	 * Retorna mensagem de informacao baseado no status do jogo, armazenado no
 	 *   objeto VelhaBean
 	 * @return String com a mensagem.
 	 */
 	private String getStatusInfo() {
+		VelhaBean velhaBean = velhaPartida.getBean();
 		/* obtem id do jogador (X ou O) */
 		String mensagem = "Jogador " + String.valueOf(velhaBean.getId());
 
 		/* retorna mensagem conforme status do jogo */
-		if (VelhaEngine.STATUS_AGUARDE.equals(velhaBean.getStatus())) {
-			mensagem += ": Aguarde o oponente...";
-		}
-		if (VelhaEngine.STATUS_JOGUE.equals(velhaBean.getStatus())) {
-			mensagem += ": Sua vez! Jogue!";
-		}
-		if (VelhaEngine.STATUS_GANHOU.equals(velhaBean.getStatus())) {
-			mensagem += ": Parabens! Voce ganhou o jogo!";
-		}
-		if (VelhaEngine.STATUS_PERDEU.equals(velhaBean.getStatus())) {
-			mensagem += ": Sinto muito, voce perdeu. Treine um pouco mais!";
-		}
-		if (VelhaEngine.STATUS_EMPATE.equals(velhaBean.getStatus())) {
-			mensagem += ": Houve empate!";
-		}
-		if (VelhaEngine.STATUS_WO.equals(velhaBean.getStatus())) {
-			mensagem += ": O oponente abandonou o jogo.";
+		switch (velhaBean.getStatus()) {
+			case AGUARDE:
+				mensagem += ": Aguarde o oponente...";
+				break;
+			case JOGUE:
+				mensagem += ": Sua vez! Jogue!";
+				break;
+			case GANHOU:
+				mensagem += ": Parabens! Voce ganhou o jogo!";
+				break;
+			case PERDEU:
+				mensagem += ": Sinto muito, voce perdeu. Treine um pouco mais!";
+				break;
+			case EMPATE:
+				mensagem += ": Houve empate!";
+				break;
+			case WO:
+				mensagem += ": O oponente abandonou o jogo.";
+				break;
 		}
 		return mensagem;
 	}
 
 	/**
-	 * Conecta no servidor de sockets do Jogo da Velha.
-	 * @param hostName Nome do host ou numero IP do servidor
-	 * @param tcpPort Numero da Porta TCP do servidor
+	 * Conecta no servidor de sockets do Jogo da Velha, sem esperar a
+	 *   conexao. O conector e' criado so' na primeira vez; se a conexao
+	 *   falhar, uma nova tentativa e' agendada.
 	 */
-	private void conectar(String hostName, Integer tcpPort) {
-		
-		/* cria conector */
+	private void conectar() {
+		ConnectFuture connect;
+		synchronized (this) {
+			reconexaoAgendada = null;
+			if (!reconectar) return;
+			if (velhaSockConnector == null) criarConector();
+			
+			/* conecta ao servidor */
+			velhaReconexao.tentativa();
+			connect = velhaSockConnector.connect(
+					new InetSocketAddress(hostName, tcpPort));
+			velhaConnect = connect;
+		}
+		connect.addListener(new IoFutureListener<ConnectFuture>() {
+			@Override
+			public void operationComplete(ConnectFuture future) {
+				conectou(future);
+			}
+		});
+	}
+
+	/** Cria e configura o conector. */
+	private void criarConector() {
 		velhaSockConnector = new NioSocketConnector();
-		/* configura conector */
 		velhaSockConnector.getFilterChain().addLast(
 				"logger", new LoggingFilter());
+		velhaCodecFactory = new VelhaCodecFactory(velhaCache);
 		velhaSockConnector.getFilterChain().addLast(
-				"codec", new ProtocolCodecFilter(
-						new TextLineCodecFactory(Charset.forName("UTF-8"))));
+				"codec", new ProtocolCodecFilter(velhaCodecFactory));
+		if (threads > 0) {
+			velhaExecucao = new VelhaExecucao(threads);
+			velhaExecucao.instalar(velhaSockConnector.getFilterChain());
+		}
 		velhaSockConnector.setConnectTimeoutMillis(CONNECTOR_TIMEOUT);
-		velhaSockConnector.setHandler(velhaHandler);
-		
-		/* conecta ao servidor e configura sessao */
-		velhaConnect = velhaSockConnector.connect(
-				new InetSocketAddress(hostName, tcpPort));
 		velhaSockConnector.getSessionConfig().setReadBufferSize(
 				CONNECTOR_BUFFER_SIZE);
-		velhaConnect.awaitUninterruptibly();
+		velhaSockConnector.setHandler(velhaHandler);
 	}
 
-	/** Desconecta do servidor. */
+	/**
+	 * Trata o resultado de uma tentativa de conexao: registra a metrica da
+	 *   reconexao ou agenda uma nova tentativa. As tentativas seguidas so'
+	 *   sao zeradas quando a sessao fica estavel (ver @ref onSessionClosed).
+	 * @param future Resultado da conexao
+	 */
+	private synchronized void conectou(ConnectFuture future) {
+		if (future.isConnected()) {
+			if (instanteQueda != 0) {
+				velhaReconexao.reconectou(System.nanoTime() - instanteQueda);
+			}
+			instanteQueda   = 0;
+			instanteConexao = System.nanoTime();
+		} else {
+			tentativas++;
+			agendarReconexao();
+		}
+	}
+
+	/**
+	 * Agenda uma tentativa de conexao, com o intervalo da politica de
+	 *   reconexao (backoff exponencial com jitter).
+	 */
+	private synchronized void agendarReconexao() {
+		if (!reconectar || reconexaoAgendada != null) return;
+		long intervalo = velhaReconexao.getIntervalo(tentativas);
+		velhaTela.escreverInfo("Reconectando em " + intervalo + " ms...");
+		reconexaoAgendada = agendador.schedule(new Runnable() {
+			@Override
+			public void run() {
+				conectar();
+			}
+		}, intervalo, TimeUnit.MILLISECONDS);
+	}
+
+	/** Desconecta do servidor e libera o conector. */
 	private void desconectar() {
+		NioSocketConnector connector;
+		ConnectFuture connect;
+		VelhaExecucao execucao;
+		synchronized (this) {
+			if (reconexaoAgendada != null) {
+				reconexaoAgendada.cancel(false);
+				reconexaoAgendada = null;
+			}
+			connector = velhaSockConnector;
+			connect   = velhaConnect;
+			execucao  = velhaExecucao;
+			velhaSockConnector = null;
+			velhaConnect       = null;
+			velhaExecucao      = null;
+			velhaCodecFactory  = null;
+		}
 		
 		/* fecha sessao */
-		if (velhaConnect.isConnected()
-				&& velhaConnect.getSession().isConnected()) { 
-			velhaConnect.getSession().close(true);
+		if (connect != null && connect.isConnected()
+				&& connect.getSession().isConnected()) { 
+			connect.getSession().close(true);
 		}
-		/* libera da memoria os recursos do conector */
-		velhaSockConnector.dispose();
+		/* libera da memoria os recursos do conector (fora do lock: espera
+		 * as threads de IO) */
+		if (connector != null) connector.dispose();
+		if (execucao != null) execucao.encerrar();
 		
 		/* limpa o status do jogo */
 		limparStatusJogo();
@@ -268,9 +644,11 @@ public class VelhaRobot implements VelhaListener {
 	/** Limpa o status do jogo. */
 	private void limparStatusJogo() {
 		
-		velhaGUI.escreverInfo("Desconectado.");
-		velhaEngine.limparTabuleiro();
-		velhaBean.limpar();
-		velhaGUI.redesenharTabuleiro();
+		velhaPonderador.cancelar();
+		velhaTela.escreverInfo("Desconectado.");
+		synchronized (velhaPartida) {
+			velhaPartida.limpar();
+		}
+		velhaTela.redesenharTabuleiro();
 	}
 }
@@ -0,0 +1,70 @@
+package br.com.fiap.velha.client;
+
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import br.com.fiap.velha.VelhaTabuleiro;
+import br.com.fiap.velha.gui.VelhaTela;
+
+/**
+ * Classe que implementa a saida do robot sem interface grafica (modo
+ * headless): as mensagens do painel de informacao vao para um log, com a
+ * hora; o tabuleiro e os controles de conexao sao ignorados. Nenhuma
+ * classe do Swing/AWT e' carregada.
+ */
+public class VelhaRobotLog implements VelhaTela {
+
+	/** Formato da hora das mensagens. */
+	private static final String FORMATO_HORA = "HH:mm:ss";
+
+	/** Destino das mensagens. */
+	private final PrintStream saida;
+	/** Prefixo das mensagens (identifica o robot). */
+	private final String prefixo;
+	/** Ultima mensagem escrita (mensagens repetidas sao omitidas). */
+	private String ultimaInfo = null;
+
+	/**
+	 * Construtor.
+	 * @param saida Destino das mensagens
+	 * @param prefixo Prefixo das mensagens (identifica o robot)
+	 */
+	public VelhaRobotLog(PrintStream saida, String prefixo) {
+		this.saida   = saida;
+		this.prefixo = prefixo;
+	}
+
+	/* implementado de VelhaTela */
+	@Override
+	public void setTabuleiro(VelhaTabuleiro engine) {
+		/* nao ha' tabuleiro para desenhar */
+	}
+
+	/* implementado de VelhaTela */
+	@Override
+	public void redesenharTabuleiro() {
+		/* nao ha' tabuleiro para desenhar */
+	}
+
+	/* implementado de VelhaTela */
+	@Override
+	public void habilitarPainelConexao(boolean enabled) {
+		/* nao ha' painel de conexao */
+	}
+
+	/* implementado de VelhaTela */
+	@Override
+	public synchronized void escreverInfo(String info) {
+		if (info.equals(ultimaInfo)) return;
+		ultimaInfo = info;
+		String hora = new SimpleDateFormat(FORMATO_HORA).format(new Date());
+		saida.println("[" + hora + "] " + prefixo + " - " + info);
+	}
+
+	/* implementado de VelhaTela */
+	@Override
+	public void habilitarBotaoAbortar(boolean enabled) {
+		/* nao ha' botao abortar */
+	}
+}
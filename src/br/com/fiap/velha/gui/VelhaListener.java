@@ -1,5 +1,7 @@
 package br.com.fiap.velha.gui;
 
+import br.com.fiap.velha.VelhaBean;
+
 /**
  * Interface que define os metodos para receber eventos de GUI e de Rede. 
  */
@@ -7,16 +9,24 @@ public interface VelhaListener {
 	
 	/**
 	 * Metodo executado quando o tabuleiro e' clicado.
-	 * @param posicao Posicao no tabuleiro (0..8)
+	 * @param posicao Posicao no tabuleiro (0..8 no tabuleiro 3x3)
 	 */
 	public void onClickTabuleiro(int posicao);
 	
 	/**
-	 * Metodo executado quando uma string e' recebida pelo socket de rede.
+	 * Metodo executado quando uma linha de texto (negociacao) e' recebida
+	 *   pelo socket de rede.
 	 * @param message String recebida pelo socket
 	 */
 	public void onMessageReceived(String message);
 
+	/**
+	 * Metodo executado quando uma mensagem do jogo e' recebida pelo socket
+	 *   de rede, ja' decodificada.
+	 * @param message Objeto VelhaBean recebido pelo socket
+	 */
+	public void onMessageReceived(VelhaBean message);
+
 	/**
 	 * Metodo executado quando uma conexao com o servidor de rede e' aberta.
 	 */
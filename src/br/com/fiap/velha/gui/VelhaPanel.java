@@ -12,6 +12,7 @@ import java.awt.event.MouseEvent;
 import javax.swing.JPanel;
 
 import br.com.fiap.velha.VelhaEngine;
+import br.com.fiap.velha.VelhaTabuleiro;
 
 /**
  * Classe que implementa um painel Swing com o tabuleiro do Jogo da Velha. 
@@ -24,11 +25,6 @@ public class VelhaPanel extends JPanel {
 	/* Altura do tabuleiro, em pixels */
 	private static final int HEIGHT = WIDTH;
 
-	/* Largura de uma posicao do tabuleiro */
-	private static final int X_3 = WIDTH  / 3;
-	/* Altura de uma posicao do tabuleiro */
-	private static final int Y_3 = HEIGHT / 3;
-	
 	/* Largura da linha que desenha o tabuleiro, em pixels */
 	private static final float TABULEIRO_LINE_WIDTH = 4.0f;
 	/* Cor do tabuleiro */
@@ -45,8 +41,9 @@ public class VelhaPanel extends JPanel {
 	private static final Paint JOGADOR_X_COLOR    = Color.RED;
 	/* Cor do jogador O */
 	private static final Paint JOGADOR_O_COLOR    = Color.BLUE;
-	/* Espacamento entre a borda da posicao do tabuleiro e o X ou O */
-	private static final int   JOGADOR_SPACING    = WIDTH / 25;
+	/* Espacamento entre a borda da posicao do tabuleiro e o X ou O,
+	 * proporcional a largura de uma posicao */
+	private static final int   JOGADOR_SPACING_DIV = 8;
 
 	/* Coordenada X do inicio do tabuleiro */
 	private int X_START  = 0;
@@ -56,24 +53,33 @@ public class VelhaPanel extends JPanel {
 	private int X_END = X_START + WIDTH;  
 	/* Coordenada Y do fim do tabuleiro */
 	private int Y_END = Y_START + HEIGHT;
+
+	/* Quantidade de linhas (e de colunas) do tabuleiro */
+	private int tamanho = 3;
+	/* Largura de uma posicao do tabuleiro */
+	private int X_N = WIDTH  / 3;
+	/* Altura de uma posicao do tabuleiro */
+	private int Y_N = HEIGHT / 3;
+	/* Fator de escala das linhas, em relacao ao tabuleiro 3x3 */
+	private float escala = 1.0f;
 	
 	/** Armazena um conjunto de coordenadas que representam uma posicao no
 	 *  tabuleiro.
 	 *  coordPosicao[posicao][start|end]
 	 */
-	private Point coordPosicao[][] = new Point[9][2];
+	private Point coordPosicao[][] = new Point[0][2];
 
-	/** Armazena uma referencia para um objeto VelhaEngine. */
-	private VelhaEngine   velhaEngine   = null;
+	/** Armazena uma referencia para o tabuleiro da partida. */
+	private volatile VelhaTabuleiro velhaEngine = null;
 	/** Armazena uma referencia para um objeto VelhaListener. */
 	private VelhaListener velhaListener = null;
 	
 	/**
 	 * Construtor.
-	 * @param engine Referencia para objeto VelhaEngine
+	 * @param engine Referencia para o tabuleiro da partida
 	 * @param listener Referencia para objeto VelhaListener
 	 */
-	public VelhaPanel(VelhaEngine engine, VelhaListener listener) {
+	public VelhaPanel(VelhaTabuleiro engine, VelhaListener listener) {
 		
 		this.velhaEngine   = engine;
 		this.velhaListener = listener;
@@ -93,6 +99,16 @@ public class VelhaPanel extends JPanel {
         });
     }
 	
+	/**
+	 * Troca o tabuleiro exibido (por exemplo, quando o servidor inicia uma
+	 *   partida com outro tamanho de tabuleiro).
+	 * @param engine Referencia para o tabuleiro da partida
+	 */
+	public void setTabuleiro(VelhaTabuleiro engine) {
+		this.velhaEngine = engine;
+		repaint();
+	}
+
 	/* reimplementado de JPanel */
 	@Override
 	public void paintComponent(Graphics g) {
@@ -110,45 +126,33 @@ public class VelhaPanel extends JPanel {
 	 * Calcula as coordenadas do tabuleiro, baseado nas dimensoes do painel
 	 */
 	private void calcularCoordenadas() {
+		tamanho = velhaEngine.getTamanho();
+		X_N     = WIDTH  / tamanho;
+		Y_N     = HEIGHT / tamanho;
+		escala  = 3.0f / tamanho;
+
 		X_START  = (getSize().width  - WIDTH ) / 2;
 		Y_START  = (getSize().height - HEIGHT) / 2;
-		X_END = X_START + WIDTH;  
-		Y_END = Y_START + HEIGHT;
-
-		coordPosicao[0][0] = new Point(X_START      , Y_START      );
-		coordPosicao[0][1] = new Point(X_START + X_3, Y_START + Y_3);
+		X_END = X_START + X_N * tamanho;  
+		Y_END = Y_START + Y_N * tamanho;
 
-		coordPosicao[1][0] = new Point(X_START + X_3, Y_START      );
-		coordPosicao[1][1] = new Point(X_END   - X_3, Y_START + Y_3);
-		
-		coordPosicao[2][0] = new Point(X_END   - X_3, Y_START      );
-		coordPosicao[2][1] = new Point(X_END        , Y_START + Y_3);
-		
-		coordPosicao[3][0] = new Point(X_START      , Y_START + Y_3);
-		coordPosicao[3][1] = new Point(X_START + X_3, Y_END   - Y_3);
-
-		coordPosicao[4][0] = new Point(X_START + X_3, Y_START + Y_3);
-		coordPosicao[4][1] = new Point(X_END   - X_3, Y_END   - Y_3);
-		
-		coordPosicao[5][0] = new Point(X_END   - X_3, Y_START + Y_3);
-		coordPosicao[5][1] = new Point(X_END        , Y_END   - Y_3);
-
-		coordPosicao[6][0] = new Point(X_START      , Y_END   - Y_3);
-		coordPosicao[6][1] = new Point(X_START + X_3, Y_END        );
-
-		coordPosicao[7][0] = new Point(X_START + X_3, Y_END   - Y_3);
-		coordPosicao[7][1] = new Point(X_END   - X_3, Y_END        );
-		
-		coordPosicao[8][0] = new Point(X_END   - X_3, Y_END   - Y_3);
-		coordPosicao[8][1] = new Point(X_END        , Y_END        );
+		if (coordPosicao.length != tamanho * tamanho) {
+			coordPosicao = new Point[tamanho * tamanho][2];
+		}
+		for (int pos = 0; pos < coordPosicao.length; pos++) {
+			int x = X_START + (pos % tamanho) * X_N;
+			int y = Y_START + (pos / tamanho) * Y_N;
+			coordPosicao[pos][0] = new Point(x      , y      );
+			coordPosicao[pos][1] = new Point(x + X_N, y + Y_N);
+		}
 	}
 
 	/**
 	 * Retorna uma posicao no tabuleiro, a partir das coordenadas de tela (x,y).
 	 * @param x Coordenada x do painel
 	 * @param y Coordenada y do painel
-	 * @return Posicao no tabuleiro (0 a 8), ou -1 se coordenadas estao fora do
-	 *   tabuleiro.
+	 * @return Posicao no tabuleiro (0 a tamanho*tamanho-1), ou -1 se
+	 *   coordenadas estao fora do tabuleiro.
 	 */
 	private int getPosicao(int x, int y) {
 
@@ -171,14 +175,13 @@ public class VelhaPanel extends JPanel {
 	 */
 	private void desenharTabuleiro(Graphics2D g2d) {
 
-		g2d.setStroke(new BasicStroke(TABULEIRO_LINE_WIDTH));
+		g2d.setStroke(new BasicStroke(Math.max(1.0f, TABULEIRO_LINE_WIDTH * escala)));
 		g2d.setPaint(TABULEIRO_COLOR);
 		
-		g2d.drawLine(X_START, Y_START + Y_3, X_END, Y_START + Y_3);
-		g2d.drawLine(X_START, Y_END   - Y_3, X_END, Y_END   - Y_3);
-	
-		g2d.drawLine(X_START + X_3, Y_START, X_START + X_3, Y_END);
-		g2d.drawLine(X_END   - X_3, Y_START, X_END   - X_3, Y_END);
+		for (int i = 1; i < tamanho; i++) {
+			g2d.drawLine(X_START, Y_START + i * Y_N, X_END, Y_START + i * Y_N);
+			g2d.drawLine(X_START + i * X_N, Y_START, X_START + i * X_N, Y_END);
+		}
 	}
 
 	/**
@@ -187,17 +190,18 @@ public class VelhaPanel extends JPanel {
 	 */
 	private void desenharJogadas(Graphics2D g2d) {
 
-		g2d.setStroke(new BasicStroke(JOGADOR_LINE_WIDTH));
+		g2d.setStroke(new BasicStroke(Math.max(1.0f, JOGADOR_LINE_WIDTH * escala)));
+		final int spacing = X_N / JOGADOR_SPACING_DIV;
 		
-		for (int pos = 0; pos < 9; pos++) {
+		for (int pos = 0; pos < coordPosicao.length; pos++) {
 			
 			Point pStart = coordPosicao[pos][0]; 
   			Point pEnd   = coordPosicao[pos][1];
   			
-  			int x1 = pStart.x + JOGADOR_SPACING;
-  			int x2 = pEnd.x   - JOGADOR_SPACING;
-  			int y1 = pStart.y + JOGADOR_SPACING;
-  			int y2 = pEnd.y   - JOGADOR_SPACING;
+  			int x1 = pStart.x + spacing;
+  			int x2 = pEnd.x   - spacing;
+  			int y1 = pStart.y + spacing;
+  			int y2 = pEnd.y   - spacing;
 
   			if (velhaEngine.getPosicao(pos) == VelhaEngine.JOGADOR_X) {
 
@@ -217,23 +221,24 @@ public class VelhaPanel extends JPanel {
 	}
 	
 	/**
-	 * Desenha uma linha sobre o trio ganhador, se houver.
+	 * Desenha uma linha sobre a linha ganhadora, se houver.
 	 * @param g2d Referencia para objeto Graphics2D, da API Java2D
 	 */
 	private void desenharFechaTrio(Graphics2D g2d) {
 		
-		int trio[] = velhaEngine.getTrioGanhador();
+		int linha[] = velhaEngine.getLinhaGanhadora();
 		
-		if (trio == null || trio.length < 3) return;
+		if (linha == null || linha.length < 2) return;
 		
-		final int spacing = X_3 / 2;
+		final int spacing = X_N / 2;
+		final int fim     = linha[linha.length - 1];
 		
-		int x1 = coordPosicao[trio[0]][0].x + spacing;
-		int y1 = coordPosicao[trio[0]][0].y + spacing;
-		int x2 = coordPosicao[trio[2]][0].x + spacing;
-		int y2 = coordPosicao[trio[2]][0].y + spacing;
+		int x1 = coordPosicao[linha[0]][0].x + spacing;
+		int y1 = coordPosicao[linha[0]][0].y + spacing;
+		int x2 = coordPosicao[fim][0].x + spacing;
+		int y2 = coordPosicao[fim][0].y + spacing;
 
-		g2d.setStroke(new BasicStroke(FECHA_TRIO_LINE_WIDTH));
+		g2d.setStroke(new BasicStroke(Math.max(2.0f, FECHA_TRIO_LINE_WIDTH * escala)));
 		g2d.setPaint(FECHA_TRIO_COLOR);
 		
 		g2d.drawLine(x1, y1, x2, y2);
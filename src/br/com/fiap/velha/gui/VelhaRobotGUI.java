@@ -17,12 +17,12 @@ import javax.swing.UIManager;
 import javax.swing.UIManager.LookAndFeelInfo;
 import javax.swing.border.EtchedBorder;
 
-import br.com.fiap.velha.VelhaEngine;
+import br.com.fiap.velha.VelhaTabuleiro;
 
 /**
  * Classe responsavel por montar a GUI em Swing do Jogo da Velha. 
  */
-public class VelhaRobotGUI implements ActionListener {
+public class VelhaRobotGUI implements VelhaTela, ActionListener {
 
 	/** Nome do "look and feel" usado pela aplicacao. */
 	private static final String LOOK_AND_FEEL_NAME = "Nimbus";
@@ -51,15 +51,15 @@ public class VelhaRobotGUI implements ActionListener {
 	
 	/** Armazena uma referencia para um objeto VelhaListener. */
 	private VelhaListener velhaListener = null;
-	/** Armazena uma referencia para um objeto VelhaEngine. */
-	private VelhaEngine   velhaEngine   = null;
+	/** Armazena uma referencia para o tabuleiro da partida. */
+	private volatile VelhaTabuleiro velhaEngine = null;
 	
 	/**
 	 * Construtor.
-	 * @param engine Referencia para objeto VelhaEngine
+	 * @param engine Referencia para o tabuleiro da partida
 	 * @param listener Referencia para objeto VelhaListener
 	 */
-	public VelhaRobotGUI(VelhaEngine engine, VelhaListener listener) {
+	public VelhaRobotGUI(VelhaTabuleiro engine, VelhaListener listener) {
 
 		velhaListener = listener;
 		velhaEngine   = engine;
@@ -84,15 +84,21 @@ public class VelhaRobotGUI implements ActionListener {
 		velhaFrame.setVisible(true);
 	}
 
-	/** Redesenha o tabuleiro. */
+	/* implementado de VelhaTela */
+	@Override
+	public void setTabuleiro(VelhaTabuleiro engine) {
+		velhaEngine = engine;
+		velhaPanel.setTabuleiro(engine);
+	}
+
+	/* implementado de VelhaTela */
+	@Override
 	public void redesenharTabuleiro() {
 		velhaPanel.repaint();
 	}
 
-	/**
-	 * Habilita ou desabilita os controles do painel de conexao.
-	 * @param enabled True para habilitar, false para desabilitar
-	 */
+	/* implementado de VelhaTela */
+	@Override
 	public void habilitarPainelConexao(boolean enabled) {
 	
 		hostName.setEnabled(enabled);
@@ -101,18 +107,14 @@ public class VelhaRobotGUI implements ActionListener {
 		nivelRobot.setEnabled(enabled);
 	}
 	
-	/**
-	 * Escreve um texto no painel de informacao.
-	 * @param info
-	 */
+	/* implementado de VelhaTela */
+	@Override
 	public void escreverInfo(String info) {
 		infoLabel.setText(info);
 	}
 
-	/**
-	 * Habilita ou desabilita o botao abortar.
-	 * @param enabled True para habilitar, false para desabilitar
-	 */
+	/* implementado de VelhaTela */
+	@Override
 	public void habilitarBotaoAbortar(boolean enabled) {
 		abortButton.setEnabled(enabled);
 	}
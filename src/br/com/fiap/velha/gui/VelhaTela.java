@@ -0,0 +1,41 @@
+package br.com.fiap.velha.gui;
+
+import br.com.fiap.velha.VelhaTabuleiro;
+
+/**
+ * Interface que define a saida visual do robot: o tabuleiro, o painel de
+ * conexao e o painel de informacao. A implementacao em Swing e' a
+ * @ref VelhaRobotGUI; sem interface grafica (modo headless) as mensagens
+ * vao para um log.
+ */
+public interface VelhaTela {
+
+	/**
+	 * Troca o tabuleiro da partida (por exemplo, quando o servidor inicia
+	 *   uma partida com outro tamanho de tabuleiro).
+	 * @param engine Referencia para o tabuleiro da partida
+	 */
+	public void setTabuleiro(VelhaTabuleiro engine);
+
+	/** Redesenha o tabuleiro. */
+	public void redesenharTabuleiro();
+
+	/**
+	 * Habilita ou desabilita os controles do painel de conexao.
+	 * @param enabled True para habilitar, false para desabilitar
+	 */
+	public void habilitarPainelConexao(boolean enabled);
+
+	/**
+	 * Escreve um texto no painel de informacao.
+	 * @param info Texto
+	 */
+	public void escreverInfo(String info);
+
+	/**
+	 * Habilita ou desabilita o botao abortar.
+	 * @param enabled True para habilitar, false para desabilitar
+	 */
+	public void habilitarBotaoAbortar(boolean enabled);
+
+}